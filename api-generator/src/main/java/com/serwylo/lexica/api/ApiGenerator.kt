@@ -3,6 +3,7 @@ package com.serwylo.lexica.api;
 import com.serwylo.lexica.game.CharProbGenerator
 import com.serwylo.lexica.lang.EnglishUS
 import com.serwylo.lexica.lang.Language
+import com.serwylo.lexica.trie.util.SourceDictionary
 import kotlinx.serialization.Serializable
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
@@ -116,7 +117,7 @@ fun outputLanguageMetadata(language: Language, metadata: LanguageMetadata, dictD
     paths.add(writeApiFile(lettersFile.readText(), File(path, "probabilities.txt"), outputDir))
 
     val dictionaryFile = File(dictDir, language.dictionaryFileName)
-    val dictionaryWords = dictionaryFile.readLines()
+    val dictionaryWords = SourceDictionary.read(dictionaryFile).wordList(language).toList()
     val dictionaryJson = Json.encodeToString(dictionaryWords)
     paths.add(writeApiFile(dictionaryJson, File(path, "dictionary.json"), outputDir))
     paths.add(writeApiFile(dictionaryFile.readText(), File(path, "dictionary.txt"), outputDir))
@@ -33,10 +33,12 @@ import com.serwylo.lexica.R;
 import com.serwylo.lexica.Synchronizer;
 import com.serwylo.lexica.db.GameMode;
 import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Tokenizer;
 
+import net.healeys.trie.DictionaryCache;
 import net.healeys.trie.Solution;
-import net.healeys.trie.StringTrie;
 import net.healeys.trie.Trie;
+import net.healeys.trie.WordFilter;
 
 import java.io.IOException;
 import java.util.Date;
@@ -52,6 +54,12 @@ public class Game implements Synchronizer.Counter {
 
     private static final String TAG = "Game";
 
+    /**
+     * Shared by every game, so that generating several candidate boards or restoring a game after
+     * rotating the screen doesn't read the dictionary from disk each time.
+     */
+    private static DictionaryCache dictionaries;
+
     private long timeRemainingInMillis;
 
     /**
@@ -273,13 +281,31 @@ public class Game implements Synchronizer.Counter {
         initializeDictionary(context, language);
     }
 
+    private static synchronized DictionaryCache getDictionaries(Context context) {
+        if (dictionaries == null) {
+            final Context appContext = context.getApplicationContext();
+            dictionaries = new DictionaryCache((language, boardSize) -> {
+                String trieFileName = boardSize == DictionaryCache.ANY_BOARD_SIZE ? language.getTrieFileName() : language.getTrieFileName(boardSize);
+                int id = appContext.getResources().getIdentifier("raw/" + trieFileName.substring(0, trieFileName.lastIndexOf('.')), null, appContext.getPackageName());
+                if (id == 0 && boardSize != DictionaryCache.ANY_BOARD_SIZE) {
+                    // Only built when it is smaller than the main dictionary (see TrieBuilder).
+                    return null;
+                }
+
+                return appContext.getResources().openRawResource(id);
+            }, Runtime.getRuntime().maxMemory() / 4);
+        }
+
+        return dictionaries;
+    }
+
     private void initializeDictionary(Context context, Language language) {
         try {
-            String trieFileName = language.getTrieFileName();
-            int id = context.getResources().getIdentifier("raw/" + trieFileName.substring(0, trieFileName.lastIndexOf('.')), null, context.getPackageName());
-            Trie dict = new StringTrie.Deserializer().deserialize(context.getResources().openRawResource(id), board, language);
+            DictionaryCache cache = getDictionaries(context);
+            Trie dict = cache.forBoard(language, board);
+            Log.d(TAG, cache.toString());
 
-            solutions = dict.solver(board, w -> w.length() >= gameMode.getMinWordLength());
+            solutions = dict.solver(board, board.getTileCodes(language.getAlphabet()), new WordFilter.MinLength(gameMode.getMinWordLength()));
 
             Log.d(TAG, "Initializing " + language.getName() + " dictionary");
             for (String word : solutions.keySet()) {
@@ -422,15 +448,12 @@ public class Game implements Synchronizer.Counter {
         if (GameMode.SCORE_WORDS.equals(gameMode.getScoreType())) {
             return WORD_POINTS[word.length()];
         } else {
+            Tokenizer tokenizer = language.getTokenizer();
+            String lowerCaseWord = word.toLowerCase();
             int score = 0;
-            for (int i = 0; i < word.length(); i++) {
-                // Manually iterating over characters of a word here, so we are responsible for ensuring that any
-                // mandatory suffix is applied for each letter.
-                String letter = language.applyMandatorySuffix(String.valueOf(word.charAt(i)).toLowerCase());
-                score += language.getPointsForLetter(letter);
-
-                // Advance the counter so that we can skip over any suffixes.
-                i += letter.length() - 1;
+            for (int i = 0; i < lowerCaseWord.length(); i += tokenizer.tileLength(lowerCaseWord, i)) {
+                int tileCode = language.tileCodeAt(lowerCaseWord, i);
+                score += tileCode < 0 ? language.getPointsForLetter(tokenizer.tileAt(lowerCaseWord, i)) : language.getPointsForTile(tileCode);
             }
             return score;
         }
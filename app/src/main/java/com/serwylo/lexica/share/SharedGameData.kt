@@ -160,15 +160,13 @@ data class SharedGameData(
             val decodedBoard = if (minSupportedLexicaVersion < VERSION_COMMAS_INTRODUCED) {
                 // Old versions didn't place underscores between letters, so multi-letter cells were
                 // ambiguous and can't be reliably parsed. To attempt to deal with this decode
-                // each letter in turn and check applyMandatorySuffix to identify how many
-                // characters should be present
-                var inArray = board.toCharArray().toList()
+                // each letter in turn and let the tokenizer identify how many characters should
+                // be present
                 val outArray = ArrayList<String>()
-                while (inArray.isNotEmpty()) {
-                    val firstChar = inArray[0]
-                    val withSuffix = language.applyMandatorySuffix(firstChar.toString())
-                    outArray.add(withSuffix)
-                    inArray = inArray.drop(withSuffix.length)
+                var position = 0
+                while (position < board.length) {
+                    outArray.add(language.tokenizer.tileAt(board, position))
+                    position += language.tokenizer.tileLength(board, position)
                 }
                 outArray
             } else {
@@ -148,7 +148,7 @@ public class FullUsGbTrieTest extends TrieTest {
         testUsDictionary(new StringTrie(new EnglishUS()));
     }
 
-    private void testUsDictionary(Trie trie) {
+    private void testUsDictionary(StringTrie trie) {
         Language language = new EnglishUS();
         String[] words = readDictionary(language);
         assertEquals(77517, words.length);
@@ -163,7 +163,7 @@ public class FullUsGbTrieTest extends TrieTest {
         testGbDictionary(new StringTrie(new EnglishGB()));
     }
 
-    private void testGbDictionary(Trie trie) {
+    private void testGbDictionary(StringTrie trie) {
         Language language = new EnglishGB();
         String[] words = readDictionary(language);
         assertEquals(77097, words.length);
@@ -88,7 +88,7 @@ public class TransitionMapTest {
         assertArrayEquals("Word: " + expectedSolution.getWord(), expectedSolution.getPositions(), actualSolution.getPositions());
     }
 
-    private static byte[] serializedUsTrie(Trie trie) {
+    private static byte[] serializedUsTrie(StringTrie trie) {
         Language language = new EnglishUS();
         TrieTest.addWords(trie, FullUsGbTrieTest.readDictionary(language));
         return TrieTest.serialize(trie);
@@ -1,5 +1,6 @@
 package com.serwylo.lexica;
 
+import net.healeys.trie.StringTrie;
 import net.healeys.trie.Trie;
 
 import org.junit.Assert;
@@ -28,7 +29,7 @@ public abstract class TrieTest {
         }
     }
 
-    public static void addWords(Trie trie, String[] words) {
+    public static void addWords(StringTrie trie, String[] words) {
         for (String word : words) {
             trie.addWord(word);
         }
@@ -2,6 +2,8 @@ package com.serwylo.lexica.language
 
 import com.serwylo.lexica.game.CharProbGenerator
 import com.serwylo.lexica.lang.Language
+import com.serwylo.lexica.trie.util.SourceDictionary
+import net.healeys.trie.StringTrie
 import java.io.File
 
 object FrequencyCounter {
@@ -9,12 +11,17 @@ object FrequencyCounter {
     fun run(trieDir: File, dictDir: File, outputDir: File, language: Language) {
 
         val dictionaryFile = File(dictDir, language.dictionaryFileName)
-        val words = dictionaryFile.readLines().filterNot { it.matches("^(\\s*|#.*)$".toRegex()) }
+        val words = SourceDictionary.read(dictionaryFile).wordList(language).toList()
 
         val charsInDict = countCharsInDict(words)
         val probsString = renderProbs(charsInDict)
         val charProbGenerator = createCharProbGenerator(probsString, language)
-        val fitness = Fitness.calc(trieDir, charProbGenerator, language)
+
+        // Built from the whole dictionary, because the trie in trieDir only holds words which the
+        // current letter distribution can deal.
+        val dictionary = StringTrie(language)
+        words.forEach { dictionary.addWord(it) }
+        val fitness = Fitness.calc(dictionary, charProbGenerator)
 
         val output = """
 #
@@ -27,12 +27,6 @@ public class LanguageAnalysisApp {
             return;
         }
 
-        final File trieFile = new File(trieDir, language.getTrieFileName());
-        if (!trieFile.exists()) {
-            printFileNotFound(trieFile);
-            return;
-        }
-
         final File dictDir = new File(args[2]);
         if (!dictDir.exists()) {
             printFileNotFound(dictDir);
@@ -58,7 +52,7 @@ public class LanguageAnalysisApp {
         System.out.println("Usage:");
         System.out.println("    java -jar language-analysis.jar language path/to/dictionary/ path/to/log/output/");
         System.out.println("        language                  en_US|en_GB|de_DE");
-        System.out.println("        path/to/trie/dir/         Directory where words_en_us.bin et al. live.");
+        System.out.println("        path/to/trie/dir/         Directory where letters_en_us.txt et al. are written.");
         System.out.println("        path/to/dictionary/dir/   Directory where dictionary.en_US.txt et al. live.");
         System.out.println("        path/to/log/output/       Output directories where each attempted analysis is stored.");
     }
@@ -17,6 +17,7 @@
 
 package com.serwylo.lexica.game;
 
+import net.healeys.trie.Alphabet;
 import net.healeys.trie.TransitionMap;
 
 import java.util.List;
@@ -25,6 +26,12 @@ public abstract class Board implements TransitionMap {
     private String[] board;
     private Integer[] positions;
 
+    /**
+     * The result of {@link #getTileCodes(Alphabet)}, until the board is rotated.
+     */
+    private Alphabet tileCodesAlphabet;
+    private int[] tileCodes;
+
     public Board(String[] b) {
         board = b;
         positions = new Integer[getSize()];
@@ -51,6 +58,18 @@ public abstract class Board implements TransitionMap {
         return board[i];
     }
 
+    /**
+     * The code of each cell in {@param alphabet} (usually {@link com.serwylo.lexica.lang.Language#getAlphabet()}),
+     * or -1 for cells which aren't in it. Worked out once and then shared, so don't modify it.
+     */
+    public synchronized int[] getTileCodes(Alphabet alphabet) {
+        if (tileCodes == null || tileCodesAlphabet != alphabet) {
+            tileCodes = alphabet.codesOf(this);
+            tileCodesAlphabet = alphabet;
+        }
+        return tileCodes;
+    }
+
     public synchronized String toString() {
         StringBuilder sb = new StringBuilder();
         boolean first = true;
@@ -79,6 +98,7 @@ public abstract class Board implements TransitionMap {
 
         board = newbrd;
         positions = newpos;
+        tileCodes = null;
     }
 
     public abstract int getWidth();
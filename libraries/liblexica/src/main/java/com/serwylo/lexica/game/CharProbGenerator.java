@@ -22,6 +22,7 @@ import com.serwylo.lexica.lang.Language;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,7 +38,8 @@ public class CharProbGenerator {
 
     public CharProbGenerator(InputStream letterSource, Language language) {
 
-        BufferedReader br = new BufferedReader(new InputStreamReader(letterSource));
+        // Android always defaults to UTF-8, but desktop JVMs (e.g. when building tries) may not.
+        BufferedReader br = new BufferedReader(new InputStreamReader(letterSource, Charset.forName("UTF-8")));
 
         charProbs = new ArrayList<>();
 
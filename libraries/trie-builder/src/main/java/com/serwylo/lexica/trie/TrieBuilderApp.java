@@ -1,60 +1,792 @@
 package com.serwylo.lexica.trie;
 
+import com.serwylo.lexica.game.CharProbGenerator;
 import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.trie.util.Folding;
+import com.serwylo.lexica.trie.util.SourceDictionary;
 import com.serwylo.lexica.trie.util.TrieBuilder;
 
+import net.healeys.trie.TrieHeader;
+import net.healeys.trie.TrieSetOperation;
+
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public class TrieBuilderApp {
 
-    public static void main(String[] args) throws IOException {
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String BASE_OPTION = "--base=";
+    private static final String LETTERS_OPTION = "--letters=";
+    private static final String PROFILE_OPTION = "--profile";
+    private static final String LINT_OPTION = "--lint";
+    private static final String LANGUAGES_OPTION = "--languages=";
+    private static final String VARIANT_OPTION = "--variant=";
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String MAX_WORDS_IN_MEMORY_OPTION = "--max-words-in-memory=";
+    private static final String COMBINE_OPTION = "--combine=";
+
+    /**
+     * Build tries in memory, rather than with {@link TrieBuilder#runOutOfCore}.
+     */
+    private static final int IN_MEMORY = 0;
+
+    /**
+     * Passed to {@link #LANGUAGES_OPTION} to build every language in
+     * {@link Language#getAllLanguages()}.
+     */
+    private static final String ALL_LANGUAGES = "all";
+
+    /**
+     * Roughly how much heap it takes to build a trie, per byte of dictionary. Measured building
+     * pl (which needs 160-200MB for a 4MB dictionary) and en_US (40-60MB for 0.6MB), with some
+     * headroom.
+     */
+    private static final int HEAP_BYTES_PER_DICTIONARY_BYTE = 64;
+
+    /**
+     * Every board size offered by a GameMode, in cells.
+     */
+    private static final int[] BOARD_SIZES = new int[]{16, 25, 36};
+
+    public static void main(String[] allArgs) throws IOException {
+        TrieBuilder.Format format = TrieBuilder.Format.STRING;
+        String baseName = null;
+        File lettersDir = null;
+        boolean profile = false;
+        boolean lint = false;
+        String languageNames = null;
+        List<String> variants = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxWordsInMemory = IN_MEMORY;
+        TrieSetOperation combine = null;
+        List<String> argsList = new ArrayList<>(allArgs.length);
+        for (String arg : allArgs) {
+            if (arg.equals(PROFILE_OPTION)) {
+                profile = true;
+            } else if (arg.equals(LINT_OPTION)) {
+                lint = true;
+            } else if (arg.startsWith(LANGUAGES_OPTION)) {
+                languageNames = arg.substring(LANGUAGES_OPTION.length());
+            } else if (arg.startsWith(VARIANT_OPTION)) {
+                variants.add(arg.substring(VARIANT_OPTION.length()));
+            } else if (arg.startsWith(THREADS_OPTION)) {
+                try {
+                    threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+
+                if (threads < 1) {
+                    System.out.println("Invalid number of threads: " + arg.substring(THREADS_OPTION.length()));
+                    printUsage();
+                    return;
+                }
+            } else if (arg.startsWith(MAX_WORDS_IN_MEMORY_OPTION)) {
+                try {
+                    maxWordsInMemory = Integer.parseInt(arg.substring(MAX_WORDS_IN_MEMORY_OPTION.length()));
+                } catch (NumberFormatException e) {
+                    maxWordsInMemory = IN_MEMORY;
+                }
+
+                if (maxWordsInMemory < 1) {
+                    System.out.println("Invalid number of words: " + arg.substring(MAX_WORDS_IN_MEMORY_OPTION.length()));
+                    printUsage();
+                    return;
+                }
+            } else if (arg.startsWith(COMBINE_OPTION)) {
+                try {
+                    combine = TrieSetOperation.valueOf(arg.substring(COMBINE_OPTION.length()).toUpperCase(Locale.ENGLISH));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown set operation: " + arg.substring(COMBINE_OPTION.length()));
+                    printUsage();
+                    return;
+                }
+            } else if (arg.startsWith(BASE_OPTION)) {
+                baseName = arg.substring(BASE_OPTION.length());
+            } else if (arg.startsWith(LETTERS_OPTION)) {
+                lettersDir = new File(arg.substring(LETTERS_OPTION.length()));
+                if (!lettersDir.exists()) {
+                    printFileNotFound(lettersDir);
+                    return;
+                }
+            } else if (arg.startsWith(FORMAT_OPTION)) {
+                try {
+                    format = TrieBuilder.Format.valueOf(arg.substring(FORMAT_OPTION.length()).toUpperCase(Locale.ENGLISH));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown trie format: " + arg.substring(FORMAT_OPTION.length()));
+                    printUsage();
+                    return;
+                }
+            } else {
+                argsList.add(arg);
+            }
+        }
+
+        String[] args = argsList.toArray(new String[0]);
+        if (profile) {
+            profile(args, lettersDir);
+            return;
+        }
+
+        if (lint) {
+            lint(args, lettersDir, threads);
+            return;
+        }
+
+        if (combine != null) {
+            combine(args, combine);
+            return;
+        }
+
+        if (maxWordsInMemory != IN_MEMORY && format != TrieBuilder.Format.STRING) {
+            System.out.println(MAX_WORDS_IN_MEMORY_OPTION + " can only be used with the string format.");
+            printUsage();
+            return;
+        }
+
+        if (languageNames != null) {
+            if (baseName != null) {
+                System.out.println(BASE_OPTION + " only applies to a single language, use " + VARIANT_OPTION + " with " + LANGUAGES_OPTION);
+                printUsage();
+                return;
+            }
+
+            buildLanguages(args, languageNames, variants, lettersDir, format, threads, maxWordsInMemory);
+            return;
+        }
+
         if (args.length < 3) {
             printUsage();
             return;
         }
 
         final Language language;
+        final Language baseLanguage;
         try {
             language = Language.from(args[0]);
+            baseLanguage = baseName == null ? null : Language.from(baseName);
         } catch (Language.NotFound e) {
             System.out.println(e.getMessage());
             return;
         }
 
-        final File dictDir = new File(args[1]);
-        if (!dictDir.exists()) {
-            printFileNotFound(dictDir);
+        if (baseLanguage != null && format != TrieBuilder.Format.STRING) {
+            System.out.println(BASE_OPTION + " can only be used with the string format.");
+            printUsage();
+            return;
+        }
+
+        File dictDir = new File(args[1]);
+        File[] outputDirs = existingDirs(args, 1);
+        if (outputDirs == null) {
+            return;
+        }
+
+        try {
+            build(language, baseLanguage, new Dictionaries(dictDir), outputDirs, lettersDir, format, maxWordsInMemory);
+        } catch (FileNotFoundException e) {
+            System.out.println(e.getMessage());
+            printUsage();
+        }
+    }
+
+    /**
+     * @param args          The dictionary directory followed by the output directories.
+     * @param languageNames Comma separated, or {@link #ALL_LANGUAGES}.
+     * @param variants      Each in the form "LANGUAGE:BASE", for languages to build as the
+     *                      differences from another (see {@link #BASE_OPTION}).
+     */
+    private static void buildLanguages(String[] args, String languageNames, List<String> variants, File lettersDir, TrieBuilder.Format format, int threads, int maxWordsInMemory) throws IOException {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+
+        List<Language> languages = new ArrayList<>();
+        Map<Language, Language> bases = new HashMap<>();
+        try {
+            if (languageNames.equals(ALL_LANGUAGES)) {
+                for (String name : new TreeSet<>(Language.getAllLanguages().keySet())) {
+                    languages.add(Language.getAllLanguages().get(name));
+                }
+            } else {
+                for (String name : languageNames.split(",")) {
+                    languages.add(Language.from(name.trim()));
+                }
+            }
+
+            for (String variant : variants) {
+                String[] names = variant.split(":");
+                if (names.length != 2) {
+                    System.out.println("Expected " + VARIANT_OPTION + "LANGUAGE:BASE, not " + VARIANT_OPTION + variant);
+                    printUsage();
+                    return;
+                }
+                bases.put(Language.from(names[0]), Language.from(names[1]));
+            }
+        } catch (Language.NotFound e) {
+            System.out.println(e.getMessage());
             return;
         }
 
-        final File dictFile = new File(dictDir, language.getDictionaryFileName());
-        if (!dictFile.exists()) {
-            printFileNotFound(dictFile);
+        File[] outputDirs = existingDirs(args, 0);
+        if (outputDirs == null) {
             return;
         }
 
-        int outputFileCount = args.length - 2;
-        final File[] outputTrieFiles = new File[outputFileCount];
-        for (int i = 0; i < outputFileCount; i++) {
-            File file = new File(args[i + 2]);
+        new ParallelBuild(new File(args[0]), outputDirs, lettersDir, format, threads, maxWordsInMemory).run(languages, bases);
+    }
+
+    /**
+     * Builds many languages in one JVM, so that start up and JIT warm up are only paid for once,
+     * using a fixed pool of workers. Languages are only started while there is enough heap left
+     * for them (see {@link #HEAP_BYTES_PER_DICTIONARY_BYTE}), so that a few large dictionaries
+     * being built at the same time can't run out of memory.
+     */
+    private static class ParallelBuild {
+
+        private final Dictionaries dictionaries;
+        private final File[] outputDirs;
+        private final File lettersDir;
+        private final TrieBuilder.Format format;
+        private final int threads;
+        private final int maxWordsInMemory;
+
+        /**
+         * One permit per MB of heap which may be used by builds at the same time.
+         */
+        private final Semaphore heapBudget;
+        private final int heapBudgetMb;
+
+        ParallelBuild(File dictDir, File[] outputDirs, File lettersDir, TrieBuilder.Format format, int threads, int maxWordsInMemory) {
+            this.dictionaries = new Dictionaries(dictDir);
+            this.outputDirs = outputDirs;
+            this.lettersDir = lettersDir;
+            this.format = format;
+            this.threads = threads;
+            this.maxWordsInMemory = maxWordsInMemory;
+
+            // The rest is left for the JVM and for garbage which has yet to be collected.
+            heapBudgetMb = (int) Math.max(1, Runtime.getRuntime().maxMemory() / 4 * 3 >> 20);
+            heapBudget = new Semaphore(heapBudgetMb, true);
+        }
+
+        /**
+         * Languages whose dictionary (or whose base's dictionary) doesn't exist are skipped, as
+         * some languages don't have their dictionary in the repository.
+         *
+         * @param bases Languages to build as the differences from another, mapped to that other.
+         * These, and the languages they are based on, are always built in the string format,
+         * because that is the only format {@link net.healeys.trie.VariantTrie} can be read against.
+         * @throws IOException Once every language has been attempted, if any of them failed.
+         */
+        void run(List<Language> allLanguages, final Map<Language, Language> bases) throws IOException {
+            List<Language> languages = new ArrayList<>();
+            for (Language language : allLanguages) {
+                File missing = missingDictionary(language, bases.get(language));
+                if (missing == null) {
+                    languages.add(language);
+                } else {
+                    System.err.println("Skipping " + language.getName() + ", " + missing + " does not exist.");
+                }
+            }
+
+            final Map<Language, Integer> heapMb = new HashMap<>();
+            for (Language language : languages) {
+                dictionaries.expect(language);
+                long dictBytes = dictionaries.fileOf(language).length();
+                Language base = bases.get(language);
+                if (base != null) {
+                    dictionaries.expect(base);
+                    dictBytes += dictionaries.fileOf(base).length();
+                }
+                int mb = (int) Math.max(1, dictBytes * HEAP_BYTES_PER_DICTIONARY_BYTE >> 20);
+
+                // A language which needs more than the whole budget is built once nothing else is.
+                heapMb.put(language, Math.min(mb, heapBudgetMb));
+            }
+
+            // Largest first, so that the last language to finish isn't a large one which started
+            // late, leaving every other worker idle.
+            List<Language> order = new ArrayList<>(languages);
+            Collections.sort(order, (a, b) -> Integer.compare(heapMb.get(b), heapMb.get(a)));
+
+            System.out.println("Building " + languages.size() + " languages on " + threads + " threads, with " + heapBudgetMb + "MB of heap between them");
+
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            Map<Language, Future<?>> builds = new LinkedHashMap<>();
+            try {
+                for (final Language language : order) {
+                    builds.put(language, workers.submit(() -> {
+                        int mb = heapMb.get(language);
+                        heapBudget.acquire(mb);
+                        Language base = bases.get(language);
+                        TrieBuilder.Format languageFormat = base != null || bases.containsValue(language) ? TrieBuilder.Format.STRING : format;
+                        try {
+                            build(language, base, dictionaries, outputDirs, lettersDir, languageFormat, maxWordsInMemory);
+                        } finally {
+                            dictionaries.release(language);
+                            if (base != null) {
+                                dictionaries.release(base);
+                            }
+                            heapBudget.release(mb);
+                        }
+                        return null;
+                    }));
+                }
+            } finally {
+                workers.shutdown();
+            }
+
+            List<String> failed = new ArrayList<>();
+            for (Map.Entry<Language, Future<?>> build : builds.entrySet()) {
+                try {
+                    build.getValue().get();
+                } catch (ExecutionException e) {
+                    System.err.println(build.getKey().getName() + ": " + e.getCause());
+                    failed.add(build.getKey().getName());
+                } catch (InterruptedException e) {
+                    workers.shutdownNow();
+                    throw new IOException("Interrupted while building " + build.getKey().getName(), e);
+                }
+            }
+
+            if (!failed.isEmpty()) {
+                throw new IOException("Unable to build " + failed.size() + " of " + languages.size() + " languages: " + failed);
+            }
+        }
+
+        /**
+         * @return Null if the dictionaries needed to build {@param language} all exist.
+         */
+        private File missingDictionary(Language language, Language base) {
+            for (Language needed : base == null ? new Language[]{language} : new Language[]{language, base}) {
+                File dictFile = dictionaries.fileOf(needed);
+                if (!dictFile.exists()) {
+                    return dictFile;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads each dictionary only once, however many languages are built from it: a variant and its
+     * base, or languages whose dictionaries are folded from the same one (see {@link Folding}).
+     * A dictionary is forgotten once every language {@link #expect(Language)}ed to need it has
+     * been {@link #release(Language)}d.
+     */
+    private static class Dictionaries {
+
+        private final File dictDir;
+        private final Map<File, SourceDictionary> read = new HashMap<>();
+        private final Map<File, Integer> pending = new HashMap<>();
+
+        Dictionaries(File dictDir) {
+            this.dictDir = dictDir;
+        }
+
+        File fileOf(Language language) {
+            Folding folding = Folding.of(language);
+            return new File(dictDir, folding == null ? language.getDictionaryFileName() : folding.getSourceDictionaryFileName());
+        }
+
+        synchronized void expect(Language language) {
+            File file = fileOf(language);
+            Integer count = pending.get(file);
+            pending.put(file, count == null ? 1 : count + 1);
+        }
+
+        synchronized void release(Language language) {
+            File file = fileOf(language);
+            Integer count = pending.get(file);
+            if (count == null) {
+                return;
+            }
+
+            if (count > 1) {
+                pending.put(file, count - 1);
+            } else {
+                pending.remove(file);
+                read.remove(file);
+            }
+        }
+
+        /**
+         * The words of {@param language}, folded from another language's dictionary if need be.
+         */
+        synchronized SourceDictionary get(Language language) throws IOException {
+            File file = fileOf(language);
+            if (!file.exists()) {
+                throw new FileNotFoundException("Input file " + file + " does not exist.");
+            }
+
+            SourceDictionary dictionary = read.get(file);
+            if (dictionary == null) {
+                dictionary = SourceDictionary.read(file);
+                read.put(file, dictionary);
+            }
+
+            Folding folding = Folding.of(language);
+            return folding == null ? dictionary : dictionary.fold(folding);
+        }
+    }
+
+    /**
+     * Builds the trie(s) for {@param language} in each of {@param outputDirs}.
+     *
+     * @param baseLanguage Null to build the whole dictionary, otherwise only the differences from
+     *                     this language's dictionary are written.
+     * @param lettersDir   Null to include every word, otherwise see {@link #LETTERS_OPTION}.
+     * @param maxWordsInMemory {@link #IN_MEMORY}, otherwise see {@link #MAX_WORDS_IN_MEMORY_OPTION}.
+     *                     Variants and folded languages are always built in memory, as they are
+     *                     only ever built from dictionaries small enough to ship in the app.
+     */
+    private static void build(Language language, Language baseLanguage, Dictionaries dictionaries, File[] outputDirs, File lettersDir, TrieBuilder.Format format, int maxWordsInMemory) throws IOException {
+        final File[] outputTrieFiles = new File[outputDirs.length];
+        for (int i = 0; i < outputDirs.length; i++) {
+            outputTrieFiles[i] = new File(outputDirs[i], language.getTrieFileName());
+        }
+
+        boolean outOfCore = maxWordsInMemory != IN_MEMORY && baseLanguage == null && Folding.of(language) == null;
+        if (outOfCore) {
+            File dictFile = dictionaries.fileOf(language);
+            if (!dictFile.exists()) {
+                throw new FileNotFoundException("Input file " + dictFile + " does not exist.");
+            }
+
+            if (lettersDir != null) {
+                printCounts(language, TrieBuilder.runForBoardSizesOutOfCore(language, dictFile, outputDirs, readMaxTileCopies(lettersDir, language), BOARD_SIZES, maxWordsInMemory));
+            } else if (!TrieBuilder.runOutOfCore(language, dictFile, outputTrieFiles, maxWordsInMemory)) {
+                printUpToDate(language);
+            }
+            return;
+        }
+
+        SourceDictionary dictionary = dictionaries.get(language);
+        if (baseLanguage != null) {
+            SourceDictionary baseDictionary = dictionaries.get(baseLanguage);
+
+            // Board size specific tries are only built for base languages, so variants are
+            // limited by the largest board, as is the main trie of their base.
+            int largestBoard = BOARD_SIZES[BOARD_SIZES.length - 1];
+            TrieBuilder.TileLimits limits = lettersDir == null ? null : new TrieBuilder.TileLimits(language, readMaxTileCopies(lettersDir, language), largestBoard);
+            TrieBuilder.TileLimits baseLimits = lettersDir == null ? null : new TrieBuilder.TileLimits(baseLanguage, readMaxTileCopies(lettersDir, baseLanguage), largestBoard);
+            TrieBuilder.VariantSizes sizes = TrieBuilder.runVariant(language, dictionary, limits, baseLanguage, baseDictionary, baseLimits, outputTrieFiles);
+            if (sizes == null) {
+                printUpToDate(language);
+            } else {
+                System.out.println(language.getName() + ": " + (sizes.isDelta() ? "delta against " + baseLanguage.getName() : "full trie") + " (" + sizes.deltaBytes + " bytes as a delta, " + sizes.fullBytes + " bytes in full)");
+            }
+        } else if (lettersDir != null) {
+            printCounts(language, TrieBuilder.runForBoardSizes(language, dictionary, outputDirs, format, readMaxTileCopies(lettersDir, language), BOARD_SIZES));
+        } else if (!TrieBuilder.run(language, dictionary, outputTrieFiles, format)) {
+            printUpToDate(language);
+        }
+    }
+
+    /**
+     * @param counts Null if the tries were already up to date.
+     */
+    private static void printCounts(Language language, TrieBuilder.BoardSizeCounts counts) {
+        if (counts == null) {
+            printUpToDate(language);
+            return;
+        }
+
+        int largestIndex = counts.boardSizes.length - 1;
+        System.out.println(language.getName() + ": " + counts.words[largestIndex] + " of " + counts.allWords + " words can be dealt on a board of " + counts.boardSizes[largestIndex] + " cells");
+        for (int i = 0; i < largestIndex; i++) {
+            if (counts.hasOwnTrie(i)) {
+                System.out.println(language.getName() + ": " + counts.words[i] + " words can be dealt on a board of " + counts.boardSizes[i] + " cells");
+            }
+        }
+    }
+
+    private static void printUpToDate(Language language) {
+        System.out.println(language.getName() + ": up to date, skipping");
+    }
+
+    /**
+     * @param dictDirIndex Where the dictionary directory is in {@param args}. Everything after it is
+     *                     an output directory.
+     * @return Null if the dictionary directory or any of the output directories doesn't exist.
+     */
+    private static File[] existingDirs(String[] args, int dictDirIndex) {
+        File dictDir = new File(args[dictDirIndex]);
+        if (!dictDir.exists()) {
+            printFileNotFound(dictDir);
+            return null;
+        }
+
+        File[] outputDirs = new File[args.length - dictDirIndex - 1];
+        for (int i = 0; i < outputDirs.length; i++) {
+            File file = new File(args[dictDirIndex + 1 + i]);
             if (!file.exists()) {
                 printFileNotFound(file);
+                return null;
+            }
+
+            outputDirs[i] = file;
+        }
+
+        return outputDirs;
+    }
+
+    /**
+     * Prints a line of JSON describing the trie for each language (see
+     * {@link TrieBuilder#profile(Language, SourceDictionary, TrieBuilder.TileLimits)}), or for every language
+     * if none are given. Anything other than the report goes to stderr.
+     *
+     * @param args The dictionary directory, followed by any languages to profile.
+     */
+    private static void profile(String[] args, File lettersDir) throws IOException {
+        if (args.length < 1) {
+            printUsage();
+            return;
+        }
+
+        final File dictDir = new File(args[0]);
+        if (!dictDir.exists()) {
+            System.err.println("Input file " + dictDir + " does not exist.");
+            return;
+        }
+
+        List<Language> languages = new ArrayList<>();
+        if (args.length == 1) {
+            for (String name : new TreeSet<>(Language.getAllLanguages().keySet())) {
+                languages.add(Language.getAllLanguages().get(name));
+            }
+        } else {
+            for (int i = 1; i < args.length; i++) {
+                try {
+                    languages.add(Language.from(args[i]));
+                } catch (Language.NotFound e) {
+                    System.err.println(e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        int largestBoard = BOARD_SIZES[BOARD_SIZES.length - 1];
+        Dictionaries dictionaries = new Dictionaries(dictDir);
+        for (Language language : languages) {
+            File dictFile = dictionaries.fileOf(language);
+            if (!dictFile.exists()) {
+                System.err.println("Skipping " + language.getName() + ", " + dictFile + " does not exist.");
+                continue;
+            }
+
+            TrieBuilder.TileLimits limits = lettersDir == null ? null : new TrieBuilder.TileLimits(language, readMaxTileCopies(lettersDir, language), largestBoard);
+            System.out.println(TrieBuilder.profile(language, dictionaries.get(language), limits));
+        }
+    }
+
+    /**
+     * Writes the words of two tries combined by {@param operation} (see {@link TrieSetOperation})
+     * as a new trie, or lists them one per line if the output is "-", e.g. to see which words
+     * en_US has that en_GB doesn't.
+     *
+     * @param args The language, the two tries, and where to write the result.
+     */
+    private static void combine(String[] args, TrieSetOperation operation) throws IOException {
+        if (args.length != 4) {
+            printUsage();
+            return;
+        }
+
+        Language language;
+        try {
+            language = Language.from(args[0]);
+        } catch (Language.NotFound e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        File first = new File(args[1]);
+        File second = new File(args[2]);
+        for (File trie : new File[]{first, second}) {
+            if (!trie.exists()) {
+                System.err.println("Input file " + trie + " does not exist.");
                 return;
             }
+        }
+
+        if (args[3].equals("-")) {
+            final Writer output = new BufferedWriter(new OutputStreamWriter(System.out, Charset.forName("UTF-8")));
+            try (InputStream a = new FileInputStream(first); InputStream b = new FileInputStream(second)) {
+                operation.visit(a, b, word -> {
+                    output.write(word.word());
+                    output.write('\n');
+                });
+            }
+            output.flush();
+            return;
+        }
+
+        File outputFile = new File(args[3]);
+        try (OutputStream output = new FileOutputStream(outputFile)) {
+            int words = operation.write(language, first, second, output, TrieHeader.NO_SOURCE_HASH);
+            System.out.println("Wrote " + words + " words to " + outputFile);
+        }
+    }
+
+    /**
+     * Writes a report of the words in each language's dictionary which can never be dealt (see
+     * {@link TrieBuilder#lint(Language, SourceDictionary, TrieBuilder.TileLimits, Writer)}) to
+     * lint_LANGUAGE.txt, for every language if none are given. Languages are checked
+     * {@param threads} at a time.
+     *
+     * @param args The dictionary directory and the report directory, followed by any languages to
+     *             check.
+     */
+    private static void lint(String[] args, File lettersDir, int threads) throws IOException {
+        if (args.length < 2 || lettersDir == null) {
+            printUsage();
+            return;
+        }
+
+        List<Language> languages = new ArrayList<>();
+        if (args.length == 2) {
+            for (String name : new TreeSet<>(Language.getAllLanguages().keySet())) {
+                languages.add(Language.getAllLanguages().get(name));
+            }
+        } else {
+            for (int i = 2; i < args.length; i++) {
+                try {
+                    languages.add(Language.from(args[i]));
+                } catch (Language.NotFound e) {
+                    System.err.println(e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        File[] reportDirs = existingDirs(args, 0);
+        if (reportDirs == null) {
+            return;
+        }
+
+        final File reportDir = reportDirs[0];
+        final Dictionaries dictionaries = new Dictionaries(new File(args[0]));
+        final int largestBoard = BOARD_SIZES[BOARD_SIZES.length - 1];
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Map<Language, Future<?>> checks = new LinkedHashMap<>();
+        try {
+            for (final Language language : languages) {
+                final File dictFile = dictionaries.fileOf(language);
+                if (!dictFile.exists()) {
+                    System.err.println("Skipping " + language.getName() + ", " + dictFile + " does not exist.");
+                    continue;
+                }
+
+                dictionaries.expect(language);
+                checks.put(language, workers.submit(() -> {
+                    try {
+                        TrieBuilder.TileLimits limits = new TrieBuilder.TileLimits(language, readMaxTileCopies(lettersDir, language), largestBoard);
+                        File reportFile = new File(reportDir, "lint_" + language.getName() + ".txt");
+                        int ruledOut;
+                        try (Writer report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), Charset.forName("UTF-8")))) {
+                            ruledOut = TrieBuilder.lint(language, dictionaries.get(language), limits, report);
+                        }
+                        System.out.println(language.getName() + ": " + ruledOut + " words can never be dealt, see " + reportFile);
+                    } finally {
+                        dictionaries.release(language);
+                    }
+                    return null;
+                }));
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<Language, Future<?>> check : checks.entrySet()) {
+            try {
+                check.getValue().get();
+            } catch (ExecutionException e) {
+                System.err.println(check.getKey().getName() + ": " + e.getCause());
+                failed.add(check.getKey().getName());
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                throw new IOException("Interrupted while checking " + check.getKey().getName(), e);
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            throw new IOException("Unable to check " + failed.size() + " of " + checks.size() + " languages: " + failed);
+        }
+    }
 
-            outputTrieFiles[i] = new File(file, language.getTrieFileName());
+    /**
+     * Each time a tile is dealt, {@link CharProbGenerator} moves on to the next probability for
+     * that tile. Once it runs out (or reaches a zero), no more copies can be dealt.
+     */
+    private static Map<String, Integer> readMaxTileCopies(File lettersDir, Language language) throws IOException {
+        Map<String, List<Integer>> distribution;
+        try (InputStream stream = new FileInputStream(new File(lettersDir, language.getLetterDistributionFileName()))) {
+            distribution = new CharProbGenerator(stream, language).getDistribution();
         }
 
-        TrieBuilder.run(language, dictFile, outputTrieFiles);
+        Map<String, Integer> maxCopies = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : distribution.entrySet()) {
+            int copies = 0;
+            while (copies < entry.getValue().size() && entry.getValue().get(copies) > 0) {
+                copies++;
+            }
+            maxCopies.put(entry.getKey(), copies);
+        }
+        return maxCopies;
     }
 
     private static void printUsage() {
         System.out.println("Usage:");
-        System.out.println("    java -jar trie-builder.jar language path/to/dictionaries/ path/to/trie/output/ ...");
+        System.out.println("    java -jar trie-builder.jar [--format=FORMAT] [--base=LANGUAGE] [--letters=path/to/letters/] [--max-words-in-memory=N] language path/to/dictionaries/ path/to/trie/output/ ...");
+        System.out.println("        --format=FORMAT           string|mapped|dawg|double_array (default: string). \"mapped\" and \"dawg\" are read by MappedTrie, \"double_array\" by DoubleArrayTrie.");
+        System.out.println("        --base=LANGUAGE           Write only the differences from this language's dictionary, read by VariantTrie.");
+        System.out.println("        --letters=path/to/letters/ Directory where letters_en_us.txt et al. live. Leaves out words which can never be dealt, and writes separate tries for board sizes which rule out more words.");
+        System.out.println("        --max-words-in-memory=N   Sort the dictionary N words at a time in temporary files, and write the trie as it is built, for dictionaries too large for the heap. Only for the string format, and not for --base.");
         System.out.println("        language                  en_US|en_GB|de_DE");
         System.out.println("        path/to/dictionaries/     Directory where dictionary.en_US.txt et al. belong.");
         System.out.println("        path/to/trie/output/ ...  Output directories where the trie of all words will get written.");
+        System.out.println("        Tries which were already built from the same dictionaries and letters are left alone. Delete them to build them again.");
+        System.out.println("");
+        System.out.println("    java -jar trie-builder.jar --languages=LANGUAGE,...|all [--variant=LANGUAGE:BASE ...] [--threads=N] [--format=FORMAT] [--letters=path/to/letters/] [--max-words-in-memory=N] path/to/dictionaries/ path/to/trie/output/ ...");
+        System.out.println("        Builds many languages at once in a single JVM, as above.");
+        System.out.println("        --variant=LANGUAGE:BASE   Build LANGUAGE as the differences from BASE (see --base). Both are built in the string format, whatever --format says.");
+        System.out.println("        --threads=N               How many languages to build at the same time (default: one per processor).");
+        System.out.println("");
+        System.out.println("    java -jar trie-builder.jar --profile [--letters=path/to/letters/] path/to/dictionaries/ [language ...]");
+        System.out.println("        Prints a line of JSON for each language (default: all of them) describing the shape and size of its trie.");
+        System.out.println("");
+        System.out.println("    java -jar trie-builder.jar --lint --letters=path/to/letters/ [--threads=N] path/to/dictionaries/ path/to/report/ [language ...]");
+        System.out.println("        Writes lint_LANGUAGE.txt for each language (default: all of them), listing the words which can never be dealt and so are left out of its trie.");
+        System.out.println("");
+        System.out.println("    java -jar trie-builder.jar --combine=union|intersection|difference language path/to/first.bin path/to/second.bin path/to/output.bin|-");
+        System.out.println("        Writes a trie of the words in either, both, or only the first of two string format tries, reading them one word at a time. \"-\" lists the words instead.");
     }
 
     private static void printFileNotFound(File file) {
@@ -1,5 +1,6 @@
 package com.serwylo.lexica.lang
 
+import net.healeys.trie.Alphabet
 import java.util.*
 
 abstract class Language {
@@ -44,6 +45,60 @@ abstract class Language {
      */
     abstract fun applyMandatorySuffix(value: String?): String
 
+    /**
+     * Splits words into tiles according to [applyMandatorySuffix]. Shared by everything which
+     * needs to, so that each character's suffix is only looked up once.
+     */
+    val tokenizer: Tokenizer by lazy { Tokenizer(this) }
+
+    /**
+     * Every tile which can be dealt in this language (i.e. those with a score), each with a dense
+     * int code from zero in tile order. Boards, tries and scoring work with these codes, and only
+     * turn them back into Strings for display.
+     */
+    val alphabet: Alphabet by lazy { Alphabet(TreeSet(letterPoints.keys)) }
+
+    /**
+     * The [Tokenizer] code of each tile in [alphabet], indexed by its [alphabet] code. Tokenizer
+     * codes sort the same way as tiles do, so this is in ascending order and can be searched.
+     */
+    private val tokenizerCodes: IntArray by lazy {
+        IntArray(alphabet.size()) { code ->
+            val tile = alphabet.tileOf(code)
+            val tokenizerCode = tokenizer.codeOf(tile)
+            require(tokenizerCode >= 0) { "Language $name scores $tile, which is not a single tile" }
+            tokenizerCode
+        }
+    }
+
+    private val tilePoints: IntArray by lazy {
+        IntArray(alphabet.size()) { code -> letterPoints.getValue(alphabet.tileOf(code)) }
+    }
+
+    /**
+     * The [alphabet] code of the tile which starts at [position] in the lower case [word], or -1
+     * if that tile is never dealt. Doesn't create any Strings.
+     */
+    fun tileCodeAt(word: CharSequence, position: Int): Int {
+        val index = Arrays.binarySearch(tokenizerCodes, tokenizer.codeAt(word, position))
+        return if (index < 0) -1 else index
+    }
+
+    /**
+     * The [Tokenizer] code of the tile with the [alphabet] code [tileCode].
+     */
+    fun getTokenizerCode(tileCode: Int): Int {
+        return tokenizerCodes[tileCode]
+    }
+
+    /**
+     * The same as [getPointsForLetter], for a tile which has already been turned into its
+     * [alphabet] code.
+     */
+    fun getPointsForTile(tileCode: Int): Int {
+        return tilePoints[tileCode]
+    }
+
     /**
      * Each "letter" tile has a score. This score distribution is unique amoung different languages,
      * so even though both German and English both have the letter "e", their score may differ
@@ -72,6 +127,16 @@ abstract class Language {
             return "words_$suffix.bin"
         }
 
+    /**
+     * The name of a trie which only contains words that can be dealt on a board with
+     * [boardSize] cells. Only built for board sizes which rule out more words than the
+     * largest board does, so may not exist. For example "words_ru_16.bin".
+     */
+    fun getTrieFileName(boardSize: Int): String {
+        val suffix = name.replace('-', '_').toLowerCase(Locale.ENGLISH)
+        return "words_${suffix}_$boardSize.bin"
+    }
+
     /**
      * The name of the letter distribution file, relative to the `assets/` directory.
      * So for example "letters_en_US.txt"
@@ -0,0 +1,164 @@
+package com.serwylo.lexica.lang;
+
+/**
+ * Splits the words of a {@link Language} into tiles. {@link Language#applyMandatorySuffix(String)}
+ * is only asked about each character the first time it is seen. After that, finding the tile at
+ * any position in a word is a table lookup which allocates nothing.
+ * <p>
+ * Each tile also has an int code: its first character shifted left by one, plus one if the tile
+ * is that character followed by its mandatory suffix (e.g. "qu" rather than "q"). As a character
+ * only ever has the one suffix, codes sort in the same order as the tiles they stand for.
+ */
+public class Tokenizer {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final Language language;
+
+    /**
+     * What {@link Language#applyMandatorySuffix(String)} makes of each character, or the
+     * character alone if it has no suffix. Indexed by the high byte of the character and then
+     * the low byte, with each page only created once a character in it has been seen.
+     * <p>
+     * Filled in without locking. Threads which race to fill in the same entry each store an equal
+     * String, and Strings are safe to publish this way, so it doesn't matter whose is kept.
+     */
+    private final String[][] tiles = new String[Character.MAX_VALUE + 1 >> PAGE_BITS][];
+
+    /**
+     * Each character as a tile of its own, including those with a suffix which isn't always there
+     * (e.g. "q" in "qi"). Laid out the same way as {@link #tiles}.
+     */
+    private final String[][] characters = new String[Character.MAX_VALUE + 1 >> PAGE_BITS][];
+
+    public Tokenizer(Language language) {
+        this.language = language;
+    }
+
+    /**
+     * How many characters of {@param word} make up the tile which starts at {@param position}.
+     */
+    public int tileLength(CharSequence word, int position) {
+        String tile = withSuffix(word.charAt(position));
+        int length = tile.length();
+        if (length == 1 || position + length > word.length()) {
+            return 1;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(position + i) != tile.charAt(i)) {
+                return 1;
+            }
+        }
+        return length;
+    }
+
+    public String tileAt(CharSequence word, int position) {
+        char character = word.charAt(position);
+        String tile = withSuffix(character);
+        if (tile.length() == 1 && tile.charAt(0) == character) {
+            // Nearly every character, so skip looking it up a second time.
+            return tile;
+        }
+        return tileLength(word, position) == 1 ? alone(character) : tile;
+    }
+
+    public int codeAt(CharSequence word, int position) {
+        int code = word.charAt(position) << 1;
+        return tileLength(word, position) == 1 ? code : code | 1;
+    }
+
+    /**
+     * The code of {@param tile} as a whole.
+     *
+     * @return -1 if {@param tile} is not exactly one tile (e.g. "qu" in a language with no
+     * suffix for "q"), in which case no word can ever be split into it.
+     */
+    public int codeOf(String tile) {
+        if (tile.isEmpty() || tileLength(tile, 0) != tile.length()) {
+            return -1;
+        }
+        return codeAt(tile, 0);
+    }
+
+    /**
+     * The tile which {@param code} (see {@link #codeAt(CharSequence, int)}) stands for.
+     */
+    public String tileOf(int code) {
+        char character = (char) (code >>> 1);
+        return (code & 1) == 0 ? alone(character) : withSuffix(character);
+    }
+
+    /**
+     * Whether {@param character} is always meant to be followed by a suffix, even though some
+     * words (e.g. "qi") don't follow it with one.
+     */
+    public boolean hasMandatorySuffix(char character) {
+        return withSuffix(character).length() > 1;
+    }
+
+    public int countTiles(CharSequence word) {
+        int count = 0;
+        for (int position = 0; position < word.length(); position += tileLength(word, position)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The code of each tile in {@param word}, in order.
+     */
+    public int[] tokenize(CharSequence word) {
+        int[] codes = new int[countTiles(word)];
+        tokenize(word, codes);
+        return codes;
+    }
+
+    /**
+     * Fills in the code of each tile in {@param word} without allocating anything.
+     *
+     * @param codes Big enough for every tile, which {@link CharSequence#length()} always is.
+     * @return How many tiles there were.
+     */
+    public int tokenize(CharSequence word, int[] codes) {
+        int count = 0;
+        int position = 0;
+        while (position < word.length()) {
+            int length = tileLength(word, position);
+            codes[count++] = length == 1 ? word.charAt(position) << 1 : word.charAt(position) << 1 | 1;
+            position += length;
+        }
+        return count;
+    }
+
+    private String withSuffix(char character) {
+        String[] page = page(tiles, character);
+        String tile = page[character & PAGE_SIZE - 1];
+        if (tile == null) {
+            tile = language.applyMandatorySuffix(alone(character));
+            page[character & PAGE_SIZE - 1] = tile;
+        }
+        return tile;
+    }
+
+    private String alone(char character) {
+        String[] page = page(characters, character);
+        String tile = page[character & PAGE_SIZE - 1];
+        if (tile == null) {
+            tile = String.valueOf(character);
+            page[character & PAGE_SIZE - 1] = tile;
+        }
+        return tile;
+    }
+
+    private static String[] page(String[][] table, char character) {
+        String[] page = table[character >>> PAGE_BITS];
+        if (page == null) {
+            page = new String[PAGE_SIZE];
+            table[character >>> PAGE_BITS] = page;
+        }
+        return page;
+    }
+
+}
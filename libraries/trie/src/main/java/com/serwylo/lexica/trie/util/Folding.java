@@ -0,0 +1,105 @@
+package com.serwylo.lexica.trie.util;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * How the dictionary of a language without diacritics (e.g. fr_FR_no_diacritics) is folded from
+ * the dictionary of a language with them (e.g. fr_FR), so that {@link TrieBuilder} can build both
+ * from one read of the same dictionary.
+ * <p>
+ * Each character is decomposed (NFD) and stripped of its combining marks, so "é" becomes "e",
+ * unless the language has a rule of its own for it. German spells out its umlauts instead
+ * ("ü" becomes "ue"), and Spanish keeps its "ñ". This does the same as the remove-diacritics.sh,
+ * remove-diactitics-es.sh and dictionary.de_DE_no_diacritics.build.sh scripts.
+ * <p>
+ * Folding can turn different words into the same one (e.g. "pêche" and "péché" both become
+ * "peche"), so the folded words are deduplicated.
+ */
+public class Folding {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Languages with a folded dictionary, by name.
+     */
+    private static final Map<String, Folding> FOLDINGS = new HashMap<>();
+
+    static {
+        FOLDINGS.put("br_no_diacritics", new Folding("br"));
+        FOLDINGS.put("de_DE_no_diacritics", new Folding("de_DE").replace('ä', "ae").replace('ö', "oe").replace('ü', "ue"));
+        FOLDINGS.put("es_solo_enne", new Folding("es").replace('ñ', "ñ"));
+        FOLDINGS.put("fr_FR_no_diacritics", new Folding("fr_FR"));
+        FOLDINGS.put("pt_BR_no_diacritics", new Folding("pt_BR"));
+    }
+
+    /**
+     * The name of the dictionary which is folded, e.g. "fr_FR" for "dictionary.fr_FR.txt". Not
+     * necessarily the name of a {@link Language}, as there is no Breton with diacritics.
+     */
+    private final String sourceName;
+
+    /**
+     * Characters which are replaced by something of their own, rather than having their
+     * combining marks stripped. A character which is kept as is maps to itself.
+     */
+    private final Map<Character, String> replacements = new TreeMap<>();
+
+    private Folding(String sourceName) {
+        this.sourceName = sourceName;
+    }
+
+    private Folding replace(char character, String replacement) {
+        replacements.put(character, replacement);
+        return this;
+    }
+
+    /**
+     * @return Null if the dictionary of {@param language} isn't folded from another.
+     */
+    public static Folding of(Language language) {
+        return FOLDINGS.get(language.getName());
+    }
+
+    public String getSourceDictionaryFileName() {
+        return "dictionary." + sourceName + ".txt";
+    }
+
+    /**
+     * @param word Already lower cased.
+     */
+    public String fold(String word) {
+        // Composed first, so that a dictionary which spells "ü" as "u" followed by a combining
+        // diaeresis still matches the rule for "ü".
+        String composed = Normalizer.normalize(word, Normalizer.Form.NFC);
+        StringBuilder folded = new StringBuilder(composed.length());
+        for (int i = 0; i < composed.length(); i++) {
+            char character = composed.charAt(i);
+            String replacement = replacements.get(character);
+            if (replacement != null) {
+                folded.append(replacement);
+            } else if (character < 0x80) {
+                folded.append(character);
+            } else {
+                String decomposed = Normalizer.normalize(String.valueOf(character), Normalizer.Form.NFD);
+                folded.append(COMBINING_MARKS.matcher(decomposed).replaceAll(""));
+            }
+        }
+        return folded.toString();
+    }
+
+    void addTo(SourceHash hash) {
+        hash.add(sourceName);
+        hash.add(replacements.size());
+        for (Map.Entry<Character, String> replacement : replacements.entrySet()) {
+            hash.add(replacement.getKey());
+            hash.add(replacement.getValue());
+        }
+    }
+
+}
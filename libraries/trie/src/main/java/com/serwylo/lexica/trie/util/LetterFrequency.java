@@ -1,6 +1,7 @@
 package com.serwylo.lexica.trie.util;
 
 import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Tokenizer;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -95,50 +96,32 @@ public class LetterFrequency {
     }
 
     public HashMap<String, Integer> getLetterCountsForWord(String word) {
+        Tokenizer tokenizer = language.getTokenizer();
         HashMap<String, Integer> counts = new HashMap<>();
 
-        for (int i = 0; i < word.length(); i++) {
-            String letter = word.substring(i, i + 1);
-            String letterWithSuffix = language.applyMandatorySuffix(letter);
-
-            if (shouldInclude(word, i)) {
-                if (!counts.containsKey(letterWithSuffix)) {
-                    counts.put(letter, 1);
-                } else {
-                    counts.put(letter, counts.get(letterWithSuffix) + 1);
-                }
+        int position = 0;
+        while (position < word.length()) {
+            if (shouldInclude(word, position)) {
+                // Counted by the first letter of the tile, so "qu" counts towards "q".
+                String letter = tokenizer.tileOf(word.charAt(position) << 1);
+                Integer count = counts.get(letter);
+                counts.put(letter, count == null ? 1 : count + 1);
             }
 
-            if (!letter.equals(letterWithSuffix)) {
-                i += letterWithSuffix.length() - 1;
-            }
+            position += tokenizer.tileLength(word, position);
         }
 
         return counts;
     }
 
+    /**
+     * If a word has a "qu", then add the "q" to our letter frequencies, but not the "u" (because
+     * it is useless without a "q" for the purposes of this word). Some words may have a "q"
+     * without a "u", in which case the "q" is not added either.
+     */
     public boolean shouldInclude(String word, int position) {
-        String letter = word.substring(position, position + 1);
-        String letterWithSuffix = language.applyMandatorySuffix(letter);
-
-        // If a word has a "qu", then add the "q" to our letter frequencies, but not
-        // the "u" (because it is useless without a "q" for the purposes of this word.
-        if (!letterWithSuffix.equals(letter)) {
-
-            // Some words may have a "q" without a "u". We will not add the "q"
-            // to our letter frequencies if this is the case.
-            boolean shouldInclude = true;
-            for (int i = 0; i < letterWithSuffix.length(); i++) {
-                if (word.length() <= position + i || word.charAt(position + i) != letterWithSuffix.charAt(i)) {
-                    shouldInclude = false;
-                    break;
-                }
-            }
-
-            return shouldInclude;
-        }
-
-        return true;
+        Tokenizer tokenizer = language.getTokenizer();
+        return !tokenizer.hasMandatorySuffix(word.charAt(position)) || tokenizer.tileLength(word, position) > 1;
     }
 
 }
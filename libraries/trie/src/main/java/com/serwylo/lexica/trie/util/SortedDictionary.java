@@ -0,0 +1,239 @@
+package com.serwylo.lexica.trie.util;
+
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.StreamingTrieWriter;
+import net.healeys.trie.TileOrder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The words of a dictionary, as {@link TrieBuilder} would read them, in {@link TileOrder} and
+ * without duplicates, ready for a {@link StreamingTrieWriter}.
+ * <p>
+ * No more than a fixed number of words are ever held in memory. If the dictionary isn't already
+ * in order, it is sorted that many words at a time into temporary files, which are then merged
+ * into a single sorted file. Every run is open at once while merging, so there can be no more
+ * runs than files which can be open at the same time.
+ */
+class SortedDictionary implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Language language;
+    private final File file;
+
+    /**
+     * Whether {@link #file} is a sorted copy which needs deleting, rather than the dictionary.
+     */
+    private final boolean temporary;
+
+    private SortedDictionary(Language language, File file, boolean temporary) {
+        this.language = language;
+        this.file = file;
+        this.temporary = temporary;
+    }
+
+    static SortedDictionary sort(Language language, File dictFile, int maxWordsInMemory) throws IOException {
+        TileOrder order = new TileOrder(language);
+        if (isSorted(language, dictFile, order)) {
+            return new SortedDictionary(language, dictFile, false);
+        }
+
+        List<File> runs = new ArrayList<>();
+        try {
+            List<String> run = new ArrayList<>(Math.min(maxWordsInMemory, 1 << 16));
+            try (Words words = new Words(language, dictFile, true)) {
+                String word;
+                while ((word = words.next()) != null) {
+                    run.add(word);
+                    if (run.size() == maxWordsInMemory) {
+                        runs.add(writeRun(run, order));
+                        run.clear();
+                    }
+                }
+            }
+
+            if (!run.isEmpty() || runs.isEmpty()) {
+                runs.add(writeRun(run, order));
+            }
+
+            if (runs.size() == 1) {
+                return new SortedDictionary(language, runs.remove(0), true);
+            }
+
+            return new SortedDictionary(language, merge(language, runs, order), true);
+        } finally {
+            for (File run : runs) {
+                delete(run);
+            }
+        }
+    }
+
+    private static boolean isSorted(Language language, File dictFile, TileOrder order) throws IOException {
+        try (Words words = new Words(language, dictFile, true)) {
+            String previous = null;
+            String word;
+            while ((word = words.next()) != null) {
+                if (previous != null && order.compare(previous, word) > 0) {
+                    return false;
+                }
+                previous = word;
+            }
+        }
+        return true;
+    }
+
+    private static File writeRun(List<String> run, TileOrder order) throws IOException {
+        Collections.sort(run, order);
+
+        File file = createTempFile();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8))) {
+            for (String word : run) {
+                writer.write(word);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * A run being merged, and the next word from it.
+     */
+    private static class Run {
+
+        final Words words;
+        String next;
+
+        Run(Words words) throws IOException {
+            this.words = words;
+            this.next = words.next();
+        }
+    }
+
+    private static File merge(Language language, List<File> runFiles, final TileOrder order) throws IOException {
+        PriorityQueue<Run> runs = new PriorityQueue<>(runFiles.size(), (a, b) -> order.compare(a.next, b.next));
+        List<Run> opened = new ArrayList<>(runFiles.size());
+        File merged = createTempFile();
+        try {
+            for (File file : runFiles) {
+                Run run = new Run(new Words(language, file, false));
+                opened.add(run);
+                if (run.next != null) {
+                    runs.add(run);
+                }
+            }
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(merged), UTF_8))) {
+                String previous = null;
+                while (!runs.isEmpty()) {
+                    Run run = runs.poll();
+                    if (!run.next.equals(previous)) {
+                        writer.write(run.next);
+                        writer.write('\n');
+                        previous = run.next;
+                    }
+
+                    run.next = run.words.next();
+                    if (run.next != null) {
+                        runs.add(run);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(merged);
+            throw e;
+        } finally {
+            for (Run run : opened) {
+                run.words.close();
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Reads every word in order, each only once.
+     */
+    Words open() throws IOException {
+        return new Words(language, file, !temporary);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (temporary) {
+            delete(file);
+        }
+    }
+
+    private static File createTempFile() throws IOException {
+        File file = File.createTempFile("words", ".txt");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void delete(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    /**
+     * Reads one word per line, skipping a word which is the same as the one before it.
+     */
+    static class Words implements Closeable {
+
+        private final Language language;
+        private final BufferedReader reader;
+
+        /**
+         * Whether each line still needs to be turned into a word by
+         * {@link TrieBuilder#toWord(Language, String)}, rather than having already been written
+         * out as one.
+         */
+        private final boolean raw;
+
+        private String previous = null;
+
+        Words(Language language, File file, boolean raw) throws IOException {
+            this.language = language;
+            this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+            this.raw = raw;
+        }
+
+        /**
+         * @return Null once there are no more words.
+         */
+        String next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = raw ? TrieBuilder.toWord(language, line) : line;
+                if (word != null && !word.equals(previous)) {
+                    previous = word;
+                    return word;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+}
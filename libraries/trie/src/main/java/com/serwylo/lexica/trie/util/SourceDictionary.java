@@ -0,0 +1,169 @@
+package com.serwylo.lexica.trie.util;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dictionary which {@link TrieBuilder} builds tries from, read into memory once so that every
+ * trie built from the same file can share it. For example, fr_FR and fr_FR_no_diacritics are both
+ * built from dictionary.fr_FR.txt, the latter through a {@link Folding}.
+ */
+public class SourceDictionary {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final byte[] contents;
+
+    /**
+     * Null to use the words as they are.
+     */
+    private final Folding folding;
+
+    private SourceDictionary(File file, byte[] contents, Folding folding) {
+        this.file = file;
+        this.contents = contents;
+        this.folding = folding;
+    }
+
+    public static SourceDictionary read(File file) throws IOException {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream((int) file.length());
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                contents.write(chunk, 0, read);
+            }
+        }
+        return new SourceDictionary(file, contents.toByteArray(), null);
+    }
+
+    /**
+     * The same dictionary with every word folded by {@param folding}, without reading it again.
+     */
+    public SourceDictionary fold(Folding folding) {
+        return new SourceDictionary(file, contents, folding);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Adds the same to {@param hash} as {@link SourceHash#addDictionary(Language, File)} would for
+     * {@link #file}, along with the folding (if any).
+     */
+    void addTo(SourceHash hash, Language language) throws IOException {
+        hash.addDictionary(language, contents);
+        if (folding != null) {
+            folding.addTo(hash);
+        }
+    }
+
+    /**
+     * The words of {@param language} in this dictionary, read from the {@link WordList} next to it
+     * if that was written from the same dictionary, otherwise decoded from the dictionary and
+     * written there for next time if possible. Safe to call from several threads, even for the
+     * same language.
+     */
+    public WordList wordList(Language language) throws IOException {
+        SourceHash hash = new SourceHash("WORDS");
+        addTo(hash, language);
+        long sourceHash = hash.get();
+
+        File cached = wordListFile(language);
+        if (cached.exists()) {
+            try (InputStream input = new BufferedInputStream(new FileInputStream(cached))) {
+                WordList words = new WordList.Deserializer().deserialize(input);
+                if (words.getSourceHash() == sourceHash) {
+                    return words;
+                }
+            } catch (IOException e) {
+                // Written by an older version, or cut short. Either way, it is replaced below.
+            }
+        }
+
+        WordList words = WordList.of(readWords(language), sourceHash);
+        try {
+            write(words, cached);
+        } catch (IOException e) {
+            // E.g. the dictionary is in a read only directory. The words are still right, they
+            // will just be decoded again next time.
+        }
+
+        return words;
+    }
+
+    /**
+     * Written alongside then renamed, so that nobody reading it at the same time sees half a list.
+     */
+    private static void write(WordList words, File file) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temp))) {
+                new WordList.Serializer().serialize(words, output);
+            }
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } finally {
+            if (temp.exists()) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Where {@link #wordList(Language)} keeps the words of {@param language}, e.g.
+     * dictionary.fr_FR_no_diacritics.words next to dictionary.fr_FR.txt.
+     */
+    public File wordListFile(Language language) {
+        return new File(file.getAbsoluteFile().getParentFile(), "dictionary." + language.getName() + WordList.FILE_EXTENSION);
+    }
+
+    /**
+     * Every word of {@param language}, sorted and without duplicates (see
+     * {@link #wordList(Language)}).
+     */
+    List<String> words(Language language) throws IOException {
+        return wordList(language).toList();
+    }
+
+    /**
+     * Each line as a word of {@param language} (see {@link TrieBuilder#toWord(Language, String)}),
+     * then folded. Folding can turn different words into the same one, which
+     * {@link WordList#of(java.util.Collection, long)} then drops.
+     */
+    private List<String> readWords(Language language) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = TrieBuilder.toWord(language, line);
+                if (word != null && folding != null) {
+                    word = folding.fold(word);
+                }
+                if (word != null && !word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+}
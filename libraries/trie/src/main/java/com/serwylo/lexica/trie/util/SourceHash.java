@@ -0,0 +1,167 @@
+package com.serwylo.lexica.trie.util;
+
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.TrieHeader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Boils everything which a trie is built from down to a {@link TrieHeader#getSourceHash()}, so
+ * that {@link TrieBuilder} can leave a trie alone if none of its inputs have changed since it was
+ * written.
+ * <p>
+ * The rules of a {@link Language} are code rather than data, so rather than the rules themselves,
+ * the hash covers what they do to each dictionary: the locale it is lower cased in, and the tile
+ * which {@link Language#applyMandatorySuffix(String)} makes of each character in it.
+ */
+class SourceHash {
+
+    /**
+     * Part of every hash, so that bumping it gets every trie built again. Only needed when
+     * {@link TrieBuilder} would write different bytes from the same inputs. Building out of core,
+     * reading words through a {@link WordList}, and the order words reach the builder in all write
+     * the same bytes as before, and {@link Folding} rules are hashed as inputs, so none of them
+     * needed a bump.
+     */
+    private static final int BUILDER_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MessageDigest digest;
+
+    /**
+     * @param kind What is being built from the inputs (e.g. the name of a
+     *             {@link TrieBuilder.Format}), so that different kinds of trie built from the same
+     *             inputs never share a hash.
+     */
+    SourceHash(String kind) {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+
+        add(BUILDER_VERSION);
+        add(kind);
+    }
+
+    SourceHash add(int value) {
+        digest.update(ByteBuffer.allocate(4).putInt(value).array());
+        return this;
+    }
+
+    SourceHash add(long value) {
+        digest.update(ByteBuffer.allocate(8).putLong(value).array());
+        return this;
+    }
+
+    /**
+     * Prefixed by its length, so that adding "ab" then "c" differs from adding "a" then "bc".
+     */
+    SourceHash add(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        add(bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+
+    SourceHash add(int[] values) {
+        add(values.length);
+        for (int value : values) {
+            add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds each entry in key order, so that the order of the map doesn't matter.
+     */
+    SourceHash add(Map<String, Integer> values) {
+        Map<String, Integer> sorted = new TreeMap<>(values);
+        add(sorted.size());
+        for (Map.Entry<String, Integer> entry : sorted.entrySet()) {
+            add(entry.getKey());
+            add(entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Adds the contents of {@param dictFile}, along with how {@param language} splits it into
+     * tiles.
+     */
+    SourceHash addDictionary(Language language, File dictFile) throws IOException {
+        // Streamed, rather than read in one go, so that it works for dictionaries of any size.
+        return addDictionary(language, new FileInputStream(dictFile), dictFile.length());
+    }
+
+    /**
+     * The same as {@link #addDictionary(Language, File)} for a dictionary which has already been
+     * read into memory.
+     */
+    SourceHash addDictionary(Language language, byte[] contents) throws IOException {
+        return addDictionary(language, new ByteArrayInputStream(contents), contents.length);
+    }
+
+    /**
+     * @param dictionary Closed once it has been read.
+     */
+    private SourceHash addDictionary(Language language, InputStream dictionary, long length) throws IOException {
+        digest.update(ByteBuffer.allocate(8).putLong(length).array());
+
+        BitSet characters = new BitSet(Character.MAX_VALUE + 1);
+        try (Reader reader = new InputStreamReader(new DigestInputStream(dictionary, digest), UTF_8)) {
+            char[] chunk = new char[8192];
+            int read;
+            while ((read = reader.read(chunk)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    characters.set(chunk[i]);
+                }
+            }
+        }
+
+        add(language.getName());
+        add(language.getLocale().toString());
+
+        SortedSet<Character> lowerCase = new TreeSet<>();
+        for (int c = characters.nextSetBit(0); c >= 0; c = characters.nextSetBit(c + 1)) {
+            String character = Character.toString((char) c).toLowerCase(language.getLocale());
+            for (int i = 0; i < character.length(); i++) {
+                lowerCase.add(character.charAt(i));
+            }
+        }
+
+        add(lowerCase.size());
+        for (char character : lowerCase) {
+            add(language.applyMandatorySuffix(Character.toString(character)));
+        }
+
+        return this;
+    }
+
+    /**
+     * The first 64 bits of the digest. Plenty to notice that something has changed, without
+     * bloating every trie header.
+     */
+    long get() {
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+}
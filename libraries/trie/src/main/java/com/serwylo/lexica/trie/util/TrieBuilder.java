@@ -2,43 +2,783 @@ package com.serwylo.lexica.trie.util;
 
 import com.serwylo.lexica.lang.Language;
 
+import net.healeys.trie.DoubleArrayTrie;
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.StreamingTrieWriter;
 import net.healeys.trie.StringTrie;
 import net.healeys.trie.Trie;
+import net.healeys.trie.TrieHeader;
+import net.healeys.trie.TrieStats;
+import net.healeys.trie.VariantTrie;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
 
+/**
+ * Builds tries from the plain text dictionaries.
+ * <p>
+ * Building the same words always writes the same bytes. Tries in the {@link Format#STRING}
+ * format (and variants) also record a {@link SourceHash} of everything they were built from, and
+ * are left alone rather than built again if none of it has changed. Delete a trie to force it to
+ * be built again.
+ */
 public class TrieBuilder {
 
-    public static void run(Language language, File dictFile, File[] outputTrieFiles) throws IOException {
-        Trie outTrie = new StringTrie(language);
+    /**
+     * Blank lines and comments in a dictionary, once lower cased.
+     */
+    private static final Pattern IGNORED_LINE = Pattern.compile("^(|\\s+|#.*)$");
 
-        readCorpus(language, dictFile, outTrie);
+    public enum Format {
 
+        /**
+         * Read by {@link StringTrie.Deserializer}.
+         */
+        STRING,
+
+        /**
+         * Random access format read by {@link MappedTrie}.
+         */
+        MAPPED,
+
+        /**
+         * Same format as {@link #MAPPED}, but with identical subtrees merged (see
+         * {@link StringTrie#minimize()}).
+         */
+        DAWG,
+
+        /**
+         * Read by {@link DoubleArrayTrie.Deserializer}.
+         */
+        DOUBLE_ARRAY,
+
+    }
+
+    public static boolean run(Language language, File dictFile, File[] outputTrieFiles) throws IOException {
+        return run(language, dictFile, outputTrieFiles, Format.STRING);
+    }
+
+    /**
+     * Rules out words which could never be dealt on a board, because they need more tiles than
+     * the board has cells, or more copies of a tile than the letter distribution ever deals.
+     */
+    public static class TileLimits {
+
+        private final Language language;
+        private final Map<String, Integer> maxCopies;
+        private final int maxTiles;
+
+        /**
+         * @param maxCopies The most copies of each tile which can be dealt onto a single board.
+         *                  Tiles which are missing are never dealt.
+         * @param maxTiles  The number of cells on the board.
+         */
+        public TileLimits(Language language, Map<String, Integer> maxCopies, int maxTiles) {
+            this.language = language;
+            this.maxCopies = maxCopies;
+            this.maxTiles = maxTiles;
+        }
+
+        public boolean allows(String word) {
+            return reasonRuledOut(word) == null;
+        }
+
+        /**
+         * @return Null if {@param word} can be dealt, otherwise why not. Words ruled out for the
+         * same reason get exactly the same reason, so that they can be counted together.
+         */
+        String reasonRuledOut(String word) {
+            Map<String, Integer> used = new HashMap<>();
+            int tiles = 0;
+            int position = 0;
+            while (position < word.length()) {
+                String tile = Trie.tileAt(language, word, position);
+                position += tile.length();
+
+                tiles++;
+                if (tiles > maxTiles) {
+                    return "more than " + maxTiles + " tiles";
+                }
+
+                Integer max = maxCopies.get(tile);
+                if (max == null || max == 0) {
+                    return quote(tile) + " is never dealt";
+                }
+
+                Integer count = used.get(tile);
+                int copies = count == null ? 1 : count + 1;
+                if (copies > max) {
+                    return "more than " + max + " " + quote(tile) + " " + (max == 1 ? "tile" : "tiles");
+                }
+                used.put(tile, copies);
+            }
+
+            return null;
+        }
+
+        /**
+         * Spells out characters which can't be seen, such as the zero width non-joiner in Persian.
+         */
+        private static String quote(String tile) {
+            StringBuilder quoted = new StringBuilder("\"");
+            for (int i = 0; i < tile.length(); i++) {
+                char character = tile.charAt(i);
+                if (Character.isWhitespace(character) || Character.isISOControl(character) || Character.getType(character) == Character.FORMAT) {
+                    quoted.append(String.format(Locale.ENGLISH, "\\u%04x", (int) character));
+                } else {
+                    quoted.append(character);
+                }
+            }
+            return quoted.append('"').toString();
+        }
+
+        private void addTo(SourceHash hash) {
+            hash.add(language.getName());
+            hash.add(maxCopies);
+            hash.add(maxTiles);
+        }
+
+        private List<String> filter(List<String> words) {
+            List<String> allowed = new ArrayList<>(words.size());
+            for (String word : words) {
+                if (allows(word)) {
+                    allowed.add(word);
+                }
+            }
+            return allowed;
+        }
+    }
+
+    public static boolean run(Language language, File dictFile, File[] outputTrieFiles, Format format) throws IOException {
+        return run(language, SourceDictionary.read(dictFile), outputTrieFiles, format);
+    }
+
+    /**
+     * @return False if every trie was already up to date, in which case nothing was written.
+     */
+    public static boolean run(Language language, SourceDictionary dictionary, File[] outputTrieFiles, Format format) throws IOException {
+        SourceHash hash = new SourceHash(format.name());
+        dictionary.addTo(hash, language);
+        long sourceHash = hash.get();
+
+        if (isUpToDate(outputTrieFiles, sourceHash)) {
+            return false;
+        }
+
+        write(language, dictionary.words(language), outputTrieFiles, format, sourceHash);
+        return true;
+    }
+
+    /**
+     * Writes every word which fits on the largest of {@param boardSizes} to
+     * {@link Language#getTrieFileName()} in each of {@param outputDirs}. Smaller boards which rule
+     * out even more words also get their own trie, named {@link Language#getTrieFileName(int)}.
+     * Board sizes which make no difference don't, so that the app falls back to the main trie.
+     *
+     * @param maxTileCopies See {@link TileLimits#TileLimits(Language, Map, int)}.
+     * @return How many words fit on each board size, or null if every trie was already up to date.
+     */
+    public static BoardSizeCounts runForBoardSizes(Language language, File dictFile, File[] outputDirs, Format format, Map<String, Integer> maxTileCopies, int[] boardSizes) throws IOException {
+        return runForBoardSizes(language, SourceDictionary.read(dictFile), outputDirs, format, maxTileCopies, boardSizes);
+    }
+
+    public static BoardSizeCounts runForBoardSizes(Language language, SourceDictionary dictionary, File[] outputDirs, Format format, Map<String, Integer> maxTileCopies, int[] boardSizes) throws IOException {
+        int[] sizes = boardSizes.clone();
+        Arrays.sort(sizes);
+        int largest = sizes[sizes.length - 1];
+
+        SourceHash hash = new SourceHash(format.name());
+        dictionary.addTo(hash, language);
+        long sourceHash = hash.add(maxTileCopies).add(sizes).get();
+        if (isUpToDate(language, outputDirs, sizes, sourceHash)) {
+            return null;
+        }
+
+        List<String> allWords = dictionary.words(language);
+        List<String> words = new TileLimits(language, maxTileCopies, largest).filter(allWords);
+
+        int[] counts = new int[sizes.length];
+        counts[sizes.length - 1] = words.size();
+        for (int i = 0; i < sizes.length - 1; i++) {
+            List<String> sizeWords = new TileLimits(language, maxTileCopies, sizes[i]).filter(words);
+            File[] sizeFiles = outputFiles(outputDirs, language.getTrieFileName(sizes[i]));
+            counts[i] = sizeWords.size();
+            if (sizeWords.size() < words.size()) {
+                write(language, sizeWords, sizeFiles, format, sourceHash);
+            } else {
+                deleteStale(sizeFiles);
+            }
+        }
+
+        // Written last, so that a build which is interrupted part way through is never up to date.
+        BoardSizeCounts boardSizeCounts = new BoardSizeCounts(allWords.size(), sizes, counts);
+        write(language, words, outputFiles(outputDirs, language.getTrieFileName()), format, mainTrieHash(sourceHash, boardSizeCounts));
+        return boardSizeCounts;
+    }
+
+    /**
+     * How many words were written for each board size by
+     * {@link #runForBoardSizes(Language, SourceDictionary, File[], Format, Map, int[])}.
+     */
+    public static class BoardSizeCounts {
+
+        /**
+         * Every word in the dictionary, whether or not it fits on any board.
+         */
+        public final int allWords;
+
+        /**
+         * Smallest first.
+         */
+        public final int[] boardSizes;
+
+        /**
+         * How many words fit on each of {@link #boardSizes}.
+         */
+        public final int[] words;
+
+        BoardSizeCounts(int allWords, int[] boardSizes, int[] words) {
+            this.allWords = allWords;
+            this.boardSizes = boardSizes;
+            this.words = words;
+        }
+
+        /**
+         * Whether board size {@param index} got its own trie, rather than sharing that of the
+         * largest board (which every board size but the largest does when it rules out no more
+         * words than the largest board).
+         */
+        public boolean hasOwnTrie(int index) {
+            return index == boardSizes.length - 1 || words[index] < words[boardSizes.length - 1];
+        }
+    }
+
+    /**
+     * Same as {@link #run(Language, File, File[], Format)} in the {@link Format#STRING} format, and
+     * writes exactly the same bytes, but never holds more than {@param maxWordsInMemory} words in
+     * memory, or the trie at all (see {@link SortedDictionary} and {@link StreamingTrieWriter}).
+     */
+    public static boolean runOutOfCore(Language language, File dictFile, File[] outputTrieFiles, int maxWordsInMemory) throws IOException {
+        long sourceHash = new SourceHash(Format.STRING.name())
+                .addDictionary(language, dictFile)
+                .get();
+
+        if (isUpToDate(outputTrieFiles, sourceHash)) {
+            return false;
+        }
+
+        try (SortedDictionary words = SortedDictionary.sort(language, dictFile, maxWordsInMemory)) {
+            writeOutOfCore(language, words, null, outputTrieFiles, sourceHash);
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #runForBoardSizes(Language, File, File[], Format, Map, int[])} in the
+     * {@link Format#STRING} format, but built the same way as
+     * {@link #runOutOfCore(Language, File, File[], int)}. The dictionary is only sorted once, no
+     * matter how many tries are written from it.
+     */
+    public static BoardSizeCounts runForBoardSizesOutOfCore(Language language, File dictFile, File[] outputDirs, Map<String, Integer> maxTileCopies, int[] boardSizes, int maxWordsInMemory) throws IOException {
+        int[] sizes = boardSizes.clone();
+        Arrays.sort(sizes);
+        int largestIndex = sizes.length - 1;
+
+        long sourceHash = boardSizesHash(language, dictFile, Format.STRING, maxTileCopies, sizes);
+        if (isUpToDate(language, outputDirs, sizes, sourceHash)) {
+            return null;
+        }
+
+        try (SortedDictionary words = SortedDictionary.sort(language, dictFile, maxWordsInMemory)) {
+            TileLimits[] limits = new TileLimits[sizes.length];
+            for (int i = 0; i < sizes.length; i++) {
+                limits[i] = new TileLimits(language, maxTileCopies, sizes[i]);
+            }
+
+            // Counted up front, because smaller boards only get their own trie if they rule out
+            // more words than the largest board.
+            int allWords = 0;
+            int[] counts = new int[sizes.length];
+            try (SortedDictionary.Words reader = words.open()) {
+                String word;
+                while ((word = reader.next()) != null) {
+                    allWords++;
+                    for (int i = 0; i < sizes.length; i++) {
+                        if (limits[i].allows(word)) {
+                            counts[i]++;
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < largestIndex; i++) {
+                File[] sizeFiles = outputFiles(outputDirs, language.getTrieFileName(sizes[i]));
+                if (counts[i] < counts[largestIndex]) {
+                    writeOutOfCore(language, words, limits[i], sizeFiles, sourceHash);
+                } else {
+                    deleteStale(sizeFiles);
+                }
+            }
+
+            BoardSizeCounts boardSizeCounts = new BoardSizeCounts(allWords, sizes, counts);
+            writeOutOfCore(language, words, limits[largestIndex], outputFiles(outputDirs, language.getTrieFileName()), mainTrieHash(sourceHash, boardSizeCounts));
+            return boardSizeCounts;
+        }
+    }
+
+    /**
+     * Reads through {@param words} twice: once to find which tiles are used, which the header
+     * needs up front, and then again to write the trie.
+     *
+     * @param limits Null to keep every word.
+     */
+    private static void writeOutOfCore(Language language, SortedDictionary words, TileLimits limits, File[] outputTrieFiles, long sourceHash) throws IOException {
+        Set<String> tiles = new TreeSet<>();
+        try (SortedDictionary.Words reader = words.open()) {
+            String word;
+            while ((word = reader.next()) != null) {
+                if (limits == null || limits.allows(word)) {
+                    int position = 0;
+                    while (position < word.length()) {
+                        String tile = Trie.tileAt(language, word, position);
+                        tiles.add(tile);
+                        position += tile.length();
+                    }
+                }
+            }
+        }
+
+        try (StreamingTrieWriter writer = new StreamingTrieWriter(language, tiles, sourceHash)) {
+            try (SortedDictionary.Words reader = words.open()) {
+                String word;
+                while ((word = reader.next()) != null) {
+                    if (limits == null || limits.allows(word)) {
+                        writer.addWord(word);
+                    }
+                }
+            }
+
+            writer.finish();
+            for (File outputFile : outputTrieFiles) {
+                try (FileOutputStream of = new FileOutputStream(outputFile, false)) {
+                    writer.writeTo(of);
+                }
+            }
+        }
+    }
+
+    /**
+     * The same as the hash of {@link #runForBoardSizes(Language, SourceDictionary, File[], Format, Map, int[])},
+     * without reading the whole dictionary into memory.
+     */
+    private static long boardSizesHash(Language language, File dictFile, Format format, Map<String, Integer> maxTileCopies, int[] sortedSizes) throws IOException {
+        return new SourceHash(format.name())
+                .addDictionary(language, dictFile)
+                .add(maxTileCopies)
+                .add(sortedSizes)
+                .get();
+    }
+
+    /**
+     * Whether the tries for {@param sortedSizes} in each of {@param outputDirs} were built from
+     * {@param sourceHash}. Tries for smaller boards are only written if they differ from the main
+     * trie, so a missing one is only out of date if the main trie says it was written (see
+     * {@link #mainTrieHash(long, BoardSizeCounts)}).
+     */
+    private static boolean isUpToDate(Language language, File[] outputDirs, int[] sortedSizes, long sourceHash) throws IOException {
+        for (File outputDir : outputDirs) {
+            SourceHash mainTrieHash = mainTrieHash(sourceHash);
+            for (int i = 0; i < sortedSizes.length - 1; i++) {
+                File file = new File(outputDir, language.getTrieFileName(sortedSizes[i]));
+                if (file.exists()) {
+                    if (readSourceHash(file) != sourceHash) {
+                        return false;
+                    }
+
+                    mainTrieHash.add(sortedSizes[i]);
+                }
+            }
+
+            if (!isUpToDate(new File[]{new File(outputDir, language.getTrieFileName())}, mainTrieHash.get())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Written to the main trie in place of {@param sourceHash}, so that it also records which
+     * smaller boards got their own trie. If one of those is deleted, the main trie no longer
+     * matches and they are all built again.
+     */
+    private static long mainTrieHash(long sourceHash, BoardSizeCounts counts) {
+        SourceHash hash = mainTrieHash(sourceHash);
+        for (int i = 0; i < counts.boardSizes.length - 1; i++) {
+            if (counts.hasOwnTrie(i)) {
+                hash.add(counts.boardSizes[i]);
+            }
+        }
+        return hash.get();
+    }
+
+    private static SourceHash mainTrieHash(long sourceHash) {
+        return new SourceHash("BOARD_SIZES").add(sourceHash);
+    }
+
+    /**
+     * A trie left over from an earlier build would otherwise be preferred over the main trie.
+     */
+    private static void deleteStale(File[] files) throws IOException {
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to remove " + file);
+            }
+        }
+    }
+
+    private static File[] outputFiles(File[] outputDirs, String fileName) {
+        File[] files = new File[outputDirs.length];
+        for (int i = 0; i < outputDirs.length; i++) {
+            files[i] = new File(outputDirs[i], fileName);
+        }
+        return files;
+    }
+
+    /**
+     * Whether every one of {@param outputTrieFiles} exists and was built from {@param sourceHash}.
+     */
+    private static boolean isUpToDate(File[] outputTrieFiles, long sourceHash) throws IOException {
+        for (File file : outputTrieFiles) {
+            if (!file.exists() || readSourceHash(file) != sourceHash) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long readSourceHash(File file) throws IOException {
+        try (FileInputStream input = new FileInputStream(file)) {
+            return TrieHeader.readSourceHash(input);
+        }
+    }
+
+    /**
+     * @param sourceHash Recorded in tries of the {@link Format#STRING} format, which is the only
+     *                   one with a header to record it in.
+     */
+    private static void write(Language language, List<String> words, File[] outputTrieFiles, Format format, long sourceHash) throws IOException {
+        StringTrie outTrie = buildTrie(language, words);
+
+        if (format == Format.DAWG) {
+            outTrie.minimize();
+        }
+
+        DoubleArrayTrie doubleArrayTrie = format == Format.DOUBLE_ARRAY ? new DoubleArrayTrie(outTrie) : null;
+
+        for (File outputFile : outputTrieFiles) {
+            try (FileOutputStream of = new FileOutputStream(outputFile, false)) {
+                if (format == Format.MAPPED || format == Format.DAWG) {
+                    new MappedTrie.Serializer().serialize(outTrie, of);
+                } else if (doubleArrayTrie != null) {
+                    doubleArrayTrie.write(of);
+                } else {
+                    outTrie.write(of, sourceHash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a separate trie for the words starting with each tile on the common
+     * {@link ForkJoinPool}, then grafts them all onto one root (see
+     * {@link StringTrie#graft(StringTrie)}). No two threads ever touch the same node, and the
+     * result is the same trie as adding every word in turn.
+     */
+    private static StringTrie buildTrie(final Language language, Collection<String> words) {
+        Map<String, List<String>> wordsByFirstTile = new TreeMap<>();
+        for (String word : words) {
+            String tile = Trie.tileAt(language, word, 0);
+            List<String> tileWords = wordsByFirstTile.get(tile);
+            if (tileWords == null) {
+                tileWords = new ArrayList<>();
+                wordsByFirstTile.put(tile, tileWords);
+            }
+            tileWords.add(word);
+        }
+
+        List<ForkJoinTask<StringTrie>> subtries = new ArrayList<>(wordsByFirstTile.size());
+        for (final List<String> tileWords : wordsByFirstTile.values()) {
+            subtries.add(ForkJoinTask.adapt(() -> {
+                StringTrie subtrie = new StringTrie(language);
+                for (String word : tileWords) {
+                    subtrie.addWord(word);
+                }
+                return subtrie;
+            }));
+        }
+
+        ForkJoinTask.invokeAll(subtries);
+
+        StringTrie trie = new StringTrie(language);
+        for (ForkJoinTask<StringTrie> subtrie : subtries) {
+            trie.graft(subtrie.join());
+        }
+        return trie;
+    }
+
+    /**
+     * Writes {@param language} as a {@link VariantTrie}: the words it adds to and removes from
+     * {@param baseLanguage}. The app then only needs to keep one copy of the shared words in
+     * memory. If the two dictionaries have so little in common that the delta would be larger
+     * than a trie of the whole dictionary, the whole dictionary is written instead.
+     *
+     * @param limits     Null to keep every word in the variant, otherwise the same limits used
+     *                   when building it.
+     * @param baseLimits Null if every word was kept in the base trie, otherwise the same limits
+     *                   used when building it.
+     * @return How large the trie would be each way, or null if it was already up to date.
+     */
+    public static VariantSizes runVariant(Language language, File dictFile, TileLimits limits, Language baseLanguage, File baseDictFile, TileLimits baseLimits, File[] outputTrieFiles) throws IOException {
+        return runVariant(language, SourceDictionary.read(dictFile), limits, baseLanguage, SourceDictionary.read(baseDictFile), baseLimits, outputTrieFiles);
+    }
+
+    /**
+     * The same as {@link #runVariant(Language, File, TileLimits, Language, File, TileLimits, File[])},
+     * for a variant whose dictionary may be folded from its base's (see {@link Folding}), in which
+     * case both are the same {@link SourceDictionary}.
+     */
+    public static VariantSizes runVariant(Language language, SourceDictionary dictionary, TileLimits limits, Language baseLanguage, SourceDictionary baseDictionary, TileLimits baseLimits, File[] outputTrieFiles) throws IOException {
+        SourceHash hash = new SourceHash("VARIANT");
+        dictionary.addTo(hash, language);
+        baseDictionary.addTo(hash, baseLanguage);
+        for (TileLimits tileLimits : new TileLimits[]{limits, baseLimits}) {
+            if (tileLimits == null) {
+                hash.add(0);
+            } else {
+                hash.add(1);
+                tileLimits.addTo(hash);
+            }
+        }
+
+        long sourceHash = hash.get();
+        if (isUpToDate(outputTrieFiles, sourceHash)) {
+            return null;
+        }
+
+        List<String> variantWords = dictionary.words(language);
+        Set<String> words = new TreeSet<>(limits == null ? variantWords : limits.filter(variantWords));
+
+        List<String> allBaseWords = baseDictionary.words(baseLanguage);
+        Set<String> baseWords = new TreeSet<>(baseLimits == null ? allBaseWords : baseLimits.filter(allBaseWords));
+
+        StringTrie additions = new StringTrie(language);
+        for (String word : words) {
+            if (!baseWords.contains(word)) {
+                additions.addWord(word);
+            }
+        }
+
+        StringTrie removals = new StringTrie(language);
+        for (String word : baseWords) {
+            if (!words.contains(word)) {
+                removals.addWord(word);
+            }
+        }
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        new VariantTrie.Serializer().serialize(baseLanguage, additions, removals, delta, sourceHash);
+
+        StringTrie fullTrie = buildTrie(language, words);
+
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fullTrie.write(full, sourceHash);
+
+        VariantSizes sizes = new VariantSizes(delta.size(), full.size());
         for (File outputFile : outputTrieFiles) {
             try (FileOutputStream of = new FileOutputStream(outputFile, false)) {
-                outTrie.write(new DataOutputStream(of));
+                (sizes.isDelta() ? delta : full).writeTo(of);
             }
         }
+        return sizes;
+    }
+
+    /**
+     * The size in bytes of a variant written by
+     * {@link #runVariant(Language, SourceDictionary, TileLimits, Language, SourceDictionary, TileLimits, File[])},
+     * both as a delta and in full. Whichever is smaller is what was written.
+     */
+    public static class VariantSizes {
+
+        public final int deltaBytes;
+        public final int fullBytes;
+
+        VariantSizes(int deltaBytes, int fullBytes) {
+            this.deltaBytes = deltaBytes;
+            this.fullBytes = fullBytes;
+        }
+
+        public boolean isDelta() {
+            return deltaBytes < fullBytes;
+        }
     }
 
-    private static void readCorpus(Language language, File dictFile, Trie trie) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(dictFile), Charset.forName("UTF-8")));
-        String line;
-        String ignoreRegex = "^(|\\s+|#.*)$";
-        while ((line = br.readLine()) != null) {
-            String word = line.toLowerCase(language.getLocale());
-            if (word.matches(ignoreRegex)) {
-                continue;
+    /**
+     * Writes a report of every word in {@param dictionary} which can never be dealt within
+     * {@param limits}, and so would be left out of the trie: a count of words for each reason,
+     * most common first, followed by each word and why.
+     *
+     * @return How many words were left out.
+     */
+    public static int lint(Language language, SourceDictionary dictionary, TileLimits limits, Writer report) throws IOException {
+        // Both counts in the report are of distinct words, however many times a word appears in
+        // the dictionary.
+        Set<String> words = new LinkedHashSet<>(dictionary.words(language));
+        Map<String, String> ruledOut = new LinkedHashMap<>();
+        final Map<String, Integer> reasons = new HashMap<>();
+        for (String word : words) {
+            String reason = limits.reasonRuledOut(word);
+            if (reason != null) {
+                ruledOut.put(word, reason);
+                Integer count = reasons.get(reason);
+                reasons.put(reason, count == null ? 1 : count + 1);
             }
-            trie.addWord(word);
         }
+
+        List<String> byCount = new ArrayList<>(reasons.keySet());
+        Collections.sort(byCount, (a, b) -> {
+            int order = Integer.compare(reasons.get(b), reasons.get(a));
+            return order != 0 ? order : a.compareTo(b);
+        });
+
+        report.write("# " + language.getName() + ": " + ruledOut.size() + " of " + words.size() + " words can never be dealt\n");
+        for (String reason : byCount) {
+            report.write("# " + reasons.get(reason) + "\t" + reason + "\n");
+        }
+        for (Map.Entry<String, String> word : ruledOut.entrySet()) {
+            report.write(word.getKey() + "\t" + word.getValue() + "\n");
+        }
+
+        return ruledOut.size();
+    }
+
+    /**
+     * Describes the trie which would be built for {@param language} as a single line of JSON: its
+     * shape (see {@link TrieStats}), its size on disk in each {@link Format}, and an estimate of
+     * how much heap it needs once read.
+     *
+     * @param limits Null to include every word, otherwise the same limits used when building it.
+     */
+    public static String profile(Language language, SourceDictionary dictionary, TileLimits limits) throws IOException {
+        List<String> words = dictionary.words(language);
+        StringTrie trie = buildTrie(language, limits == null ? words : limits.filter(words));
+
+        TrieStats stats = new TrieStats(trie);
+
+        Map<Format, Long> bytes = new LinkedHashMap<>();
+        CountingOutputStream string = new CountingOutputStream();
+        trie.write(string);
+        bytes.put(Format.STRING, string.count);
+
+        CountingOutputStream mapped = new CountingOutputStream();
+        new MappedTrie.Serializer().serialize(trie, mapped);
+        bytes.put(Format.MAPPED, mapped.count);
+
+        CountingOutputStream doubleArray = new CountingOutputStream();
+        new DoubleArrayTrie(trie).write(doubleArray);
+        bytes.put(Format.DOUBLE_ARRAY, doubleArray.count);
+
+        // Last, because no more words can be added and the trie is no longer a tree.
+        trie.minimize();
+        CountingOutputStream dawg = new CountingOutputStream();
+        new MappedTrie.Serializer().serialize(trie, dawg);
+        bytes.put(Format.DAWG, dawg.count);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"language\":\"").append(language.getName()).append('"');
+        json.append(",\"words\":").append(stats.getWordCount());
+        json.append(",\"nodes\":").append(stats.getNodeCount());
+        json.append(",\"edges\":").append(stats.getEdgeCount());
+        json.append(",\"terminal_ratio\":").append(String.format(Locale.ENGLISH, "%.4f", stats.getTerminalRatio()));
+        json.append(",\"fan_out\":");
+        appendCounts(json, stats.getFanOut());
+        json.append(",\"depth\":");
+        appendCounts(json, stats.getDepths());
+        json.append(",\"bytes\":{");
+        String separator = "";
+        for (Map.Entry<Format, Long> entry : bytes.entrySet()) {
+            json.append(separator).append('"').append(formatName(entry.getKey())).append("\":").append(entry.getValue());
+            separator = ",";
+        }
+        json.append("},\"bytes_per_node\":{");
+        separator = "";
+        for (Map.Entry<Format, Long> entry : bytes.entrySet()) {
+            double perNode = (double) entry.getValue() / Math.max(1, stats.getNodeCount());
+            json.append(separator).append('"').append(formatName(entry.getKey())).append("\":").append(String.format(Locale.ENGLISH, "%.2f", perNode));
+            separator = ",";
+        }
+        json.append("},\"estimated_heap_bytes\":").append(stats.getEstimatedHeapBytes());
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendCounts(StringBuilder json, Map<Integer, Long> counts) {
+        json.append('{');
+        String separator = "";
+        for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+            json.append(separator).append('"').append(count.getKey()).append("\":").append(count.getValue());
+            separator = ",";
+        }
+        json.append('}');
+    }
+
+    private static String formatName(Format format) {
+        return format.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * @return Null if {@param line} is blank or a comment.
+     */
+    static String toWord(Language language, String line) {
+        String word = line.toLowerCase(language.getLocale());
+        return IGNORED_LINE.matcher(word).matches() ? null : word;
     }
 
 }
@@ -0,0 +1,366 @@
+package com.serwylo.lexica.trie.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The words of a dictionary, already filtered, lower cased and deduplicated, in a form which is far
+ * quicker to read than the dictionary itself. {@link SourceDictionary#wordList} writes one next to
+ * each dictionary the first time it is needed, so that every tool after that (the trie builder, the
+ * frequency counter, the API generator) reads the words without decoding the dictionary again.
+ * <p>
+ * Words are sorted by their UTF-8 bytes and front coded: each word only spells out what it doesn't
+ * share with the word before it. Every {@link #BLOCK_SIZE} words start a block with a word in full,
+ * so that any word can be found by decoding a single block.
+ * <p>
+ * Layout (all integers are big endian):
+ * <pre>
+ *   int    magic ("LXWL")
+ *   short  format version
+ *   long   hash of what the words were built from (see {@link #getSourceHash()})
+ *   int    number of words
+ *   short  words per block
+ *   int    number of blocks
+ *   int[]  offset of each block, from the start of the first block
+ *   int    length of all blocks
+ *   ...    blocks
+ * </pre>
+ * Within a block, the first word is a varint length followed by its UTF-8 bytes. Each word after
+ * it is a varint of how many bytes it shares with the word before, a varint length of the rest,
+ * then the rest.
+ */
+public class WordList {
+
+    static final int MAGIC = 0x4C58574C;
+    static final int VERSION = 1;
+
+    /**
+     * Small enough that finding a word only decodes a handful of others, large enough that the
+     * offsets are a small fraction of the file.
+     */
+    static final int BLOCK_SIZE = 16;
+
+    public static final String FILE_EXTENSION = ".words";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Orders UTF-8 as unsigned bytes, which is the same as ordering by code point.
+     */
+    private static final Comparator<byte[]> BYTE_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return WordList.compare(a, 0, a.length, b);
+        }
+    };
+
+    private final long sourceHash;
+    private final int size;
+    private final int blockSize;
+    private final int[] blockOffsets;
+    private final byte[] blocks;
+
+    private WordList(long sourceHash, int size, int blockSize, int[] blockOffsets, byte[] blocks) {
+        this.sourceHash = sourceHash;
+        this.size = size;
+        this.blockSize = blockSize;
+        this.blockOffsets = blockOffsets;
+        this.blocks = blocks;
+    }
+
+    /**
+     * @param words In any order, duplicates allowed.
+     * @param sourceHash Whatever the caller needs to tell whether the list is stale later on.
+     */
+    public static WordList of(Collection<String> words, long sourceHash) {
+        byte[][] encoded = new byte[words.size()][];
+        int count = 0;
+        for (String word : words) {
+            encoded[count++] = word.getBytes(UTF_8);
+        }
+        Arrays.sort(encoded, BYTE_ORDER);
+
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        List<Integer> offsets = new ArrayList<>();
+        byte[] previous = null;
+        int size = 0;
+        for (byte[] word : encoded) {
+            if (previous != null && Arrays.equals(previous, word)) {
+                continue;
+            }
+
+            if (size % BLOCK_SIZE == 0) {
+                offsets.add(blocks.size());
+                writeVarint(blocks, word.length);
+                blocks.write(word, 0, word.length);
+            } else {
+                int shared = 0;
+                int max = Math.min(previous.length, word.length);
+                while (shared < max && previous[shared] == word[shared]) {
+                    shared++;
+                }
+                writeVarint(blocks, shared);
+                writeVarint(blocks, word.length - shared);
+                blocks.write(word, shared, word.length - shared);
+            }
+
+            previous = word;
+            size++;
+        }
+
+        int[] blockOffsets = new int[offsets.size()];
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = offsets.get(i);
+        }
+        return new WordList(sourceHash, size, BLOCK_SIZE, blockOffsets, blocks.toByteArray());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whatever was passed to {@link #of(Collection, long)}. For lists written by
+     * {@link SourceDictionary}, this covers the dictionary and how its words were made.
+     */
+    public long getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * @param index In the order of the list, i.e. sorted by code point.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Word " + index + " of " + size);
+        }
+
+        Cursor cursor = new Cursor(index / blockSize);
+        for (int i = index % blockSize; i >= 0; i--) {
+            cursor.next();
+        }
+        return cursor.word();
+    }
+
+    public boolean contains(String word) {
+        byte[] target = word.getBytes(UTF_8);
+
+        // The last block whose first word is no greater than the target.
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = blockOffsets[middle];
+            long header = readVarint(blocks, offset);
+            int order = compare(blocks, (int) (header >>> 32), (int) header, target);
+            if (order == 0) {
+                return true;
+            } else if (order < 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        if (block < 0) {
+            return false;
+        }
+
+        Cursor cursor = new Cursor(block);
+        while (cursor.next() && cursor.blockIndex() == block) {
+            int order = compare(cursor.bytes, 0, cursor.length, target);
+            if (order == 0) {
+                return true;
+            } else if (order > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Steps through every word in order, decoding each into the same buffer.
+     */
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    /**
+     * Every word decoded up front, for callers which need them more than once.
+     */
+    public List<String> toList() {
+        List<String> words = new ArrayList<>(size);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            words.add(cursor.word());
+        }
+        return words;
+    }
+
+    /**
+     * Walks the words in order without creating a String for each, unless asked for one with
+     * {@link #word()}.
+     */
+    public class Cursor {
+
+        private byte[] bytes = new byte[32];
+        private int length;
+        private int index;
+        private int position;
+
+        private Cursor(int block) {
+            index = block * blockSize - 1;
+            position = block < blockOffsets.length ? blockOffsets[block] : blocks.length;
+        }
+
+        /**
+         * @return False once every word has been visited.
+         */
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+
+            index++;
+            int shared = 0;
+            if (index % blockSize != 0) {
+                long sharedVarint = readVarint(blocks, position);
+                shared = (int) sharedVarint;
+                position = (int) (sharedVarint >>> 32);
+            }
+
+            long lengthVarint = readVarint(blocks, position);
+            int rest = (int) lengthVarint;
+            position = (int) (lengthVarint >>> 32);
+
+            length = shared + rest;
+            if (length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+            }
+            System.arraycopy(blocks, position, bytes, shared, rest);
+            position += rest;
+            return true;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        private int blockIndex() {
+            return index / blockSize;
+        }
+
+        /**
+         * The current word, as UTF-8. Only valid until the next call to {@link #next()}.
+         */
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        /**
+         * How many of {@link #bytes()} make up the current word.
+         */
+        public int length() {
+            return length;
+        }
+
+        public String word() {
+            return new String(bytes, 0, length, UTF_8);
+        }
+
+    }
+
+    public static class Serializer {
+
+        public void serialize(WordList words, OutputStream out) throws IOException {
+            DataOutputStream output = new DataOutputStream(out);
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(words.sourceHash);
+            output.writeInt(words.size);
+            output.writeShort(words.blockSize);
+            output.writeInt(words.blockOffsets.length);
+            for (int offset : words.blockOffsets) {
+                output.writeInt(offset);
+            }
+            output.writeInt(words.blocks.length);
+            output.write(words.blocks);
+            output.flush();
+        }
+
+    }
+
+    public static class Deserializer {
+
+        public WordList deserialize(InputStream stream) throws IOException {
+            DataInputStream input = new DataInputStream(stream);
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a word list");
+            }
+
+            int version = input.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported word list version " + version + ", expected " + VERSION);
+            }
+
+            long sourceHash = input.readLong();
+            int size = input.readInt();
+            int blockSize = input.readUnsignedShort();
+            int[] blockOffsets = new int[input.readInt()];
+            for (int i = 0; i < blockOffsets.length; i++) {
+                blockOffsets[i] = input.readInt();
+            }
+            byte[] blocks = new byte[input.readInt()];
+            input.readFully(blocks);
+            return new WordList(sourceHash, size, blockSize, blockOffsets, blocks);
+        }
+
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @return The position after the varint in the upper 32 bits, and its value in the lower.
+     */
+    private static long readVarint(byte[] bytes, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) position << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int compare(byte[] a, int offset, int length, byte[] b) {
+        int max = Math.min(length, b.length);
+        for (int i = 0; i < max; i++) {
+            int order = (a[offset + i] & 0xFF) - (b[i] & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return length - b.length;
+    }
+
+}
@@ -0,0 +1,107 @@
+package net.healeys.trie;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A fixed set of tiles, each of which is assigned a small, dense integer code from 0 to
+ * {@link #size()} - 1. Tries which are indexed by tile use these codes instead of hashing strings.
+ * <p>
+ * Tiles may be more than one character (see {@link com.serwylo.lexica.lang.Language#applyMandatorySuffix(String)}).
+ */
+public class Alphabet {
+
+    private final String[] tiles;
+    private final Map<String, Integer> codes;
+
+    /**
+     * Codes are assigned in iteration order of {@param tiles}.
+     */
+    public Alphabet(Collection<String> tiles) {
+        this(tiles.toArray(new String[0]));
+    }
+
+    public Alphabet(String[] tiles) {
+        this.tiles = tiles;
+        this.codes = new HashMap<>(tiles.length * 2);
+        for (int i = 0; i < tiles.length; i++) {
+            codes.put(tiles[i], i);
+        }
+    }
+
+    public int size() {
+        return tiles.length;
+    }
+
+    /**
+     * @return The code for {@param tile}, or -1 if it is not part of this alphabet.
+     */
+    public int codeOf(String tile) {
+        Integer code = codes.get(tile);
+        return code == null ? -1 : code;
+    }
+
+    public String tileOf(int code) {
+        return tiles[code];
+    }
+
+    /**
+     * Resolves the value of every cell on the board to its code up front, so that solvers never
+     * need to look at strings while searching. Cells with tiles outside of this alphabet are -1.
+     */
+    public int[] codesOf(TransitionMap transitionMap) {
+        int[] boardCodes = new int[transitionMap.getSize()];
+        for (int i = 0; i < boardCodes.length; i++) {
+            boardCodes[i] = codeOf(transitionMap.valueAt(i));
+        }
+        return boardCodes;
+    }
+
+    /**
+     * Converts {@param codes} from {@param other} into the codes for the same tiles in this
+     * alphabet. Codes for tiles which this alphabet doesn't have, or which were already -1, are -1.
+     */
+    public int[] translate(Alphabet other, int[] codes) {
+        if (other == this) {
+            return codes;
+        }
+
+        int[] translated = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            translated[i] = codes[i] < 0 ? -1 : codeOf(other.tileOf(codes[i]));
+        }
+        return translated;
+    }
+
+    /**
+     * Writes the number of tiles as a short, followed by each tile as a byte length and that many
+     * UTF-8 bytes.
+     */
+    void write(DataOutputStream output) throws IOException {
+        if (tiles.length > 0xFFFF) {
+            throw new IOException("Too many distinct tiles (" + tiles.length + ") to serialize");
+        }
+
+        output.writeShort(tiles.length);
+        for (String tile : tiles) {
+            byte[] bytes = tile.getBytes("UTF-8");
+            output.writeByte(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    static Alphabet read(DataInputStream input) throws IOException {
+        String[] tiles = new String[input.readUnsignedShort()];
+        for (int i = 0; i < tiles.length; i++) {
+            byte[] bytes = new byte[input.readUnsignedByte()];
+            input.readFully(bytes);
+            tiles[i] = new String(bytes, "UTF-8");
+        }
+        return new Alphabet(tiles);
+    }
+
+}
@@ -0,0 +1,351 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps entire dictionaries in memory, so that a new board doesn't need to read and decode the
+ * dictionary all over again.
+ * <p>
+ * Each dictionary is read once (without pruning it to any particular board) and then shared by
+ * every board in that language. {@link StringTrie#solver(TransitionMap, WordFilter)} only ever
+ * follows tiles which are on the board it is given, so the shared trie serves as a view of any
+ * board without copying it. Tries handed out by this cache must not be modified.
+ * <p>
+ * A {@link VariantTrie} shares the cached dictionary of its base language, so only the delta
+ * counts towards the variant's size. If the base is evicted while the variant is still cached,
+ * the base stays in memory (and is read again the next time it is asked for directly). A base
+ * which is too large to keep is pruned to the board along with its variant, as below.
+ * <p>
+ * Some languages also have smaller dictionaries which leave out words that can't be dealt on
+ * boards with fewer cells. {@link #forBoard(Language, TransitionMap)} uses them where they exist,
+ * and falls back to the main dictionary otherwise.
+ * <p>
+ * Dictionaries are evicted, least recently used first, once their combined estimated size goes
+ * over the memory budget. A dictionary whose header says it is larger than the entire budget is
+ * never read in full by {@link #forBoard(Language, TransitionMap)}, which instead reads a copy
+ * pruned to the board (as games did before this cache existed, or lazily on large boards, see
+ * {@link #LAZY_MIN_CELLS}) and doesn't keep it. Files without a header have to be read before
+ * their size is known, so they are always read in full.
+ * <p>
+ * Dictionaries are read without holding the cache's lock, so a slow read doesn't hold up callers
+ * which want other dictionaries. Two threads which miss on the same dictionary at the same time
+ * may both read it, in which case only the first to finish is kept.
+ * <p>
+ * Most languages ship as a DAWG (see {@link MappedTrie}), which is solved straight from its bytes.
+ * Its size is simply the size of the file, and it is never pruned because it is already a fraction
+ * of what even a pruned {@link StringTrie} costs. The same goes for a {@link DoubleArrayTrie}.
+ */
+public class DictionaryCache {
+
+    /**
+     * Roughly what a decoded {@link StringTrie.Node} costs on the heap: the node itself and its
+     * arrays of child codes and children, of which most nodes have only one. Measured by comparing
+     * the heap after a full GC before and after reading an entire dictionary, on a 64 bit JVM
+     * (OpenJDK 17) with compressed pointers: en_US (157,409 nodes) took 11.0MB, or 70.2 bytes per
+     * node, and fa (215,136 nodes) took 14.8MB, or 69.0 bytes per node. Without compressed pointers
+     * it is about 80 bytes per node.
+     */
+    static final int BYTES_PER_NODE = 70;
+
+    /**
+     * A {@link DoubleArrayTrie} slot is a base int, a check int and one bit to mark words.
+     */
+    static final int BYTES_PER_STATE = 9;
+
+    /**
+     * Boards with at least this many cells are pruned by {@link StringTrie.LazyDeserializer} rather
+     * than {@link StringTrie.Deserializer}, because so much of the dictionary can be reached from
+     * a large board that decoding only what the solver visits is quicker. Load and solve per
+     * random board, eager vs lazy: en_US 4x4 3480us vs 3620us, 5x5 2900us vs 1920us, 6x6 5510us vs
+     * 2490us; fa 4x4 2870us vs 2950us, 5x5 3220us vs 3320us, 6x6 4800us vs 3200us.
+     */
+    static final int LAZY_MIN_CELLS = 36;
+
+    /**
+     * Asks for the main dictionary of a language, which suits boards of any size.
+     */
+    public static final int ANY_BOARD_SIZE = 0;
+
+    public interface Source {
+
+        /**
+         * Opens the serialized trie for {@param language}. It is closed once it has been read.
+         *
+         * @param boardSize The number of cells on the board, or {@link #ANY_BOARD_SIZE}.
+         * @return Null if there is no dictionary specific to {@param boardSize}. Must not be null
+         * for {@link #ANY_BOARD_SIZE}.
+         */
+        InputStream open(Language language, int boardSize) throws IOException;
+
+    }
+
+    private static class Entry {
+
+        final Trie trie;
+        final long size;
+
+        /**
+         * Whether {@link #trie} only holds the words which fit on one board, in which case it is
+         * never kept.
+         */
+        final boolean pruned;
+
+        Entry(Trie trie, long size, boolean pruned) {
+            this.trie = trie;
+            this.size = size;
+            this.pruned = pruned;
+        }
+    }
+
+    private final Source source;
+    private final long maxBytes;
+
+    /**
+     * Keyed by {@link #key(Language, int)}, in order of least to most recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Board sizes which the {@link Source} has no specific dictionary for, so that it isn't asked
+     * again each time.
+     */
+    private final Set<String> unavailable = new HashSet<>();
+
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0;
+
+    public DictionaryCache(Source source, long maxBytes) {
+        this.source = source;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The entire dictionary for {@param language}, read from the {@link Source} only if
+     * it is not already cached.
+     */
+    public Trie get(Language language) throws IOException {
+        return get(language, ANY_BOARD_SIZE);
+    }
+
+    /**
+     * @return The dictionary for {@param language} which is specific to boards with
+     * {@param boardSize} cells, or the main dictionary if there isn't one.
+     */
+    public Trie get(Language language, int boardSize) throws IOException {
+        return lookup(language, boardSize, null).trie;
+    }
+
+    /**
+     * @return A trie which can solve {@param board}. This is usually the shared dictionary for
+     * boards of that size (see {@link #get(Language, int)}) rather than a copy pruned to the board.
+     * If that dictionary is too large to ever fit in the budget, it is a copy pruned to the board.
+     */
+    public Trie forBoard(Language language, TransitionMap board) throws IOException {
+        return lookup(language, board.getSize(), board).trie;
+    }
+
+    /**
+     * @param board Null to always read the dictionary in full, even if it can't be kept.
+     */
+    private Entry lookup(Language language, int boardSize, TransitionMap board) throws IOException {
+        String key = key(language, boardSize);
+        boolean isUnavailable;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+
+            isUnavailable = unavailable.contains(key);
+        }
+
+        if (isUnavailable) {
+            return lookup(language, ANY_BOARD_SIZE, board);
+        }
+
+        InputStream stream = source.open(language, boardSize);
+        if (stream == null) {
+            if (boardSize == ANY_BOARD_SIZE) {
+                throw new IOException("No dictionary for " + language.getName());
+            }
+
+            synchronized (this) {
+                unavailable.add(key);
+            }
+            return lookup(language, ANY_BOARD_SIZE, board);
+        }
+
+        Entry entry;
+        try {
+            entry = read(new BufferedInputStream(stream), language, board);
+        } finally {
+            stream.close();
+        }
+
+        synchronized (this) {
+            misses++;
+            if (entry.pruned) {
+                return entry;
+            }
+
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                // Another thread read the same dictionary while this one was.
+                return existing;
+            }
+
+            if (entry.size <= maxBytes) {
+                entries.put(key, entry);
+                size += entry.size;
+                evictOver(maxBytes);
+            }
+        }
+
+        return entry;
+    }
+
+    private Entry read(BufferedInputStream in, Language language, TransitionMap board) throws IOException {
+        in.mark(Integer.MAX_VALUE);
+        DataInputStream input = new DataInputStream(in);
+        int magic = input.readInt();
+        TrieHeader header = magic == TrieHeader.MAGIC ? TrieHeader.read(input) : null;
+        in.reset();
+
+        if (magic == VariantTrie.MAGIC) {
+            return readVariant(in, language, board);
+        }
+
+        if (magic == MappedTrie.MAGIC) {
+            MappedTrie mappedTrie = new MappedTrie.Deserializer().deserialize(in, null, language);
+            return new Entry(mappedTrie, mappedTrie.byteSize(), false);
+        }
+
+        if (magic == DoubleArrayTrie.MAGIC) {
+            DoubleArrayTrie doubleArrayTrie = new DoubleArrayTrie.Deserializer().deserialize(in, null, language);
+            return new Entry(doubleArrayTrie, (long) doubleArrayTrie.getCapacity() * BYTES_PER_STATE, false);
+        }
+
+        if (board != null && header != null && (long) header.getNodeCount() * BYTES_PER_NODE > maxBytes) {
+            Deserializer<StringTrie> deserializer = board.getSize() >= LAZY_MIN_CELLS
+                    ? new StringTrie.LazyDeserializer()
+                    : new StringTrie.Deserializer();
+
+            StringTrie pruned = deserializer.deserialize(in, board, language);
+            return new Entry(pruned, estimateSize(pruned), true);
+        }
+
+        StringTrie stringTrie = new StringTrie.Deserializer().deserialize(in, null, language);
+        return new Entry(stringTrie, estimateSize(stringTrie), false);
+    }
+
+    /**
+     * The deltas are small, so they are always read in full. The base is shared with the base
+     * language itself, unless it is too large to keep, in which case both the base and the variant
+     * are pruned to {@param board} and neither is kept.
+     */
+    private Entry readVariant(InputStream in, Language language, final TransitionMap board) throws IOException {
+        final boolean[] basePruned = {false};
+        VariantTrie variant = new VariantTrie.Deserializer(baseLanguage -> {
+            Entry base = lookup(baseLanguage, ANY_BOARD_SIZE, board);
+            if (!(base.trie instanceof StringTrie)) {
+                throw new IOException("The base dictionary " + baseLanguage.getName() + " must not itself be a variant");
+            }
+
+            basePruned[0] = base.pruned;
+            return (StringTrie) base.trie;
+        }).deserialize(in, null, language);
+
+        return new Entry(variant, estimateSize(variant.additions) + estimateSize(variant.removals), basePruned[0]);
+    }
+
+    /**
+     * Drops dictionaries until no more than {@param bytes} are kept, e.g. when the system is
+     * running low on memory.
+     */
+    public synchronized void trimTo(long bytes) {
+        evictOver(Math.max(0, bytes));
+    }
+
+    public synchronized boolean contains(Language language) {
+        return entries.containsKey(key(language, ANY_BOARD_SIZE));
+    }
+
+    private static String key(Language language, int boardSize) {
+        return boardSize == ANY_BOARD_SIZE ? language.getName() : language.getName() + "/" + boardSize;
+    }
+
+    /**
+     * The estimated number of bytes used by all of the dictionaries which are currently cached.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DictionaryCache[" + entries.size() + " dictionaries, " + size + "/" + maxBytes + " bytes, hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private void evictOver(long bytes) {
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (size > bytes && leastRecentlyUsed.hasNext()) {
+            size -= leastRecentlyUsed.next().size;
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Uses the node count from the header when there is one, and otherwise counts the nodes.
+     */
+    static long estimateSize(StringTrie trie) {
+        TrieHeader header = trie.getHeader();
+        if (header != null) {
+            return (long) header.getNodeCount() * BYTES_PER_NODE;
+        }
+
+        long nodes = 0;
+        List<StringTrie.Node> toVisit = new ArrayList<>();
+        toVisit.add(trie.rootNode);
+        while (!toVisit.isEmpty()) {
+            StringTrie.Node node = toVisit.remove(toVisit.size() - 1);
+            nodes++;
+            for (int i = 0; i < node.childCount(); i++) {
+                toVisit.add(node.child(i));
+            }
+        }
+
+        return nodes * BYTES_PER_NODE;
+    }
+
+}
@@ -0,0 +1,442 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A read-only trie stored as a pair of int arrays, rather than as a graph of nodes.
+ * <p>
+ * Each node is a state number. The child of state {@code s} for the tile with code {@code c} is
+ * {@code t = base[s] + c}, and exists only if {@code check[t] == s}. Following an edge in the
+ * solver is therefore two array reads, rather than hashing a String and chasing pointers through
+ * a {@link java.util.HashMap}. There is also no per-node object overhead, so the whole dictionary
+ * costs roughly nine bytes per state.
+ * <p>
+ * Tile codes are one greater than the tiles {@link Alphabet} code, so that {@code base[s] + c}
+ * never points back at the state itself.
+ * <p>
+ * Written by the trie builder's {@code --format=double_array} option, and read by
+ * {@link DictionaryCache} like any other format.
+ */
+public class DoubleArrayTrie extends Trie {
+
+    static final int MAGIC = 0x4C584441;
+    static final int VERSION = 1;
+
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    private final Alphabet alphabet;
+    private final int[] base;
+    private final int[] check;
+    private final BitSet words;
+
+    private DoubleArrayTrie(Language language, Alphabet alphabet, int[] base, int[] check, BitSet words) {
+        super(language);
+        this.alphabet = alphabet;
+        this.base = base;
+        this.check = check;
+        this.words = words;
+    }
+
+    /**
+     * Builds a double array containing every word in {@param source}. If the source has been
+     * {@link StringTrie#minimize() minimized}, shared nodes are expanded back into separate states.
+     */
+    public DoubleArrayTrie(StringTrie source) {
+        super(source.language);
+
+        TreeSet<String> tiles = new TreeSet<>();
+        LinkedList<StringTrie.Node> toVisit = new LinkedList<>();
+        toVisit.add(source.rootNode);
+        while (!toVisit.isEmpty()) {
+            StringTrie.Node node = toVisit.removeFirst();
+            for (int i = 0; i < node.childCount(); i++) {
+                tiles.add(node.childTile(i));
+                toVisit.add(node.child(i));
+            }
+        }
+
+        alphabet = new Alphabet(tiles);
+
+        Builder builder = new Builder();
+        builder.build(source.rootNode, alphabet);
+        base = builder.base;
+        check = builder.check;
+        words = builder.words;
+    }
+
+    /**
+     * The number of array slots in use, including those which are empty. Each slot costs a base
+     * int, a check int and one bit to mark words.
+     */
+    public int getCapacity() {
+        return base.length;
+    }
+
+    @Override
+    public boolean isWord(String word) {
+        int state = ROOT;
+        int position = 0;
+        while (position < word.length()) {
+            String tile = tileAt(language, word, position);
+            int code = alphabet.codeOf(tile);
+            if (code < 0) {
+                return false;
+            }
+
+            state = childOf(state, code + 1);
+            if (state < 0) {
+                return false;
+            }
+
+            position += tile.length();
+        }
+
+        return words.get(state);
+    }
+
+    /**
+     * @return The child state reached by following {@param code} from {@param state}, or -1 if
+     * there is no such child.
+     */
+    private int childOf(int state, int code) {
+        int b = base[state];
+        if (b == 0) {
+            return -1;
+        }
+
+        int child = b + code;
+        return child < check.length && check[child] == state ? child : -1;
+    }
+
+    @Override
+    TrieWalker<Integer> walker() {
+        return new TrieWalker<Integer>() {
+            @Override
+            public Integer root() {
+                return ROOT;
+            }
+
+            @Override
+            public Integer childAt(Integer state, String tile) {
+                int code = alphabet.codeOf(tile);
+                int child = code < 0 ? -1 : childOf(state, code + 1);
+                return child < 0 ? null : child;
+            }
+
+            @Override
+            public boolean isWord(Integer state) {
+                return words.get(state);
+            }
+
+            @Override
+            public void children(Integer state, List<String> tiles, List<Integer> children) {
+                for (int code = 0; code < alphabet.size(); code++) {
+                    int child = childOf(state, code + 1);
+                    if (child >= 0) {
+                        tiles.add(alphabet.tileOf(code));
+                        children.add(child);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+
+        alphabet.write(output);
+
+        output.writeInt(base.length);
+        for (int value : base) {
+            output.writeInt(value);
+        }
+        for (int value : check) {
+            output.writeInt(value);
+        }
+
+        // One bit per slot, packed eight to a byte.
+        for (int i = 0; i < base.length; i += 8) {
+            int packed = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                if (words.get(i + bit)) {
+                    packed |= 1 << bit;
+                }
+            }
+            output.writeByte(packed);
+        }
+
+        output.flush();
+    }
+
+    private void recursiveSolver(TransitionMap transitions, WordFilter wordFilter, int[] boardCodes, int state, int pos, boolean[] usedPositions, StringBuilder prefix, Map<String, List<Solution>> solutions, List<Integer> solution) {
+
+        if (words.get(state)) {
+            String w = new String(prefix);
+            if (wordFilter == null || wordFilter.isWord(w)) {
+                Integer[] solutionArray = new Integer[solution.size()];
+                solution.toArray(solutionArray);
+                List<Solution> sols = solutions.get(w);
+                if (sols == null) {
+                    sols = new LinkedList<>();
+                    solutions.put(w, sols);
+                }
+                sols.add(new Solution.Default(w, solutionArray));
+            }
+        }
+
+        if (base[state] == 0) {
+            return;
+        }
+
+        if (!transitions.canRevisit()) {
+            usedPositions[pos] = true;
+        }
+
+        int fromX = pos % transitions.getWidth();
+        int fromY = pos / transitions.getWidth();
+
+        for (int toX = 0; toX < transitions.getWidth(); toX++) {
+            for (int toY = 0; toY < transitions.getWidth(); toY++) {
+                if (!transitions.canTransition(fromX, fromY, toX, toY)) {
+                    continue;
+                }
+
+                int toPosition = toX + transitions.getWidth() * toY;
+                if (toPosition >= boardCodes.length || usedPositions[toPosition] || boardCodes[toPosition] < 0) {
+                    continue;
+                }
+
+                int nextState = childOf(state, boardCodes[toPosition] + 1);
+                if (nextState < 0) {
+                    continue;
+                }
+
+                String valueAt = alphabet.tileOf(boardCodes[toPosition]);
+                prefix.append(valueAt);
+
+                solution.add(toPosition);
+                recursiveSolver(transitions, wordFilter, boardCodes, nextState, toPosition, usedPositions, prefix, solutions, solution);
+                solution.remove(solution.size() - 1);
+
+                prefix.delete(prefix.length() - valueAt.length(), prefix.length());
+            }
+        }
+
+        usedPositions[pos] = false;
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, WordFilter filter) {
+        return solve(transitions, alphabet.codesOf(transitions), filter);
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, int[] tileCodes, WordFilter filter) {
+        return solve(transitions, alphabet.translate(language.getAlphabet(), tileCodes), filter);
+    }
+
+    /**
+     * @param boardCodes The code of each cell in this trie's own {@link Alphabet}.
+     */
+    private Map<String, List<Solution>> solve(TransitionMap transitions, int[] boardCodes, WordFilter filter) {
+
+        Map<String, List<Solution>> solutions = new TreeMap<>();
+        StringBuilder prefix = new StringBuilder(transitions.getSize() + 1);
+        boolean[] usedPositions = new boolean[transitions.getSize()];
+
+        List<Integer> positions = new ArrayList<>(transitions.getSize());
+        for (int i = 0; i < transitions.getSize(); i++) {
+            if (boardCodes[i] < 0) {
+                continue;
+            }
+
+            int nextState = childOf(ROOT, boardCodes[i] + 1);
+            if (nextState < 0) {
+                continue;
+            }
+
+            String value = alphabet.tileOf(boardCodes[i]);
+            prefix.append(value);
+            positions.add(i);
+
+            recursiveSolver(transitions, filter, boardCodes, nextState, i, usedPositions, prefix, solutions, positions);
+
+            positions.remove(positions.size() - 1);
+            prefix.delete(prefix.length() - value.length(), prefix.length());
+        }
+
+        return solutions;
+    }
+
+    /**
+     * Places nodes breadth first, giving each node the lowest base at which all of its children
+     * land in free slots.
+     */
+    private static class Builder {
+
+        private int[] base = new int[1024];
+        private int[] check = new int[1024];
+        private final BitSet words = new BitSet();
+        private final BitSet used = new BitSet();
+
+        /**
+         * Every slot below this is known to be in use, so there is no point searching there.
+         */
+        private int firstFree = 1;
+
+        Builder() {
+            Arrays.fill(check, FREE);
+            used.set(ROOT);
+        }
+
+        void build(StringTrie.Node root, Alphabet alphabet) {
+            LinkedList<StringTrie.Node> nodes = new LinkedList<>();
+            LinkedList<Integer> states = new LinkedList<>();
+            nodes.add(root);
+            states.add(ROOT);
+
+            while (!nodes.isEmpty()) {
+                StringTrie.Node node = nodes.removeFirst();
+                int state = states.removeFirst();
+
+                if (node.word()) {
+                    words.set(state);
+                }
+
+                if (node.childCount() == 0) {
+                    continue;
+                }
+
+                // Children are in tile order, and so are the codes of the alphabet.
+                int[] codes = new int[node.childCount()];
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = alphabet.codeOf(node.childTile(i)) + 1;
+                }
+
+                int b = findBase(codes);
+                base[state] = b;
+                for (int i = 0; i < codes.length; i++) {
+                    int child = b + codes[i];
+                    ensureCapacity(child + 1);
+                    check[child] = state;
+                    used.set(child);
+                    nodes.add(node.child(i));
+                    states.add(child);
+                }
+
+                firstFree = used.nextClearBit(firstFree);
+            }
+
+            int length = used.length();
+            base = Arrays.copyOf(base, length);
+            check = Arrays.copyOf(check, length);
+        }
+
+        /**
+         * @param codes Sorted, distinct tile codes of the children to place.
+         */
+        private int findBase(int[] codes) {
+            int position = used.nextClearBit(Math.max(firstFree, codes[0] + 1));
+            while (true) {
+                int b = position - codes[0];
+                boolean fits = true;
+                for (int i = 1; i < codes.length; i++) {
+                    if (used.get(b + codes[i])) {
+                        fits = false;
+                        break;
+                    }
+                }
+
+                if (fits) {
+                    return b;
+                }
+
+                position = used.nextClearBit(position + 1);
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= base.length) {
+                return;
+            }
+
+            int newCapacity = Math.max(capacity, base.length * 2);
+            int oldCapacity = base.length;
+            base = Arrays.copyOf(base, newCapacity);
+            check = Arrays.copyOf(check, newCapacity);
+            Arrays.fill(check, oldCapacity, newCapacity, FREE);
+        }
+    }
+
+    /**
+     * Reads either a double array written by {@link #write(OutputStream)}, or any stream
+     * understood by {@link StringTrie.Deserializer} (which is pruned to the {@link TransitionMap}
+     * and then converted).
+     */
+    public static class Deserializer implements net.healeys.trie.Deserializer<DoubleArrayTrie> {
+        @Override
+        public DoubleArrayTrie deserialize(InputStream stream, TransitionMap transitionMap, Language language) throws IOException {
+            BufferedInputStream in = new BufferedInputStream(stream);
+            DataInputStream input = new DataInputStream(in);
+
+            in.mark(4);
+            int magic = input.readInt();
+            in.reset();
+
+            if (magic != MAGIC) {
+                return new DoubleArrayTrie(new StringTrie.Deserializer().deserialize(in, transitionMap, language));
+            }
+
+            input.readInt();
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported double array trie version " + version + ", expected " + VERSION);
+            }
+
+            Alphabet alphabet = Alphabet.read(input);
+
+            int length = input.readInt();
+            int[] base = new int[length];
+            int[] check = new int[length];
+            for (int i = 0; i < length; i++) {
+                base[i] = input.readInt();
+            }
+            for (int i = 0; i < length; i++) {
+                check[i] = input.readInt();
+            }
+
+            BitSet words = new BitSet(length);
+            for (int i = 0; i < length; i += 8) {
+                int packed = input.readUnsignedByte();
+                for (int bit = 0; bit < 8; bit++) {
+                    if ((packed & (1 << bit)) != 0) {
+                        words.set(i + bit);
+                    }
+                }
+            }
+
+            return new DoubleArrayTrie(language, alphabet, base, check, words);
+        }
+    }
+
+}
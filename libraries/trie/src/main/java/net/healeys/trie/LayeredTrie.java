@@ -0,0 +1,322 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A {@link StringTrie} with layers of words added and removed on top of it, none of which are
+ * copied into the base.
+ * <p>
+ * Each layer overrides everything below it: a word is in the trie if the topmost layer which
+ * mentions it adds it, or if no layer mentions it and it is in the base. Both
+ * {@link #isWord(String)} and {@link #solver(TransitionMap, WordFilter)} walk the base and every
+ * layer in lockstep, so the cost of the layers depends on their size rather than the size of the
+ * base.
+ * <p>
+ * Every layer must split words into the same tiles as the base (i.e. agree on
+ * {@link Language#applyMandatorySuffix(String)}).
+ */
+abstract class LayeredTrie extends Trie {
+
+    final StringTrie base;
+
+    /**
+     * From the bottom layer to the top.
+     */
+    private final StringTrie[] additionLayers;
+    private final StringTrie[] removalLayers;
+
+    /**
+     * Adds a layer on top of {@param below}, which must either be a {@link StringTrie} or another
+     * {@link LayeredTrie} (whose layers are then shared, not copied).
+     */
+    LayeredTrie(Language language, Trie below, StringTrie additions, StringTrie removals) {
+        super(language);
+
+        if (below instanceof StringTrie) {
+            base = (StringTrie) below;
+            additionLayers = new StringTrie[]{additions};
+            removalLayers = new StringTrie[]{removals};
+        } else if (below instanceof LayeredTrie) {
+            LayeredTrie layered = (LayeredTrie) below;
+            base = layered.base;
+            additionLayers = withLayer(layered.additionLayers, additions);
+            removalLayers = withLayer(layered.removalLayers, removals);
+        } else {
+            throw new IllegalArgumentException("Can only add layers on top of a StringTrie, or a trie which is itself layered on one, not " + below.getClass().getSimpleName());
+        }
+    }
+
+    private static StringTrie[] withLayer(StringTrie[] layers, StringTrie top) {
+        StringTrie[] all = Arrays.copyOf(layers, layers.length + 1);
+        all[layers.length] = top;
+        return all;
+    }
+
+    @Override
+    public boolean isWord(String word) {
+        for (int layer = additionLayers.length - 1; layer >= 0; layer--) {
+            if (additionLayers[layer].isWord(word)) {
+                return true;
+            }
+
+            if (removalLayers[layer].isWord(word)) {
+                return false;
+            }
+        }
+
+        return base.isWord(word);
+    }
+
+    /**
+     * The nodes which the solver has reached in the base and each layer for one prefix, laid out
+     * as the base, then the additions from bottom to top, then the removals from bottom to top.
+     * Null where a trie doesn't contain the prefix.
+     */
+    private StringTrie.Node[] newNodes() {
+        return new StringTrie.Node[1 + additionLayers.length * 2];
+    }
+
+    /**
+     * The nodes for a prefix of {@param depth} + 1 tiles, which are reused by every prefix of that
+     * length rather than allocated for each one.
+     */
+    private StringTrie.Node[] nodesAt(List<StringTrie.Node[]> nodesByDepth, int depth) {
+        while (nodesByDepth.size() <= depth) {
+            nodesByDepth.add(newNodes());
+        }
+
+        return nodesByDepth.get(depth);
+    }
+
+    private StringTrie.Node[] rootNodes() {
+        StringTrie.Node[] roots = newNodes();
+        roots[0] = base.rootNode;
+        for (int layer = 0; layer < additionLayers.length; layer++) {
+            roots[1 + layer] = additionLayers[layer].rootNode;
+            roots[1 + additionLayers.length + layer] = removalLayers[layer].rootNode;
+        }
+        return roots;
+    }
+
+    private boolean isWordAt(StringTrie.Node[] nodes) {
+        int layers = additionLayers.length;
+        for (int layer = layers - 1; layer >= 0; layer--) {
+            StringTrie.Node added = nodes[1 + layer];
+            if (added != null && added.word()) {
+                return true;
+            }
+
+            StringTrie.Node removed = nodes[1 + layers + layer];
+            if (removed != null && removed.word()) {
+                return false;
+            }
+        }
+
+        return nodes[0] != null && nodes[0].word();
+    }
+
+    /**
+     * Whether none of the base or added nodes have any children. Removals are ignored, because
+     * they can't lead to any more words.
+     */
+    private boolean isTailAt(StringTrie.Node[] nodes) {
+        for (int i = 0; i <= additionLayers.length; i++) {
+            if (nodes[i] != null && !nodes[i].isTail()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Fills {@param children} with the child of each of {@param nodes} for the tile with the
+     * {@link com.serwylo.lexica.lang.Tokenizer} code {@param tileCode}.
+     *
+     * @return False if neither the base nor any of the additions can lead to a long enough word
+     * (see {@link StringTrie.Node#canCompleteWord(int, int)}) after the tile.
+     */
+    private boolean childrenAt(StringTrie.Node[] nodes, StringTrie.Node[] children, int tileCode, int freeCells, int charsRequired) {
+        boolean anyWords = false;
+        for (int i = 0; i <= additionLayers.length; i++) {
+            StringTrie.Node child = nodes[i] == null ? null : nodes[i].maybeChildAt(tileCode);
+            children[i] = child != null && child.canCompleteWord(freeCells, charsRequired) ? child : null;
+            anyWords |= children[i] != null;
+        }
+
+        if (!anyWords) {
+            return false;
+        }
+
+        // Removals only matter where they shadow a word from the base or a lower layer.
+        int layers = additionLayers.length;
+        boolean anyBelow = children[0] != null;
+        for (int layer = 0; layer < layers; layer++) {
+            StringTrie.Node removed = nodes[1 + layers + layer];
+            children[1 + layers + layer] = anyBelow && removed != null ? removed.maybeChildAt(tileCode) : null;
+            anyBelow |= children[1 + layer] != null;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param nodesByDepth See {@link #nodesAt(List, int)}.
+     */
+    private void recursiveSolver(TransitionMap transitions, WordFilter wordFilter, int minLength, String[] tiles, int[] codes, int[][] neighbours, List<StringTrie.Node[]> nodesByDepth, int pos, boolean[] usedPositions, StringBuilder prefix, Map<String, List<Solution>> solutions, List<Integer> solution) {
+
+        StringTrie.Node[] nodes = nodesAt(nodesByDepth, solution.size() - 1);
+
+        if (isWordAt(nodes)) {
+            String w = new String(prefix);
+            if (wordFilter == null || wordFilter.isWord(w)) {
+                Integer[] solutionArray = new Integer[solution.size()];
+                solution.toArray(solutionArray);
+                List<Solution> sols = solutions.get(w);
+                if (sols == null) {
+                    sols = new LinkedList<>();
+                    solutions.put(w, sols);
+                }
+                sols.add(new StringTrie.StringSolution(w, solutionArray));
+            }
+        }
+
+        if (isTailAt(nodes)) {
+            return;
+        }
+
+        if (!transitions.canRevisit()) {
+            usedPositions[pos] = true;
+        }
+
+        int freeCells = StringTrie.freeCellsAfter(transitions, solution.size() + 1);
+        StringTrie.Node[] children = nodesAt(nodesByDepth, solution.size());
+
+        for (int toPosition : neighbours[pos]) {
+            if (usedPositions[toPosition] || codes[toPosition] < 0) {
+                continue;
+            }
+
+            String valueAt = tiles[toPosition];
+            if (!childrenAt(nodes, children, codes[toPosition], freeCells, minLength - prefix.length() - valueAt.length())) {
+                continue;
+            }
+
+            prefix.append(valueAt);
+
+            solution.add(toPosition);
+            recursiveSolver(transitions, wordFilter, minLength, tiles, codes, neighbours, nodesByDepth, toPosition, usedPositions, prefix, solutions, solution);
+            solution.remove(solution.size() - 1);
+
+            prefix.delete(prefix.length() - valueAt.length(), prefix.length());
+        }
+
+        usedPositions[pos] = false;
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, WordFilter filter) {
+        return solve(transitions, StringTrie.cellCodes(transitions, language), filter);
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, int[] tileCodes, WordFilter filter) {
+        return solve(transitions, StringTrie.cellCodes(tileCodes, language), filter);
+    }
+
+    /**
+     * @param codes The {@link com.serwylo.lexica.lang.Tokenizer} code of each cell.
+     */
+    private Map<String, List<Solution>> solve(TransitionMap transitions, int[] codes, WordFilter filter) {
+
+        int minLength = filter instanceof WordFilter.MinLength ? ((WordFilter.MinLength) filter).getMinLength() : 0;
+        int[][] neighbours = StringTrie.neighbours(transitions);
+        String[] tiles = StringTrie.tiles(codes, language);
+
+        Map<String, List<Solution>> solutions = new TreeMap<>();
+        StringBuilder prefix = new StringBuilder(transitions.getSize() + 1);
+        boolean[] usedPositions = new boolean[transitions.getSize()];
+        int freeCells = StringTrie.freeCellsAfter(transitions, 1);
+
+        StringTrie.Node[] roots = rootNodes();
+        List<StringTrie.Node[]> nodesByDepth = new ArrayList<>(transitions.getSize());
+
+        List<Integer> positions = new ArrayList<>(transitions.getSize());
+        for (int i = 0; i < tiles.length; i++) {
+            if (codes[i] < 0) {
+                continue;
+            }
+
+            String value = tiles[i];
+            if (!childrenAt(roots, nodesAt(nodesByDepth, 0), codes[i], freeCells, minLength - value.length())) {
+                continue;
+            }
+
+            prefix.append(value);
+            positions.add(i);
+
+            recursiveSolver(transitions, filter, minLength, tiles, codes, neighbours, nodesByDepth, i, usedPositions, prefix, solutions, positions);
+
+            positions.remove(positions.size() - 1);
+            prefix.delete(prefix.length() - value.length(), prefix.length());
+        }
+
+        return solutions;
+    }
+
+    @Override
+    TrieWalker<StringTrie.Node[]> walker() {
+        return new TrieWalker<StringTrie.Node[]>() {
+            @Override
+            public StringTrie.Node[] root() {
+                return rootNodes();
+            }
+
+            @Override
+            public StringTrie.Node[] childAt(StringTrie.Node[] nodes, String tile) {
+                return childAt(nodes, language.getTokenizer().codeOf(tile));
+            }
+
+            private StringTrie.Node[] childAt(StringTrie.Node[] nodes, int tileCode) {
+                StringTrie.Node[] children = newNodes();
+                return childrenAt(nodes, children, tileCode, Integer.MAX_VALUE, 0) ? children : null;
+            }
+
+            @Override
+            public boolean isWord(StringTrie.Node[] nodes) {
+                return isWordAt(nodes);
+            }
+
+            @Override
+            public void children(StringTrie.Node[] nodes, List<String> tiles, List<StringTrie.Node[]> children) {
+                // Codes sort in the same order as their tiles.
+                Set<Integer> allTileCodes = new TreeSet<>();
+                for (int i = 0; i <= additionLayers.length; i++) {
+                    if (nodes[i] != null) {
+                        for (int child = 0; child < nodes[i].childCount(); child++) {
+                            allTileCodes.add(nodes[i].childCode(child));
+                        }
+                    }
+                }
+
+                for (int tileCode : allTileCodes) {
+                    StringTrie.Node[] child = childAt(nodes, tileCode);
+                    if (child != null) {
+                        tiles.add(language.getTokenizer().tileOf(tileCode));
+                        children.add(child);
+                    }
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,414 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A read-only trie which answers {@link #isWord(String)} and {@link #solver(TransitionMap, WordFilter)}
+ * directly from its serialized form, without parsing it into a graph of objects first.
+ * <p>
+ * Unlike the format written by {@link StringTrie}, every node in this format records the absolute
+ * offset of each of its children. Following an edge is therefore a binary search over a small table
+ * followed by a jump, and nothing needs to be read in order. When the buffer is a
+ * {@link java.nio.MappedByteBuffer} (see {@link #map(File, Language)}), only the pages which the
+ * current board can actually reach are ever read from disk.
+ * <p>
+ * The app ships most dictionaries in this format as a DAWG (the trie builder's {@code --format=dawg}),
+ * and loads them through {@link DictionaryCache}. Variants and the languages they are based on are
+ * still {@link StringTrie} files, because {@link VariantTrie} edits its base.
+ * <p>
+ * Because children are referenced by offset, many parents can point at the same node. Serializing
+ * a {@link StringTrie} which has been {@link StringTrie#minimize() minimized} therefore produces a
+ * DAWG, which can be read and solved by this class without any changes.
+ * <p>
+ * Layout (all integers are big endian, all offsets are relative to the start of the buffer):
+ * <pre>
+ *   int    magic ("LXMT")
+ *   int    format version
+ *   ...    tile alphabet (see {@link Alphabet#write(java.io.DataOutputStream)})
+ *   int    offset of the root node
+ *   ...    nodes
+ * </pre>
+ * Each node is:
+ * <pre>
+ *   byte   flags, see {@link #FLAG_WORD}
+ *   short  number of children, followed by a (short tile index, int node offset) pair for each child,
+ *          ordered by tile index.
+ * </pre>
+ */
+public class MappedTrie extends Trie {
+
+    static final int MAGIC = 0x4C584D54;
+    static final int VERSION = 2;
+
+    /**
+     * Set in a nodes flags if the path from the root to this node spells a word.
+     */
+    private static final int FLAG_WORD = 1;
+
+    private static final int NODE_HEADER_SIZE = 3;
+    private static final int CHILD_ENTRY_SIZE = 6;
+
+    private final ByteBuffer buffer;
+    private final Alphabet alphabet;
+    private final int rootOffset;
+
+    public MappedTrie(Language language, ByteBuffer buffer) throws IOException {
+        super(language);
+        this.buffer = buffer;
+
+        if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped trie");
+        }
+
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported mapped trie version " + version + ", expected " + VERSION);
+        }
+
+        int offset = 8;
+        int tileCount = buffer.getShort(offset) & 0xFFFF;
+        offset += 2;
+
+        String[] tiles = new String[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            int length = buffer.get(offset) & 0xFF;
+            offset++;
+
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(offset + j);
+            }
+            offset += length;
+
+            tiles[i] = new String(bytes, "UTF-8");
+        }
+
+        alphabet = new Alphabet(tiles);
+        rootOffset = buffer.getInt(offset);
+    }
+
+    /**
+     * Memory maps {@param file}, so that the operating system only pages in those parts of the
+     * trie which are actually visited.
+     */
+    public static MappedTrie map(File file, Language language) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+
+            // The mapping remains valid after the channel is closed.
+            return new MappedTrie(language, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * The number of bytes this trie is read from, which is all it ever holds in memory.
+     */
+    int byteSize() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public boolean isWord(String word) {
+        int node = rootOffset;
+        int position = 0;
+        while (position < word.length()) {
+            String tile = tileAt(language, word, position);
+            int tileIndex = alphabet.codeOf(tile);
+            if (tileIndex < 0) {
+                return false;
+            }
+
+            node = childOf(node, tileIndex);
+            if (node < 0) {
+                return false;
+            }
+
+            position += tile.length();
+        }
+
+        return isWordAt(node);
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer toWrite = buffer.duplicate();
+        toWrite.position(0);
+        Channels.newChannel(out).write(toWrite);
+    }
+
+    @Override
+    TrieWalker<Integer> walker() {
+        return new TrieWalker<Integer>() {
+            @Override
+            public Integer root() {
+                return rootOffset;
+            }
+
+            @Override
+            public Integer childAt(Integer node, String tile) {
+                int tileIndex = alphabet.codeOf(tile);
+                int child = tileIndex < 0 ? -1 : childOf(node, tileIndex);
+                return child < 0 ? null : child;
+            }
+
+            @Override
+            public boolean isWord(Integer node) {
+                return isWordAt(node);
+            }
+
+            @Override
+            public void children(Integer node, List<String> tiles, List<Integer> children) {
+                int childTable = node + NODE_HEADER_SIZE;
+                for (int i = 0; i < childCountAt(node); i++) {
+                    int entry = childTable + i * CHILD_ENTRY_SIZE;
+                    tiles.add(alphabet.tileOf(buffer.getShort(entry) & 0xFFFF));
+                    children.add(buffer.getInt(entry + 2));
+                }
+            }
+        };
+    }
+
+    private boolean isWordAt(int node) {
+        return (buffer.get(node) & FLAG_WORD) != 0;
+    }
+
+    private int childCountAt(int node) {
+        return buffer.getShort(node + 1) & 0xFFFF;
+    }
+
+    /**
+     * @return The offset of the child reached by following {@param tileIndex} from {@param node},
+     * or -1 if there is no such child.
+     */
+    private int childOf(int node, int tileIndex) {
+        int low = 0;
+        int high = childCountAt(node) - 1;
+        int childTable = node + NODE_HEADER_SIZE;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = childTable + mid * CHILD_ENTRY_SIZE;
+            int midTile = buffer.getShort(entry) & 0xFFFF;
+            if (midTile < tileIndex) {
+                low = mid + 1;
+            } else if (midTile > tileIndex) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entry + 2);
+            }
+        }
+
+        return -1;
+    }
+
+    private void recursiveSolver(TransitionMap transitions, WordFilter wordFilter, int[] boardTiles, int node, int pos, boolean[] usedPositions, StringBuilder prefix, Map<String, List<Solution>> solutions, List<Integer> solution) {
+
+        if (isWordAt(node)) {
+            String w = new String(prefix);
+            if (wordFilter == null || wordFilter.isWord(w)) {
+                Integer[] solutionArray = new Integer[solution.size()];
+                solution.toArray(solutionArray);
+                List<Solution> sols = solutions.get(w);
+                if (sols == null) {
+                    sols = new LinkedList<>();
+                    solutions.put(w, sols);
+                }
+                sols.add(new Solution.Default(w, solutionArray));
+            }
+        }
+
+        if (childCountAt(node) == 0) {
+            return;
+        }
+
+        if (!transitions.canRevisit()) {
+            usedPositions[pos] = true;
+        }
+
+        int fromX = pos % transitions.getWidth();
+        int fromY = pos / transitions.getWidth();
+
+        for (int toX = 0; toX < transitions.getWidth(); toX++) {
+            for (int toY = 0; toY < transitions.getWidth(); toY++) {
+                if (!transitions.canTransition(fromX, fromY, toX, toY)) {
+                    continue;
+                }
+
+                int toPosition = toX + transitions.getWidth() * toY;
+                if (toPosition >= boardTiles.length || usedPositions[toPosition] || boardTiles[toPosition] < 0) {
+                    continue;
+                }
+
+                int nextNode = childOf(node, boardTiles[toPosition]);
+                if (nextNode < 0) {
+                    continue;
+                }
+
+                String valueAt = alphabet.tileOf(boardTiles[toPosition]);
+                prefix.append(valueAt);
+
+                solution.add(toPosition);
+                recursiveSolver(transitions, wordFilter, boardTiles, nextNode, toPosition, usedPositions, prefix, solutions, solution);
+                solution.remove(solution.size() - 1);
+
+                prefix.delete(prefix.length() - valueAt.length(), prefix.length());
+            }
+        }
+
+        usedPositions[pos] = false;
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, WordFilter filter) {
+        return solve(transitions, alphabet.codesOf(transitions), filter);
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, int[] tileCodes, WordFilter filter) {
+        return solve(transitions, alphabet.translate(language.getAlphabet(), tileCodes), filter);
+    }
+
+    /**
+     * @param boardTiles The code of each cell in this trie's own {@link Alphabet}.
+     */
+    private Map<String, List<Solution>> solve(TransitionMap transitions, int[] boardTiles, WordFilter filter) {
+
+        Map<String, List<Solution>> solutions = new TreeMap<>();
+        StringBuilder prefix = new StringBuilder(transitions.getSize() + 1);
+        boolean[] usedPositions = new boolean[transitions.getSize()];
+
+        List<Integer> positions = new ArrayList<>(transitions.getSize());
+        for (int i = 0; i < transitions.getSize(); i++) {
+            if (boardTiles[i] < 0) {
+                continue;
+            }
+
+            int nextNode = childOf(rootOffset, boardTiles[i]);
+            if (nextNode < 0) {
+                continue;
+            }
+
+            String value = alphabet.tileOf(boardTiles[i]);
+            prefix.append(value);
+            positions.add(i);
+
+            recursiveSolver(transitions, filter, boardTiles, nextNode, i, usedPositions, prefix, solutions, positions);
+
+            positions.remove(positions.size() - 1);
+            prefix.delete(prefix.length() - value.length(), prefix.length());
+        }
+
+        return solutions;
+    }
+
+    /**
+     * Writes a {@link StringTrie} in the random access format understood by {@link MappedTrie}.
+     * <p>
+     * Nodes are laid out breadth first, so that the top few levels of the trie (which are visited
+     * when solving every board) end up next to each other at the start of the file. A node which is
+     * reachable via more than one path is only written once. Siblings are queued in tile order, so
+     * the same words always produce the same bytes.
+     */
+    public static class Serializer {
+
+        public void serialize(StringTrie trie, OutputStream out) throws IOException {
+            List<StringTrie.Node> nodes = new ArrayList<>();
+            Map<StringTrie.Node, Integer> offsets = new IdentityHashMap<>();
+            Set<String> tileSet = new TreeSet<>();
+
+            LinkedList<StringTrie.Node> queue = new LinkedList<>();
+            queue.add(trie.rootNode);
+            offsets.put(trie.rootNode, -1);
+            while (!queue.isEmpty()) {
+                StringTrie.Node node = queue.removeFirst();
+                nodes.add(node);
+                for (int i = 0; i < node.childCount(); i++) {
+                    StringTrie.Node child = node.child(i);
+                    tileSet.add(node.childTile(i));
+                    if (!offsets.containsKey(child)) {
+                        offsets.put(child, -1);
+                        queue.add(child);
+                    }
+                }
+            }
+
+            Alphabet alphabet = new Alphabet(tileSet);
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream headerData = new DataOutputStream(header);
+            headerData.writeInt(MAGIC);
+            headerData.writeInt(VERSION);
+            alphabet.write(headerData);
+
+            int offset = header.size() + 4;
+            for (StringTrie.Node node : nodes) {
+                offsets.put(node, offset);
+                offset += NODE_HEADER_SIZE + CHILD_ENTRY_SIZE * node.childCount();
+            }
+
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+            header.writeTo(output);
+            output.writeInt(offsets.get(trie.rootNode));
+
+            for (StringTrie.Node node : nodes) {
+                output.writeByte(node.word() ? FLAG_WORD : 0);
+                output.writeShort(node.childCount());
+
+                // Children are in tile order, and so are the codes of the alphabet.
+                for (int i = 0; i < node.childCount(); i++) {
+                    output.writeShort(alphabet.codeOf(node.childTile(i)));
+                    output.writeInt(offsets.get(node.child(i)));
+                }
+            }
+
+            output.flush();
+        }
+
+    }
+
+    /**
+     * Memory maps the rest of the file when {@param stream} reads from one, and otherwise has no
+     * choice but to copy the entire stream onto the heap as-is. There is no need to prune the trie
+     * based on the {@link TransitionMap}, because nothing is decoded until it is visited.
+     */
+    public static class Deserializer implements net.healeys.trie.Deserializer<MappedTrie> {
+        @Override
+        public MappedTrie deserialize(InputStream stream, TransitionMap transitionMap, Language language) throws IOException {
+            if (stream instanceof FileInputStream) {
+                FileChannel channel = ((FileInputStream) stream).getChannel();
+                long position = channel.position();
+                return new MappedTrie(language, channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(stream.available(), 8192));
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = stream.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
+            }
+
+            return new MappedTrie(language, ByteBuffer.wrap(bytes.toByteArray()));
+        }
+    }
+
+}
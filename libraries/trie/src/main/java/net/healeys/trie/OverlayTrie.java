@@ -0,0 +1,107 @@
+package net.healeys.trie;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Adds and removes words on top of a shipped dictionary at runtime, e.g. for house word lists or
+ * moderation lists, without rebuilding or copying the dictionary.
+ * <p>
+ * The words are kept in a small trie of additions and a small trie of removals, which are walked
+ * in lockstep with the dictionary (see {@link LayeredTrie}), so solving a board costs little more
+ * than solving it with the dictionary alone. Whichever of {@link #addWord(String)} and
+ * {@link #removeWord(String)} was called last for a word wins.
+ * <p>
+ * The dictionary is never modified, so it is safe to use one which is shared with other boards
+ * (e.g. from {@link DictionaryCache}). It may be a {@link StringTrie}, a {@link VariantTrie} or
+ * another {@link OverlayTrie}, in which case changes to the one below show through. Words must be
+ * in the same form as those in the dictionary (i.e. lower case). Words must not be added or
+ * removed while a board is being solved.
+ */
+public class OverlayTrie extends LayeredTrie {
+
+    private final StringTrie additions;
+    private final StringTrie removals;
+
+    public OverlayTrie(Trie dictionary) {
+        this(dictionary, new StringTrie(dictionary.language), new StringTrie(dictionary.language));
+    }
+
+    private OverlayTrie(Trie dictionary, StringTrie additions, StringTrie removals) {
+        super(dictionary.language, dictionary, additions, removals);
+        this.additions = additions;
+        this.removals = removals;
+    }
+
+    public void addWord(String w) {
+        additions.addWord(w);
+        removals.unmarkWord(w);
+    }
+
+    public void removeWord(String w) {
+        removals.addWord(w);
+        additions.unmarkWord(w);
+    }
+
+    private interface WordVisitor {
+        void visit(String word) throws IOException;
+    }
+
+    /**
+     * Writes every word in the overlay, with the additions and removals applied, the same as a
+     * {@link StringTrie} of those words would be written (e.g. to ship a house word list as a
+     * dictionary of its own). The words are read from the tries below in {@link TileOrder} and go
+     * straight to a {@link StreamingTrieWriter}, so they are never all held in memory. They are
+     * read twice, because the alphabet needs to be known before anything can be written.
+     */
+    @Override
+    public void write(OutputStream out) throws IOException {
+        final Set<String> tiles = new TreeSet<>();
+        visitWords(walker(), walker().root(), new StringBuilder(), new WordVisitor() {
+            @Override
+            public void visit(String word) {
+                int position = 0;
+                while (position < word.length()) {
+                    String tile = tileAt(language, word, position);
+                    tiles.add(tile);
+                    position += tile.length();
+                }
+            }
+        });
+
+        try (final StreamingTrieWriter writer = new StreamingTrieWriter(language, tiles, TrieHeader.NO_SOURCE_HASH)) {
+            visitWords(walker(), walker().root(), new StringBuilder(), new WordVisitor() {
+                @Override
+                public void visit(String word) throws IOException {
+                    writer.addWord(word);
+                }
+            });
+
+            writer.finish();
+            writer.writeTo(out);
+        }
+    }
+
+    /**
+     * Depth first, in tile order, so each word comes before any longer words which start with it.
+     */
+    private static <N> void visitWords(TrieWalker<N> walker, N node, StringBuilder prefix, WordVisitor visitor) throws IOException {
+        if (prefix.length() > 0 && walker.isWord(node)) {
+            visitor.visit(prefix.toString());
+        }
+
+        List<String> tiles = new ArrayList<>();
+        List<N> children = new ArrayList<>();
+        walker.children(node, tiles, children);
+        for (int i = 0; i < tiles.size(); i++) {
+            prefix.append(tiles.get(i));
+            visitWords(walker, children.get(i), prefix, visitor);
+            prefix.setLength(prefix.length() - tiles.get(i).length());
+        }
+    }
+
+}
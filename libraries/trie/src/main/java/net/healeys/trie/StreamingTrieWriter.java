@@ -0,0 +1,308 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes the same bytes as {@link StringTrie#write(OutputStream, long)} would for the same words,
+ * without ever building the trie in memory.
+ * <p>
+ * Words must be added in {@link TileOrder}. Then once a word stops sharing a prefix with the word
+ * before it, every node below that prefix is complete. Nodes are written in the order they are
+ * first seen, which is the order the trie is serialized in, but none of them can be serialized
+ * until they are complete: each starts with the size of its subtree and lists its children. So
+ * each node is given a fixed size record in a temporary file as soon as it is seen, filled in once
+ * it is complete, and only the path to the current word is held in memory. The records are turned
+ * into the serialized trie as they are copied out.
+ * <p>
+ * The header has to count every node before any of them can be read, so the trie can only be
+ * written out by {@link #writeTo(OutputStream)} once {@link #finish()} has been called.
+ */
+public class StreamingTrieWriter implements Closeable {
+
+    private static final int NO_WORD = Integer.MAX_VALUE;
+
+    /**
+     * A node on the path to the most recently added word, which may still get more children.
+     */
+    private static class OpenNode {
+
+        final String tile;
+
+        /**
+         * Where this node comes in the serialized trie, and so which record it is.
+         */
+        final int index;
+
+        final List<String> childTiles = new ArrayList<>();
+
+        boolean isWord = false;
+        int nodeCount = 1;
+
+        /**
+         * See {@link StringTrie.Node#minTilesToWord}, calculated from the children closed so far.
+         */
+        int minTilesToWord = NO_WORD;
+
+        /**
+         * See {@link StringTrie.Node#maxCharsToWord}, calculated from the children closed so far.
+         */
+        int maxCharsToWord = 0;
+
+        OpenNode(String tile, int index) {
+            this.tile = tile;
+            this.index = index;
+        }
+    }
+
+    private final Language language;
+
+    /**
+     * Everything but the alphabet is filled in by {@link #finish()}.
+     */
+    private TrieHeader header;
+
+    private final int bytesPerChild;
+
+    /**
+     * The node count, whether it is a word, the two annotations, then one bit for each tile in the
+     * alphabet which it has a child for.
+     */
+    private final int recordSize;
+
+    private final File recordFile;
+    private RandomAccessFile records;
+    private boolean finished = false;
+
+    private final List<OpenNode> path = new ArrayList<>();
+    private int nodesSeen = 1;
+    private int wordCount = 0;
+    private int maxWordLength = 0;
+
+    /**
+     * @param tiles      Every tile used by the words which will be added. Extra tiles are allowed,
+     *                   but make the alphabet in the header differ from the one
+     *                   {@link StringTrie#write(OutputStream)} would have written.
+     * @param sourceHash See {@link TrieHeader#getSourceHash()}.
+     */
+    public StreamingTrieWriter(Language language, Collection<String> tiles, long sourceHash) throws IOException {
+        this.language = language;
+        this.header = new TrieHeader(TrieHeader.VERSION, new Alphabet(new TreeSet<>(tiles)), 0, 0, 0, sourceHash, 0);
+
+        // The same as in StringTrie.Node#writeNode(DataOutputStream, TrieHeader, Layout).
+        this.bytesPerChild = 4 + 7 + header.getTileIndexSize();
+        this.recordSize = 4 + 1 + 2 + 2 + (header.getAlphabet().size() + 7) / 8;
+
+        recordFile = File.createTempFile("trie", ".nodes");
+        recordFile.deleteOnExit();
+        records = new RandomAccessFile(recordFile, "rw");
+
+        path.add(new OpenNode(null, 0));
+    }
+
+    /**
+     * @param word Must not come before the previous word in {@link TileOrder}. Adding the same word
+     *             twice in a row has no effect.
+     */
+    public void addWord(String word) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Can't add words once the trie is finished");
+        }
+
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("Can't add an empty word");
+        }
+
+        List<String> tiles = new ArrayList<>();
+        int position = 0;
+        while (position < word.length()) {
+            String tile = Trie.tileAt(language, word, position);
+            if (header.getAlphabet().codeOf(tile) == -1) {
+                throw new IllegalArgumentException("The " + tile + " tile in " + word + " is not in the alphabet");
+            }
+
+            tiles.add(tile);
+            position += tile.length();
+        }
+
+        // The path (after the root) spells out the previous word, so only the part of it which
+        // the new word doesn't share is complete.
+        int depth = path.size() - 1;
+        int shared = 0;
+        while (shared < depth && shared < tiles.size() && tiles.get(shared).equals(path.get(shared + 1).tile)) {
+            shared++;
+        }
+
+        if (shared == tiles.size()) {
+            if (shared == depth) {
+                return;
+            }
+
+            throw new IllegalArgumentException(word + " must be added before the words which start with it");
+        }
+
+        if (shared < depth && tiles.get(shared).compareTo(path.get(shared + 1).tile) < 0) {
+            throw new IllegalArgumentException(word + " comes before the word added before it (see " + TileOrder.class.getSimpleName() + ")");
+        }
+
+        while (path.size() > shared + 1) {
+            closeNode();
+        }
+
+        for (int i = shared; i < tiles.size(); i++) {
+            path.get(path.size() - 1).childTiles.add(tiles.get(i));
+            path.add(new OpenNode(tiles.get(i), nodesSeen++));
+        }
+
+        OpenNode last = path.get(path.size() - 1);
+        last.isWord = true;
+        last.minTilesToWord = 0;
+        wordCount++;
+        maxWordLength = Math.max(maxWordLength, tiles.size());
+    }
+
+    /**
+     * Fills in the record of the node at the end of the path, which is now complete.
+     */
+    private void closeNode() throws IOException {
+        OpenNode node = path.remove(path.size() - 1);
+        writeRecord(node);
+
+        OpenNode parent = path.get(path.size() - 1);
+        parent.nodeCount += node.nodeCount;
+        if (node.minTilesToWord != NO_WORD) {
+            parent.minTilesToWord = Math.min(parent.minTilesToWord, node.minTilesToWord + 1);
+            parent.maxCharsToWord = Math.max(parent.maxCharsToWord, node.maxCharsToWord + node.tile.length());
+        }
+    }
+
+    private void writeRecord(OpenNode node) throws IOException {
+        byte[] record = new byte[recordSize];
+        record[0] = (byte) (node.nodeCount >>> 24);
+        record[1] = (byte) (node.nodeCount >>> 16);
+        record[2] = (byte) (node.nodeCount >>> 8);
+        record[3] = (byte) node.nodeCount;
+        record[4] = (byte) (node.isWord ? 1 : 0);
+
+        int minTilesToWord = Math.min(node.minTilesToWord, TrieHeader.ANNOTATION_OVERFLOW);
+        int maxCharsToWord = Math.min(node.maxCharsToWord, TrieHeader.ANNOTATION_OVERFLOW);
+        record[5] = (byte) (minTilesToWord >>> 8);
+        record[6] = (byte) minTilesToWord;
+        record[7] = (byte) (maxCharsToWord >>> 8);
+        record[8] = (byte) maxCharsToWord;
+
+        for (String tile : node.childTiles) {
+            int code = header.getAlphabet().codeOf(tile);
+            record[9 + code / 8] |= 1 << (code % 8);
+        }
+
+        records.seek((long) node.index * recordSize);
+        records.write(record);
+    }
+
+    /**
+     * Completes the trie once every word has been added, after which it can be written out by
+     * {@link #writeTo(OutputStream)} as many times as needed.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        while (path.size() > 1) {
+            closeNode();
+        }
+        writeRecord(path.get(0));
+        records.close();
+        records = null;
+        finished = true;
+
+        OpenNode root = path.get(0);
+        header = new TrieHeader(TrieHeader.VERSION, header.getAlphabet(), root.nodeCount, wordCount, maxWordLength, header.getSourceHash(), 0);
+
+        CheckedOutputStream checksum = new CheckedOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, new CRC32());
+        writeNodes(checksum);
+
+        header = header.withChecksum((int) checksum.getChecksum().getValue());
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (!finished) {
+            throw new IllegalStateException("Call finish() before writing the trie");
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        header.write(output);
+        output.flush();
+        writeNodes(out);
+    }
+
+    /**
+     * Serializes every node from its record, the same way as {@link StringTrie.Node}.
+     */
+    private void writeNodes(OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        byte[] record = new byte[recordSize];
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(recordFile)))) {
+            for (int i = 0; i < nodesSeen; i++) {
+                input.readFully(record);
+                int nodeCount = (record[0] & 0xFF) << 24 | (record[1] & 0xFF) << 16 | (record[2] & 0xFF) << 8 | (record[3] & 0xFF);
+
+                output.writeInt(7 + (nodeCount - 1) * bytesPerChild);
+                output.write(record, 4, 5);
+
+                int childCount = 0;
+                for (int j = 9; j < recordSize; j++) {
+                    childCount += Integer.bitCount(record[j] & 0xFF);
+                }
+                output.writeShort(childCount);
+                for (int code = 0; code < header.getAlphabet().size(); code++) {
+                    if ((record[9 + code / 8] & (1 << (code % 8))) != 0) {
+                        header.writeTileIndex(output, code);
+                    }
+                }
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Deletes the temporary file, after which nothing more can be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (records != null) {
+            records.close();
+            records = null;
+        }
+
+        if (recordFile.exists() && !recordFile.delete()) {
+            throw new IOException("Unable to delete " + recordFile);
+        }
+    }
+
+}
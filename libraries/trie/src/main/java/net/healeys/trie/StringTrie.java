@@ -1,15 +1,20 @@
 package net.healeys.trie;
 
 import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Tokenizer;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -17,91 +22,504 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 public class StringTrie extends Trie {
 
-    private final Node rootNode;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final Node rootNode;
+
+    /**
+     * Only present when this trie was deserialized from a stream which included a header.
+     */
+    private final TrieHeader header;
+
+    /**
+     * Set once {@link #minimize()} has merged subtrees, after which nodes may be shared between
+     * many words and it is no longer safe to add new words.
+     */
+    private boolean minimized = false;
 
     public StringTrie(Language language) {
         super(language);
         rootNode = new Node(language);
+        header = null;
     }
 
     /**
-     * Decides whether you can transition from one cell to another, purely based on whether both the
-     * source and destination cell are present on the board.
+     * Decides whether a path through the trie could possibly be spelled out on the board, based only
+     * on which tiles are on the board, how many copies of each there are, and which tiles are next to
+     * which other tiles somewhere on the board.
      * <p>
      * It doesn't have enough information to figure out which words can and can't be done correctly.
      * However it does have enough information to exclude large portions of a dictionary-sized
      * trie very quickly, instead of spending time reading and parsing it.
-     * Using this approximately halves the loading time in my basic tests.
+     * <p>
+     * Each distinct tile on the board is given a small code. Adjacency is a bit matrix indexed by
+     * those codes, so checking a transition is a couple of array reads rather than hashing strings.
      */
-    private static class CheapTransitionMap {
-
-        private Map<String, Set<String>> transitions = new HashMap<>();
-
-        CheapTransitionMap(TransitionMap transitionMap) {
-            for (int fromPos = 0; fromPos < transitionMap.getSize(); fromPos++) {
+    private static class BoardTiles {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        /**
+         * How many cells hold each tile, or {@link Integer#MAX_VALUE} if cells can be revisited.
+         */
+        private final int[] copies;
+
+        /**
+         * How many copies of each tile are used by the path currently being read.
+         */
+        private final int[] used;
+
+        /**
+         * Bit {@code to} of row {@code from} is set if a cell with tile {@code from} is next to a
+         * cell with tile {@code to}.
+         */
+        private final long[] adjacency;
+        private final int longsPerRow;
+
+        BoardTiles(TransitionMap board) {
+            int[] cellCodes = new int[board.getSize()];
+            for (int i = 0; i < cellCodes.length; i++) {
+                String tile = board.valueAt(i);
+                Integer code = codes.get(tile);
+                if (code == null) {
+                    code = codes.size();
+                    codes.put(tile, code);
+                }
+                cellCodes[i] = code;
+            }
 
-                String from = transitionMap.valueAt(fromPos);
+            copies = new int[codes.size()];
+            used = new int[codes.size()];
+            for (int code : cellCodes) {
+                copies[code] = board.canRevisit() ? Integer.MAX_VALUE : copies[code] + 1;
+            }
 
-                int fromX = fromPos % transitionMap.getWidth();
-                int fromY = fromPos / transitionMap.getWidth();
+            longsPerRow = (codes.size() + 63) / 64;
+            adjacency = new long[codes.size() * longsPerRow];
 
-                Set<String> transitionTo = new HashSet<>();
-                for (int j = 0; j < transitionMap.getSize(); j++) {
-                    String to = transitionMap.valueAt(j);
-                    if (transitionMap.valueAt(j).equals(to)) {
-                        int toX = j % transitionMap.getWidth();
-                        int toY = j / transitionMap.getWidth();
-                        if (transitionMap.canTransition(fromX, fromY, toX, toY)) {
-                            transitionTo.add(transitionMap.valueAt(j));
-                        }
+            int width = board.getWidth();
+            for (int from = 0; from < cellCodes.length; from++) {
+                for (int to = 0; to < cellCodes.length; to++) {
+                    if (board.canTransition(from % width, from / width, to % width, to / width)) {
+                        adjacency[cellCodes[from] * longsPerRow + (cellCodes[to] >>> 6)] |= 1L << cellCodes[to];
                     }
                 }
+            }
+        }
 
-                if (!transitions.containsKey(from)) {
-                    transitions.put(from, new HashSet<>());
-                }
+        /**
+         * @return The code for {@param tile}, or -1 if it is not on the board.
+         */
+        int codeOf(String tile) {
+            Integer code = codes.get(tile);
+            return code == null ? -1 : code;
+        }
 
-                transitions.get(from).addAll(transitionTo);
+        /**
+         * @return The board code for each tile in {@param alphabet}, indexed by alphabet code.
+         */
+        int[] codesOf(Alphabet alphabet) {
+            int[] boardCodes = new int[alphabet.size()];
+            for (int i = 0; i < boardCodes.length; i++) {
+                boardCodes[i] = codeOf(alphabet.tileOf(i));
+            }
+            return boardCodes;
+        }
+
+        /**
+         * Like {@link #canFollow(int, int)}, but also checks that there is a copy of {@param to}
+         * which has not already been used by the current path.
+         */
+        boolean canVisit(int from, int to) {
+            return canFollow(from, to) && used[to] < copies[to];
+        }
 
+        /**
+         * @param from The code of the last tile in the current path, or -1 at the root.
+         * @param to   The code of the tile to add to the path, or -1 if it is not on the board.
+         */
+        boolean canFollow(int from, int to) {
+            if (to < 0) {
+                return false;
             }
+
+            return from < 0 || (adjacency[from * longsPerRow + (to >>> 6)] & (1L << to)) != 0;
         }
 
-        boolean contains(String from) {
-            return transitions.containsKey(from);
+        void take(int code) {
+            used[code]++;
         }
 
-        boolean canTransition(String from, String to) {
-            Set<String> transitionTo = transitions.get(from);
-            return transitionTo != null && transitionTo.contains(to);
+        void release(int code) {
+            used[code]--;
         }
     }
 
+    private StringTrie(Language language, Node rootNode, TrieHeader header) {
+        super(language);
+        this.rootNode = rootNode;
+        this.header = header;
+    }
+
     private StringTrie(Language language, InputStream in, TransitionMap transitionMap) throws IOException {
         super(language);
 
-        Set<String> availableStrings = new HashSet<>(transitionMap.getSize());
-        for (int i = 0; i < transitionMap.getSize(); i++) {
-            availableStrings.add(transitionMap.valueAt(i));
+        BufferedInputStream bufferedIn = new BufferedInputStream(in);
+        DataInputStream input = new DataInputStream(bufferedIn);
+
+        bufferedIn.mark(4);
+        if (input.readInt() == TrieHeader.MAGIC) {
+            header = TrieHeader.read(input);
+
+            // Skipped subtrees are still read (rather than seeked over) by the CheckedInputStream,
+            // so the checksum covers the entire file.
+            CRC32 checksum = new CRC32();
+            DataInputStream checkedInput = new DataInputStream(new CheckedInputStream(bufferedIn, checksum));
+            rootNode = new Loader(checkedInput, language, transitionMap, header).read();
+
+            if ((int) checksum.getValue() != header.getChecksum()) {
+                throw new IOException("Trie is corrupt, checksum does not match the header");
+            }
+        } else {
+            bufferedIn.reset();
+            header = null;
+            rootNode = new Loader(input, language, transitionMap, null).read();
         }
-        rootNode = new Node(new DataInputStream(new BufferedInputStream(in)), language, new CheapTransitionMap(transitionMap), availableStrings, false, null, 0);
     }
 
-    @Override
+    /**
+     * @return The header this trie was read from, or null if it was built in memory or read from
+     * a file which predates headers.
+     */
+    public TrieHeader getHeader() {
+        return header;
+    }
+
     public void addWord(String w) {
+        if (minimized) {
+            throw new IllegalStateException("Can't add words to a trie after it has been minimized");
+        }
+
         rootNode.addSuffix(w, 0);
     }
 
+    /**
+     * Moves every word in {@param subtrie} into this trie, so that parts of a large trie can be
+     * built separately (e.g. on different threads) and then joined together. The two tries must
+     * not have any first tiles in common. {@param subtrie} gives up its nodes to this trie, so is
+     * left empty.
+     */
+    public void graft(StringTrie subtrie) {
+        if (minimized || subtrie.minimized) {
+            throw new IllegalStateException("Can't graft tries which have been minimized");
+        }
+
+        Node subtrieRoot = subtrie.rootNode;
+        for (int i = 0; i < subtrieRoot.childCount(); i++) {
+            if (rootNode.maybeChildAt(subtrieRoot.childCode(i)) != null) {
+                throw new IllegalArgumentException("Both tries have words starting with " + subtrieRoot.childTile(i));
+            }
+        }
+
+        for (int i = 0; i < subtrieRoot.childCount(); i++) {
+            rootNode.putChild(subtrieRoot.childCode(i), subtrieRoot.child(i));
+        }
+        subtrieRoot.setChildren(Node.NO_CODES, Node.NO_NODES, 0);
+    }
+
+    /**
+     * Stops {@param w} from being a word, but leaves its nodes in place, so the trie may still be
+     * walked part way towards it.
+     */
+    void unmarkWord(String w) {
+        if (minimized) {
+            throw new IllegalStateException("Can't remove words from a trie after it has been minimized");
+        }
+
+        Tokenizer tokenizer = language.getTokenizer();
+        Node node = rootNode;
+        int position = 0;
+        while (node != null && position < w.length()) {
+            node = node.maybeChildAt(tokenizer.codeAt(w, position));
+            position += tokenizer.tileLength(w, position);
+        }
+
+        if (node != null) {
+            node.isWord = false;
+        }
+    }
+
+    /**
+     * Merges all identical subtrees into a single shared node, turning this trie into a minimal
+     * acyclic word graph (DAWG). Common suffixes such as "-ing", "-tion" or verb endings end up
+     * being stored only once, rather than once for every stem they follow.
+     * <p>
+     * Lookups and {@link #solver(TransitionMap, WordFilter)} work exactly as before. However,
+     * {@link #write(OutputStream)} expands shared nodes back into a tree, so use
+     * {@link MappedTrie.Serializer} (which writes each shared node only once) to get the benefit
+     * on disk. No more words can be added once the trie has been minimized.
+     */
+    public void minimize() {
+        Map<Signature, Node> canonicalNodes = new HashMap<>();
+
+        // Children need to be made canonical before their parents, so this is a post-order walk.
+        // Once the whole subtree of a node has been visited, the node is replaced in its parent
+        // (the next node down the stack) by the canonical node.
+        NodeStack pendingChildren = new NodeStack();
+        pendingChildren.push(rootNode);
+
+        while (!pendingChildren.isEmpty()) {
+            int child = pendingChildren.nextChild();
+            if (child >= 0) {
+                pendingChildren.push(pendingChildren.top().child(child));
+                continue;
+            }
+
+            Node node = pendingChildren.top();
+            pendingChildren.pop();
+
+            Signature signature = new Signature(node);
+            Node canonical = canonicalNodes.get(signature);
+            if (canonical == null) {
+                canonicalNodes.put(signature, node);
+            } else if (!pendingChildren.isEmpty()) {
+                pendingChildren.top().setChild(pendingChildren.lastChild(), canonical);
+            }
+        }
+
+        minimized = true;
+    }
+
+    /**
+     * Two nodes are equivalent if they agree on whether they are a word, and have exactly the same
+     * (already canonical) child for each tile. Children are compared by identity, so this is only
+     * meaningful once the children themselves have been minimized.
+     */
+    private static class Signature {
+
+        private final boolean isWord;
+        private final int[] childCodes;
+        private final Node[] childNodes;
+
+        Signature(Node node) {
+            this.isWord = node.isWord;
+            this.childCodes = node.childCodes;
+            this.childNodes = node.childNodes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+
+            Signature other = (Signature) o;
+            return isWord == other.isWord && Arrays.equals(childCodes, other.childCodes) && Arrays.equals(childNodes, other.childNodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Arrays.hashCode(childCodes) * 31 + Arrays.hashCode(childNodes)) * 31 + (isWord ? 1 : 0);
+        }
+    }
+
     @Override
     public boolean isWord(String word) {
         return rootNode.isAnyWord(word, 0);
     }
 
+    @Override
+    TrieWalker<Node> walker() {
+        return new TrieWalker<Node>() {
+            @Override
+            public Node root() {
+                return rootNode;
+            }
+
+            @Override
+            public Node childAt(Node node, String tile) {
+                int code = language.getTokenizer().codeOf(tile);
+                return code < 0 ? null : node.maybeChildAt(code);
+            }
+
+            @Override
+            public boolean isWord(Node node) {
+                return node.word();
+            }
+
+            @Override
+            public void children(Node node, List<String> tiles, List<Node> children) {
+                for (int i = 0; i < node.childCount(); i++) {
+                    tiles.add(node.childTile(i));
+                    children.add(node.child(i));
+                }
+            }
+        };
+    }
+
+    /**
+     * Streams the trie straight to {@param out}, without building any part of the file in memory.
+     * <p>
+     * Each node is prefixed by the size of its subtree, so the trie is walked once up front to
+     * count the nodes below each node (see {@link Layout}). The checksum in the header also has to
+     * be known before the body is written, so the body is streamed twice: once into a
+     * {@link CRC32} and then once more for real.
+     * <p>
+     * Children are written in tile order, so the same words always produce the same bytes.
+     */
     @Override
     public void write(OutputStream out) throws IOException {
-        rootNode.writeNode(out);
+        write(out, TrieHeader.NO_SOURCE_HASH);
+    }
+
+    /**
+     * @param sourceHash Recorded in the header (see {@link TrieHeader#getSourceHash()}).
+     */
+    public void write(OutputStream out, long sourceHash) throws IOException {
+        Layout layout = new Layout(rootNode);
+        TrieHeader header = layout.toHeader(sourceHash);
+
+        CRC32 checksum = new CRC32();
+        DataOutputStream checksumOutput = new DataOutputStream(new BufferedOutputStream(new ChecksumOutputStream(checksum)));
+        rootNode.writeNode(checksumOutput, header, layout);
+        checksumOutput.flush();
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        header.withChecksum((int) checksum.getValue()).write(output);
+        rootNode.writeNode(output, header, layout);
+        output.flush();
+    }
+
+    /**
+     * Discards everything written to it, other than to update a checksum.
+     */
+    private static class ChecksumOutputStream extends OutputStream {
+
+        private final CRC32 checksum;
+
+        ChecksumOutputStream(CRC32 checksum) {
+            this.checksum = checksum;
+        }
+
+        @Override
+        public void write(int b) {
+            checksum.update(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            checksum.update(b, off, len);
+        }
+    }
+
+    /**
+     * Everything which needs to be known about a trie before it can be written, gathered in a
+     * single depth first walk. The trie is walked as a tree, so shared nodes in a minimized trie
+     * are counted once per path, as that is how they are written.
+     * <p>
+     * Per-node values are stored in the pre-order in which
+     * {@link Node#writeNode(DataOutputStream, TrieHeader, Layout)} visits nodes. Only the first
+     * {@link #nodeCount} entries of each array are used.
+     */
+    private static class Layout {
+
+        private static final int NO_WORD = Integer.MAX_VALUE;
+
+        private final Set<String> tiles = new HashSet<>();
+        private int nodeCount = 0;
+        private int wordCount = 0;
+        private int maxWordLength = 0;
+
+        /**
+         * The number of nodes in the subtree below each node, including the node itself.
+         */
+        private int[] subtreeNodeCounts = new int[1024];
+
+        /**
+         * See {@link Node#minTilesToWord}. {@link #NO_WORD} if there are no words in the subtree.
+         */
+        private int[] minTilesToWord = new int[1024];
+
+        /**
+         * See {@link Node#maxCharsToWord}. Zero if there are no words in the subtree.
+         */
+        private int[] maxCharsToWord = new int[1024];
+
+        Layout(Node root) {
+            NodeStack pendingChildren = new NodeStack();
+
+            // Where each node on the stack is recorded, and the length of the tile leading to it,
+            // so that it can be added to its parent once all of its children have been visited.
+            int[] indices = new int[16];
+            int[] tileLengths = new int[16];
+
+            visit(root, 0);
+            indices[0] = 0;
+            pendingChildren.push(root);
+
+            while (!pendingChildren.isEmpty()) {
+                int depth = pendingChildren.depth();
+                int index = pendingChildren.nextChild();
+                if (index >= 0) {
+                    if (depth + 1 == indices.length) {
+                        indices = Arrays.copyOf(indices, indices.length * 2);
+                        tileLengths = Arrays.copyOf(tileLengths, tileLengths.length * 2);
+                    }
+
+                    Node parent = pendingChildren.top();
+                    Node child = parent.child(index);
+                    String tile = parent.childTile(index);
+                    tiles.add(tile);
+                    indices[depth + 1] = nodeCount;
+                    tileLengths[depth + 1] = tile.length();
+                    visit(child, depth + 1);
+                    pendingChildren.push(child);
+                } else {
+                    pendingChildren.pop();
+                    if (depth > 0) {
+                        int parent = indices[depth - 1];
+                        int node = indices[depth];
+                        subtreeNodeCounts[parent] += subtreeNodeCounts[node];
+                        if (minTilesToWord[node] != NO_WORD) {
+                            minTilesToWord[parent] = Math.min(minTilesToWord[parent], minTilesToWord[node] + 1);
+                            maxCharsToWord[parent] = Math.max(maxCharsToWord[parent], maxCharsToWord[node] + tileLengths[depth]);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void visit(Node node, int depth) {
+            if (nodeCount == subtreeNodeCounts.length) {
+                subtreeNodeCounts = Arrays.copyOf(subtreeNodeCounts, nodeCount * 2);
+                minTilesToWord = Arrays.copyOf(minTilesToWord, nodeCount * 2);
+                maxCharsToWord = Arrays.copyOf(maxCharsToWord, nodeCount * 2);
+            }
+
+            subtreeNodeCounts[nodeCount] = 1;
+            minTilesToWord[nodeCount] = node.isWord ? 0 : NO_WORD;
+            maxCharsToWord[nodeCount] = 0;
+            nodeCount++;
+
+            if (node.isWord) {
+                wordCount++;
+                maxWordLength = Math.max(maxWordLength, depth);
+            }
+        }
+
+        /**
+         * The checksum is left empty. Tiles are given codes in the same order as
+         * {@link NodeStack} visits them.
+         */
+        TrieHeader toHeader(long sourceHash) {
+            return new TrieHeader(TrieHeader.VERSION, new Alphabet(new TreeSet<>(tiles)), nodeCount, wordCount, maxWordLength, sourceHash, 0);
+        }
     }
 
     public static class StringSolution implements net.healeys.trie.Solution {
@@ -124,7 +542,11 @@ public class StringTrie extends Trie {
         }
     }
 
-    private void recursiveSolver(TransitionMap transitions, WordFilter wordFilter, StringTrie.Node node, int pos, Set<Integer> usedPositions, StringBuilder prefix, Map<String, List<Solution>> solutions, List<Integer> solution) {
+    /**
+     * @param tiles The tile in each cell, only for spelling out the words which are found.
+     * @param codes The {@link Tokenizer} code of each cell, which is what the search follows.
+     */
+    private void recursiveSolver(TransitionMap transitions, WordFilter wordFilter, int minLength, String[] tiles, int[] codes, int[][] neighbours, StringTrie.Node node, int pos, boolean[] usedPositions, StringBuilder prefix, Map<String, List<Solution>> solutions, List<Integer> solution) {
 
         if (node.word()) {
             String w = new String(prefix);
@@ -145,61 +567,157 @@ public class StringTrie extends Trie {
         }
 
         if (!transitions.canRevisit()) {
-            usedPositions.add(pos);
+            usedPositions[pos] = true;
         }
 
-        int fromX = pos % transitions.getWidth();
-        int fromY = pos / transitions.getWidth();
+        for (int toPosition : neighbours[pos]) {
+            if (usedPositions[toPosition] || codes[toPosition] < 0) {
+                continue;
+            }
 
-        for (int toX = 0; toX < transitions.getWidth(); toX++) {
-            for (int toY = 0; toY < transitions.getWidth(); toY++) {
-                if (!transitions.canTransition(fromX, fromY, toX, toY)) {
-                    continue;
-                }
+            StringTrie.Node nextNode = node.maybeChildAt(codes[toPosition]);
+            String valueAt = tiles[toPosition];
+            if (nextNode == null || !nextNode.canCompleteWord(freeCellsAfter(transitions, solution.size() + 1), minLength - prefix.length() - valueAt.length())) {
+                continue;
+            }
 
-                int toPosition = toX + transitions.getWidth() * toY;
-                if (usedPositions.contains(toPosition)) {
-                    continue;
-                }
+            prefix.append(valueAt);
 
-                String valueAt = transitions.valueAt(toPosition);
-                StringTrie.Node nextNode = node.maybeChildAt(valueAt);
-                if (nextNode == null) {
-                    continue;
-                }
+            solution.add(toPosition);
+            recursiveSolver(transitions, wordFilter, minLength, tiles, codes, neighbours, nextNode, toPosition, usedPositions, prefix, solutions, solution);
+            solution.remove(solution.size() - 1);
 
-                prefix.append(valueAt);
+            prefix.delete(prefix.length() - valueAt.length(), prefix.length());
+        }
 
-                solution.add(toPosition);
-                recursiveSolver(transitions, wordFilter, nextNode, toPosition, usedPositions, prefix, solutions, solution);
-                solution.remove(solution.size() - 1);
+        usedPositions[pos] = false;
+    }
 
-                prefix.delete(prefix.length() - valueAt.length(), prefix.length());
+    /**
+     * The cells which can be reached from each cell, in the order the solver has always tried
+     * them, so that {@link TransitionMap#canTransition(int, int, int, int)} is asked once per board
+     * rather than for every cell at every node. Cells past {@link TransitionMap#getSize()} are
+     * left out, as {@link MappedTrie} does.
+     */
+    static int[][] neighbours(TransitionMap transitions) {
+        int width = transitions.getWidth();
+        int[][] neighbours = new int[transitions.getSize()][];
+        int[] reachable = new int[width * width];
+        for (int from = 0; from < neighbours.length; from++) {
+            int count = 0;
+            for (int toX = 0; toX < width; toX++) {
+                for (int toY = 0; toY < width; toY++) {
+                    int to = toX + width * toY;
+                    if (to < neighbours.length && transitions.canTransition(from % width, from / width, toX, toY)) {
+                        reachable[count++] = to;
+                    }
+                }
             }
+            neighbours[from] = Arrays.copyOf(reachable, count);
         }
+        return neighbours;
+    }
+
+    /**
+     * The {@link Tokenizer} code of each cell, or -1 for cells which no word is ever split into.
+     * Each cell is only asked for its tile once, rather than at every node of the search.
+     */
+    static int[] cellCodes(TransitionMap transitions, Language language) {
+        int[] codes = new int[transitions.getSize()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = language.getTokenizer().codeOf(transitions.valueAt(i));
+        }
+        return codes;
+    }
 
-        usedPositions.remove(pos);
+    /**
+     * The {@link Tokenizer} code of each cell, from its code in {@link Language#getAlphabet()}
+     * (see {@link Trie#solver(TransitionMap, int[], WordFilter)}).
+     */
+    static int[] cellCodes(int[] tileCodes, Language language) {
+        int[] codes = new int[tileCodes.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = tileCodes[i] < 0 ? -1 : language.getTokenizerCode(tileCodes[i]);
+        }
+        return codes;
     }
 
+    /**
+     * The tile which each of {@param cellCodes} stands for, only for spelling out the words which
+     * are found. Null for cells which are -1, as the search never visits them.
+     */
+    static String[] tiles(int[] cellCodes, Language language) {
+        String[] tiles = new String[cellCodes.length];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = cellCodes[i] < 0 ? null : language.getTokenizer().tileOf(cellCodes[i]);
+        }
+        return tiles;
+    }
+
+    /**
+     * The {@link Tokenizer} code of each tile in {@param alphabet}, or -1 for tiles which
+     * {@param language} never splits a word into.
+     */
+    static int[] tileCodesOf(Alphabet alphabet, Language language) {
+        int[] codes = new int[alphabet.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = language.getTokenizer().codeOf(alphabet.tileOf(i));
+        }
+        return codes;
+    }
+
+    /**
+     * @return How many cells are left to visit once {@param tilesUsed} cells have been visited, or
+     * {@link Integer#MAX_VALUE} if cells may be revisited.
+     */
+    static int freeCellsAfter(TransitionMap transitions, int tilesUsed) {
+        return transitions.canRevisit() ? Integer.MAX_VALUE : transitions.getSize() - tilesUsed;
+    }
+
+    /**
+     * Branches which can't produce a word long enough to pass {@param filter} are never explored,
+     * if the filter is a {@link WordFilter.MinLength}. Other filters are only applied to each word
+     * once it is found.
+     */
     @Override
     public Map<String, List<Solution>> solver(TransitionMap transitions, WordFilter filter) {
+        return solve(transitions, cellCodes(transitions, language), filter);
+    }
+
+    @Override
+    public Map<String, List<Solution>> solver(TransitionMap transitions, int[] tileCodes, WordFilter filter) {
+        return solve(transitions, cellCodes(tileCodes, language), filter);
+    }
+
+    /**
+     * @param codes The {@link Tokenizer} code of each cell.
+     */
+    private Map<String, List<Solution>> solve(TransitionMap transitions, int[] codes, WordFilter filter) {
+
+        int minLength = filter instanceof WordFilter.MinLength ? ((WordFilter.MinLength) filter).getMinLength() : 0;
+        int[][] neighbours = neighbours(transitions);
+        String[] tiles = tiles(codes, language);
 
         Map<String, List<Solution>> solutions = new TreeMap<>();
         StringBuilder prefix = new StringBuilder(transitions.getSize() + 1);
+        boolean[] usedPositions = new boolean[transitions.getSize()];
 
         List<Integer> positions = new ArrayList<>(transitions.getSize());
-        for (int i = 0; i < transitions.getSize(); i++) {
-            String value = transitions.valueAt(i);
+        for (int i = 0; i < tiles.length; i++) {
+            if (codes[i] < 0) {
+                continue;
+            }
 
-            StringTrie.Node nextNode = rootNode.maybeChildAt(value);
-            if (nextNode == null) {
+            String value = tiles[i];
+            StringTrie.Node nextNode = rootNode.maybeChildAt(codes[i]);
+            if (nextNode == null || !nextNode.canCompleteWord(freeCellsAfter(transitions, 1), minLength - value.length())) {
                 continue;
             }
 
             prefix.append(value);
             positions.add(i);
 
-            recursiveSolver(transitions, filter, nextNode, i, new HashSet<>(), prefix, solutions, positions);
+            recursiveSolver(transitions, filter, minLength, tiles, codes, neighbours, nextNode, i, usedPositions, prefix, solutions, positions);
 
             positions.remove(positions.size() - 1);
             prefix.delete(prefix.length() - value.length(), prefix.length());
@@ -208,129 +726,298 @@ public class StringTrie extends Trie {
         return solutions;
     }
 
-    private static class Node extends TrieNode {
+    static class Node extends TrieNode {
 
-        private final Map<String, Node> children = new HashMap<>();
+        static final int[] NO_CODES = new int[0];
+        static final Node[] NO_NODES = new Node[0];
+
+        /**
+         * Nodes with more children than this are searched by bisection, and the rest (nearly all of
+         * them) from the start.
+         */
+        private static final int LINEAR_SEARCH_MAX_CHILDREN = 8;
+
+        /**
+         * The {@link Tokenizer} code of the tile leading to each child, in ascending order (which
+         * is also tile order), and the child itself at the same index of {@link #childNodes}.
+         * Following an edge is then a binary search over a handful of ints, rather than hashing a
+         * String. Both are null until first asked for in a {@link LazyNode}, so use the accessors
+         * below (see {@link #loadChildren()}) instead.
+         */
+        private int[] childCodes;
+        private Node[] childNodes;
 
         private boolean isWord;
 
+        /**
+         * The fewest tiles which need to be added after this node to reach a word, or
+         * {@link Integer#MAX_VALUE} if there are no words below it. Calculated for the (board
+         * pruned) nodes which are kept when reading a stream. Tries built in memory don't keep
+         * this up to date, so it is zero for them.
+         */
+        private int minTilesToWord = 0;
+
+        /**
+         * The most characters which any word passing through this node has after it. Like
+         * {@link #minTilesToWord}, this is only calculated when reading a stream. It is
+         * {@link Integer#MAX_VALUE} for tries built in memory.
+         */
+        private int maxCharsToWord = Integer.MAX_VALUE;
+
         private Node(Language language) {
             super(language);
+            childCodes = NO_CODES;
+            childNodes = NO_NODES;
         }
 
-        private Node(DataInputStream input, Language language, CheapTransitionMap transitionMap, Set<String> availableStrings, boolean shouldSkip, String lastChar, int depth) throws IOException {
+        /**
+         * For subclasses which provide their own children (see {@link #loadChildren()}).
+         */
+        private Node(Language language, boolean isWord, int minTilesToWord, int maxCharsToWord) {
             super(language);
+            this.isWord = isWord;
+            this.minTilesToWord = minTilesToWord;
+            this.maxCharsToWord = maxCharsToWord;
+        }
 
-            int nodeSizeInBytes = input.readInt();
+        private Node(Language language, boolean isWord) {
+            this(language);
+            this.isWord = isWord;
+        }
 
-            if (shouldSkip) {
-                input.skipBytes(nodeSizeInBytes);
-                return;
+        /**
+         * Fills in {@link #childCodes} and {@link #childNodes} if they haven't been yet, which
+         * only a {@link LazyNode} ever needs to do.
+         */
+        void loadChildren() {
+        }
+
+        int childCount() {
+            if (childCodes == null) {
+                loadChildren();
             }
+            return childCodes.length;
+        }
 
-            isWord = input.readBoolean();
+        /**
+         * @param index From zero to {@link #childCount()}, in tile order.
+         */
+        int childCode(int index) {
+            return childCodes[index];
+        }
 
-            int numChildren = input.readShort();
+        String childTile(int index) {
+            return language.getTokenizer().tileOf(childCodes[index]);
+        }
 
-            if (numChildren > 0) {
-                String[] childStrings = new String[numChildren];
-                for (int i = 0; i < numChildren; i++) {
-                    int length = input.readByte();
+        Node child(int index) {
+            return childNodes[index];
+        }
 
-                    byte[] bytes = new byte[length];
-                    input.readFully(bytes);
+        void setChild(int index, Node node) {
+            childNodes[index] = node;
+        }
 
-                    String string = new String(bytes);
-                    if (depth == 0 && transitionMap.contains(string) || depth > 0 && transitionMap.canTransition(lastChar, string)) {
-                        childStrings[i] = string;
-                    }
-                }
+        /**
+         * Replaces every child of this node with the first {@param count} of {@param codes} and
+         * {@param nodes}, which are copied. They are usually already in tile order, but files
+         * written before children were ordered are sorted here.
+         */
+        void setChildren(int[] codes, Node[] nodes, int count) {
+            if (count == 0) {
+                childCodes = NO_CODES;
+                childNodes = NO_NODES;
+                return;
+            }
 
-                for (int i = 0; i < numChildren; i++) {
-                    // Need to read the node regardless of whether we end up keeping it. This is to
-                    // ensure that we traverse the InputStream in the right order.
-                    boolean shouldSkipChild = childStrings[i] == null;
-                    Node childNode = new Node(input, language, transitionMap, availableStrings, shouldSkipChild, childStrings[i], depth + 1);
-                    if (!shouldSkipChild) {
-                        children.put(childStrings[i], childNode);
-                    }
+            int[] sortedCodes = Arrays.copyOf(codes, count);
+            Node[] sortedNodes = Arrays.copyOf(nodes, count);
+            for (int i = 1; i < count; i++) {
+                int code = sortedCodes[i];
+                Node node = sortedNodes[i];
+                int j = i;
+                while (j > 0 && sortedCodes[j - 1] > code) {
+                    sortedCodes[j] = sortedCodes[j - 1];
+                    sortedNodes[j] = sortedNodes[j - 1];
+                    j--;
                 }
+                sortedCodes[j] = code;
+                sortedNodes[j] = node;
             }
+
+            childCodes = sortedCodes;
+            childNodes = sortedNodes;
         }
 
-        @Override
-        public void writeNode(OutputStream output) throws IOException {
+        /**
+         * Adds {@param node} as the child for {@param code}, or replaces the child which is
+         * already there. The arrays are kept exactly as long as the number of children, as most
+         * nodes only ever have one or two.
+         */
+        void putChild(int code, Node node) {
+            int count = childCount();
+            int index = Arrays.binarySearch(childCodes, code);
+            if (index >= 0) {
+                childNodes[index] = node;
+                return;
+            }
 
-            ByteArrayOutputStream tempOutput = new ByteArrayOutputStream();
-            DataOutputStream tempOutputData = new DataOutputStream(tempOutput);
+            index = -index - 1;
+            int[] codes = new int[count + 1];
+            Node[] nodes = new Node[count + 1];
+            System.arraycopy(childCodes, 0, codes, 0, index);
+            System.arraycopy(childNodes, 0, nodes, 0, index);
+            codes[index] = code;
+            nodes[index] = node;
+            System.arraycopy(childCodes, index, codes, index + 1, count - index);
+            System.arraycopy(childNodes, index, nodes, index + 1, count - index);
+            childCodes = codes;
+            childNodes = nodes;
+        }
 
-            tempOutputData.writeBoolean(isWord);
+        @Override
+        public void writeNode(OutputStream out, TrieHeader header) throws IOException {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+            writeNode(output, header, new Layout(this));
+            output.flush();
+        }
 
-            tempOutputData.writeShort(children.size());
-            Set<Map.Entry<String, Node>> entries = children.entrySet();
-            for (Map.Entry<String, Node> entry : entries) {
-                String character = entry.getKey();
-                byte[] characterBytes = character.getBytes("UTF-8");
-                tempOutputData.writeByte(characterBytes.length);
-                for (byte b : characterBytes) {
-                    tempOutputData.writeByte(b);
+        /**
+         * Writes this node followed by each of its subtrees in turn, using an explicit stack
+         * rather than recursion.
+         *
+         * @param layout Calculated for this node.
+         */
+        void writeNode(DataOutputStream output, TrieHeader header, Layout layout) throws IOException {
+            // Every node is 7 bytes plus a tile index per child, and every node other than this
+            // one is also prefixed by its 4 byte size. A subtree of n nodes has n - 1 children in
+            // total, so its size only depends on how many nodes are in it.
+            int bytesPerChild = 4 + 7 + header.getTileIndexSize();
+
+            NodeStack pendingChildren = new NodeStack();
+            int next = 0;
+
+            pendingChildren.push(this);
+            writeSingleNode(output, header, layout, next++, bytesPerChild);
+
+            while (!pendingChildren.isEmpty()) {
+                int index = pendingChildren.nextChild();
+                if (index >= 0) {
+                    Node child = pendingChildren.top().child(index);
+                    pendingChildren.push(child);
+                    child.writeSingleNode(output, header, layout, next++, bytesPerChild);
+                } else {
+                    pendingChildren.pop();
                 }
             }
+        }
 
-            for (Map.Entry<String, Node> entry : entries) {
-                entry.getValue().writeNode(tempOutputData);
+        /**
+         * Writes everything about this node except its children, which must follow immediately
+         * afterwards in the same order as their tiles.
+         *
+         * @param index Where this node is recorded in {@param layout}.
+         */
+        private void writeSingleNode(DataOutputStream output, TrieHeader header, Layout layout, int index, int bytesPerChild) throws IOException {
+            output.writeInt(7 + (layout.subtreeNodeCounts[index] - 1) * bytesPerChild);
+            output.writeBoolean(isWord);
+            output.writeShort(Math.min(layout.minTilesToWord[index], TrieHeader.ANNOTATION_OVERFLOW));
+            output.writeShort(Math.min(layout.maxCharsToWord[index], TrieHeader.ANNOTATION_OVERFLOW));
+            output.writeShort(childCount());
+            for (int i = 0; i < childCount(); i++) {
+                header.writeTileIndex(output, header.getAlphabet().codeOf(childTile(i)));
             }
-
-            DataOutputStream outputData = new DataOutputStream(output);
-            outputData.writeInt(tempOutput.size());
-            outputData.write(tempOutput.toByteArray());
         }
 
         @Override
         public TrieNode addSuffix(String word, int currentPosition) {
-            Node child = ensureChildAt(word, currentPosition);
+            Tokenizer tokenizer = language.getTokenizer();
+            Node node = this;
+            while (true) {
+                Node child = node.ensureChildAt(tokenizer.codeAt(word, currentPosition));
+                currentPosition += tokenizer.tileLength(word, currentPosition);
+
+                if (currentPosition == word.length()) {
+                    child.isWord = true;
+                    return child;
+                }
 
-            if (currentPosition + getCharAt(word, currentPosition).length() == word.length()) {
-                child.isWord = true;
-                return child;
-            } else {
-                return child.addSuffix(word, nextPosition(word, currentPosition));
+                node = child;
             }
         }
 
-        private int nextPosition(String word, int currentPosition) {
-            return currentPosition + getCharAt(word, currentPosition).length();
-        }
-
-        private String getCharAt(String word, int position) {
-            String character = Character.toString(word.charAt(position));
-            String characterWithSuffix = language.applyMandatorySuffix(character);
-            if (!character.equals(characterWithSuffix) && word.length() >= position + characterWithSuffix.length() && word.substring(position, position + characterWithSuffix.length()).equals(characterWithSuffix)) {
-                return characterWithSuffix;
+        /**
+         * @param code The {@link Tokenizer} code of a tile, or -1 for a tile which is never in any
+         *             word (and so has no child).
+         */
+        Node maybeChildAt(int code) {
+            if (childCodes == null) {
+                loadChildren();
             }
-            return character;
-        }
 
-        private Node maybeChildAt(String word, int position) {
-            return children.get(getCharAt(word, position));
-        }
+            int[] codes = childCodes;
+            if (codes.length > LINEAR_SEARCH_MAX_CHILDREN) {
+                int index = Arrays.binarySearch(codes, code);
+                return index < 0 ? null : childNodes[index];
+            }
 
-        private Node maybeChildAt(String childChar) {
-            return children.get(childChar);
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] >= code) {
+                    return codes[i] == code ? childNodes[i] : null;
+                }
+            }
+            return null;
         }
 
-        private Node ensureChildAt(String word, int position) {
-            String character = getCharAt(word, position);
-            Node existingNode = maybeChildAt(word, position);
+        private Node ensureChildAt(int code) {
+            Node existingNode = maybeChildAt(code);
             if (existingNode == null) {
                 Node node = new Node(language);
-                children.put(character, node);
+                putChild(code, node);
                 return node;
             } else {
                 return existingNode;
             }
         }
 
+        /**
+         * Calculates {@link #minTilesToWord} and {@link #maxCharsToWord} from the children of this
+         * node, which must already have been annotated.
+         */
+        private void annotate() {
+            int minTiles = isWord ? 0 : Integer.MAX_VALUE;
+            int maxChars = 0;
+            for (int i = 0; i < childNodes.length; i++) {
+                Node child = childNodes[i];
+                if (child.hasWords()) {
+                    minTiles = Math.min(minTiles, child.minTilesToWord + 1);
+                    maxChars = Math.max(maxChars, child.maxCharsToWord + childTile(i).length());
+                }
+            }
+
+            minTilesToWord = minTiles;
+            maxCharsToWord = maxChars;
+        }
+
+        /**
+         * Only meaningful once {@link #annotate()} has been called.
+         */
+        private boolean hasWords() {
+            return minTilesToWord != Integer.MAX_VALUE;
+        }
+
+        /**
+         * Whether there is any chance of reaching a word from here which passes a
+         * {@link WordFilter.MinLength} filter, given how many more cells can be visited.
+         *
+         * @param freeCells     How many tiles may still be added after this node.
+         * @param charsRequired How many more characters a word needs after this node to be long
+         *                      enough. May be zero or negative if it is already long enough.
+         */
+        boolean canCompleteWord(int freeCells, int charsRequired) {
+            return minTilesToWord <= freeCells && maxCharsToWord >= charsRequired;
+        }
+
         @Override
         public boolean word() {
             return isWord;
@@ -338,24 +1025,515 @@ public class StringTrie extends Trie {
 
         @Override
         public boolean isTail() {
-            return children.size() == 0;
+            return childCount() == 0;
         }
 
         private boolean isAnyWord(String word, int currentPosition) {
-            if (currentPosition == word.length()) {
-                return isWord;
+            Tokenizer tokenizer = language.getTokenizer();
+            Node node = this;
+            while (currentPosition < word.length()) {
+                node = node.maybeChildAt(tokenizer.codeAt(word, currentPosition));
+                if (node == null) {
+                    return false;
+                }
+
+                currentPosition += tokenizer.tileLength(word, currentPosition);
             }
 
-            Node childNode = maybeChildAt(word, currentPosition);
-            return childNode != null && childNode.isAnyWord(word, nextPosition(word, currentPosition));
+            return node.isWord;
         }
 
         @Override
         public String toString() {
-            return this.isWord ? "Word with " + this.children.size() + " children" : "Node with " + this.children.size() + " children";
+            return this.isWord ? "Word with " + childCount() + " children" : "Node with " + childCount() + " children";
+        }
+    }
+
+    /**
+     * The path from the root to the node currently being visited by a depth first walk, along with
+     * how far through its children each node on that path has got. Used in place of recursion so
+     * that the depth of the walk is not limited by the thread stack.
+     * <p>
+     * Children are visited in the order the node keeps them, which is tile order, so that every
+     * walk of the same words visits them in the same order.
+     */
+    private static class NodeStack {
+
+        private Node[] nodes = new Node[16];
+        private int[] nextChildren = new int[16];
+        private int size = 0;
+
+        void push(Node node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                nextChildren = Arrays.copyOf(nextChildren, size * 2);
+            }
+
+            nodes[size] = node;
+            nextChildren[size] = 0;
+            size++;
+        }
+
+        void pop() {
+            size--;
+            nodes[size] = null;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return How many nodes are above the top of the stack (zero when only the root is on it).
+         */
+        int depth() {
+            return size - 1;
+        }
+
+        Node top() {
+            return nodes[size - 1];
+        }
+
+        /**
+         * @return The index of the next unvisited child of the node at the top of the stack, or -1
+         * if they have all been visited.
+         */
+        int nextChild() {
+            int next = nextChildren[size - 1];
+            if (next == nodes[size - 1].childCount()) {
+                return -1;
+            }
+
+            nextChildren[size - 1] = next + 1;
+            return next;
+        }
+
+        /**
+         * @return The index of the child which {@link #nextChild()} last returned for the node at
+         * the top of the stack.
+         */
+        int lastChild() {
+            return nextChildren[size - 1] - 1;
+        }
+    }
+
+    /**
+     * A node which has been read from a stream, but whose children have not all been read yet.
+     * There is one for each depth of the trie, which is reused for every node read at that depth.
+     */
+    private static class PendingNode {
+
+        Node node;
+
+        /**
+         * The {@link BoardTiles} code of the tile leading to this node, or -1 for the root.
+         */
+        int code;
+
+        /**
+         * The {@link Tokenizer} code of the tile for each child in the order they appear in the
+         * stream, or -1 for children which are to be skipped. Only the first {@link #childCount}
+         * are used.
+         */
+        int[] childTileCodes;
+
+        /**
+         * The {@link BoardTiles} code for each tile in {@link #childTileCodes}.
+         */
+        int[] childBoardCodes;
+
+        int childCount;
+        int nextChild;
+
+        /**
+         * The children which have been read and kept so far, which become the children of
+         * {@link #node} once they have all been read.
+         */
+        int[] keptTileCodes;
+        Node[] keptNodes;
+        int keptCount;
+
+        PendingNode(int childCapacity) {
+            childTileCodes = new int[childCapacity];
+            childBoardCodes = new int[childCapacity];
+            keptTileCodes = new int[childCapacity];
+            keptNodes = new Node[childCapacity];
+        }
+
+        void reset(int code, int childCount) {
+            if (childCount > childTileCodes.length) {
+                childTileCodes = new int[childCount];
+                childBoardCodes = new int[childCount];
+                keptTileCodes = new int[childCount];
+                keptNodes = new Node[childCount];
+            }
+
+            this.node = null;
+            this.code = code;
+            this.childCount = childCount;
+            this.nextChild = 0;
+            this.keptCount = 0;
+        }
+
+        void keep(int tileCode, Node child) {
+            keptTileCodes[keptCount] = tileCode;
+            keptNodes[keptCount] = child;
+            keptCount++;
+        }
+
+        /**
+         * Gives {@link #node} the children which were kept, and lets go of them here.
+         */
+        void finish() {
+            node.setChildren(keptTileCodes, keptNodes, keptCount);
+            Arrays.fill(keptNodes, 0, keptCount, null);
+        }
+    }
+
+    /**
+     * Reads an entire serialized trie, skipping over any subtree which can't be spelled out on the
+     * board. That includes subtrees which would need more copies of a tile than the board has, and
+     * subtrees where every word is too long to fit in the cells which remain.
+     * <p>
+     * Uses an explicit stack rather than recursion, so the length of the longest word is not
+     * limited by the size of the thread stack.
+     */
+    private static class Loader {
+
+        private final DataInputStream input;
+        private final Language language;
+
+        /**
+         * Null when reading the entire dictionary, in which case nothing is pruned.
+         */
+        private final BoardTiles boardTiles;
+        private final int maxWordTiles;
+
+        /**
+         * Null when reading a file which predates {@link TrieHeader}, in which case each child
+         * tile is spelled out as UTF-8 rather than referred to by index.
+         */
+        private final TrieHeader header;
+
+        /**
+         * The {@link BoardTiles} code of each tile in the header's alphabet.
+         */
+        private final int[] alphabetCodes;
+
+        /**
+         * The {@link Tokenizer} code of each tile in the header's alphabet.
+         */
+        private final int[] tileCodes;
+
+        /**
+         * The {@link PendingNode} for each depth. With a header, one is allocated up front for
+         * every depth up to the longest word, each with room for every tile in the alphabet, so
+         * nothing but the {@link Node}s themselves is allocated while reading.
+         */
+        private final List<PendingNode> frames;
+
+        /**
+         * @param board Null to read every node rather than only those which fit on a board.
+         */
+        Loader(DataInputStream input, Language language, TransitionMap board, TrieHeader header) {
+            this.input = input;
+            this.language = language;
+            this.boardTiles = board == null ? null : new BoardTiles(board);
+            this.maxWordTiles = board == null || board.canRevisit() ? Integer.MAX_VALUE : board.getSize();
+            this.header = header;
+            this.alphabetCodes = header == null || boardTiles == null ? null : boardTiles.codesOf(header.getAlphabet());
+            this.tileCodes = header == null ? null : tileCodesOf(header.getAlphabet(), language);
+
+            int depths = header == null ? 0 : header.getMaxWordLength() + 1;
+            this.frames = new ArrayList<>(depths);
+            for (int i = 0; i < depths; i++) {
+                frames.add(new PendingNode(header.getAlphabet().size()));
+            }
+        }
+
+        Node read() throws IOException {
+            Node root = readNode(0, -1, Integer.MAX_VALUE).node;
+
+            int depth = 0;
+            while (depth >= 0) {
+                PendingNode parent = frames.get(depth);
+                if (parent.nextChild == parent.childCount) {
+                    parent.finish();
+                    parent.node.annotate();
+                    depth--;
+                    if (parent.code >= 0) {
+                        release(parent.code);
+
+                        // Everything below this node was pruned, so there is no point keeping it.
+                        // It is always the last child its parent kept.
+                        if (!parent.node.hasWords()) {
+                            frames.get(depth).keptCount--;
+                        }
+                    }
+                    continue;
+                }
+
+                int index = parent.nextChild++;
+                int tileCode = parent.childTileCodes[index];
+
+                // Need to read past the child regardless of whether we end up keeping it. This is
+                // to ensure that we traverse the InputStream in the right order.
+                if (tileCode < 0) {
+                    input.skipBytes(input.readInt());
+                    continue;
+                }
+
+                int code = parent.childBoardCodes[index];
+                take(code);
+                PendingNode child = readNode(depth + 1, code, maxWordTiles - depth - 1);
+                if (child == null) {
+                    release(code);
+                } else {
+                    parent.keep(tileCode, child.node);
+                    depth++;
+                }
+            }
+
+            return root;
+        }
+
+        /**
+         * Reads a node up to (but not including) its children, into the {@link PendingNode} for
+         * {@param depth}. The tile leading to this node must already have been taken from
+         * {@link #boardTiles}.
+         *
+         * @param code      The code of the tile leading to this node, or -1 for the root.
+         * @param freeCells How many more tiles could follow this node on the board.
+         * @return Null if every word below this node needs more than {@param freeCells} tiles, in
+         * which case the entire subtree has been skipped.
+         */
+        private PendingNode readNode(int depth, int code, int freeCells) throws IOException {
+            int size = input.readInt();
+
+            boolean isWord = input.readBoolean();
+
+            if (header != null && header.hasSubtreeAnnotations()) {
+                int minTilesToWord = input.readUnsignedShort();
+
+                // Both annotations are recalculated for the nodes which survive pruning once they
+                // have been read (see Node#annotate()), so this one isn't needed.
+                input.readUnsignedShort();
+
+                if (minTilesToWord > freeCells) {
+                    input.skipBytes(size - 5);
+                    return null;
+                }
+            }
+
+            int numChildren = input.readShort();
+
+            // Only files without a header (or with a header which is wrong about the longest
+            // word) need more frames than were allocated up front.
+            while (frames.size() <= depth) {
+                frames.add(new PendingNode(numChildren));
+            }
+
+            PendingNode pending = frames.get(depth);
+            pending.reset(code, numChildren);
+            int[] childTileCodes = pending.childTileCodes;
+            int[] childBoardCodes = pending.childBoardCodes;
+            for (int i = 0; i < numChildren; i++) {
+                if (header != null) {
+                    int alphabetCode = header.readTileIndex(input);
+                    childBoardCodes[i] = alphabetCodes == null ? alphabetCode : alphabetCodes[alphabetCode];
+                    childTileCodes[i] = canVisit(code, childBoardCodes[i]) ? tileCodes[alphabetCode] : -1;
+                } else {
+                    int length = input.readByte();
+
+                    byte[] bytes = new byte[length];
+                    input.readFully(bytes);
+
+                    String string = new String(bytes, "UTF-8");
+                    childBoardCodes[i] = boardTiles == null ? 0 : boardTiles.codeOf(string);
+                    childTileCodes[i] = canVisit(code, childBoardCodes[i]) ? language.getTokenizer().codeOf(string) : -1;
+                }
+            }
+
+            pending.node = new Node(language, isWord);
+            return pending;
+        }
+
+        private boolean canVisit(int from, int to) {
+            return boardTiles == null || boardTiles.canVisit(from, to);
+        }
+
+        private void take(int code) {
+            if (boardTiles != null) {
+                boardTiles.take(code);
+            }
+        }
+
+        private void release(int code) {
+            if (boardTiles != null) {
+                boardTiles.release(code);
+            }
+        }
+    }
+
+    /**
+     * A node which only decodes its children from {@link LazyLoader#buffer} the first time they
+     * are asked for. Not thread safe.
+     */
+    private static class LazyNode extends Node {
+
+        private final LazyLoader loader;
+
+        /**
+         * Position in the buffer of this node's child count, which is followed by its children.
+         */
+        private final int childrenOffset;
+
+        /**
+         * The {@link BoardTiles} code of the tile leading to this node, or -1 for the root.
+         */
+        private final int code;
+        private final int depth;
+
+        LazyNode(LazyLoader loader, boolean isWord, int minTilesToWord, int maxCharsToWord, int childrenOffset, int code, int depth) {
+            super(loader.language, isWord, minTilesToWord, maxCharsToWord);
+            this.loader = loader;
+            this.childrenOffset = childrenOffset;
+            this.code = code;
+            this.depth = depth;
+        }
+
+        @Override
+        void loadChildren() {
+            loader.readChildren(this);
         }
     }
 
+    /**
+     * Keeps an entire serialized trie in memory and decodes {@link LazyNode}s from it on demand.
+     * Children which can't follow their parent on the board, or whose words all need more tiles
+     * than the board has left, are never decoded.
+     * <p>
+     * Unlike {@link Loader}, it can't prune by the number of copies of each tile, because there is
+     * no single path being read at any one time. The solver never uses a cell twice anyway.
+     * The subtree annotations are those written for the whole dictionary, rather than recalculated
+     * for the board, but they still bound the words which can be found.
+     */
+    private static class LazyLoader {
+
+        private final byte[] bytes;
+        private final ByteBuffer buffer;
+        private final Language language;
+        private final BoardTiles boardTiles;
+        private final int maxWordTiles;
+
+        /**
+         * Null when reading a file which predates {@link TrieHeader}.
+         */
+        private final TrieHeader header;
+        private final int[] alphabetCodes;
+        private final int[] tileCodes;
+
+        LazyLoader(byte[] bytes, Language language, TransitionMap board, TrieHeader header) {
+            this.bytes = bytes;
+            this.buffer = ByteBuffer.wrap(bytes);
+            this.language = language;
+            this.boardTiles = new BoardTiles(board);
+            this.maxWordTiles = board.canRevisit() ? Integer.MAX_VALUE : board.getSize();
+            this.header = header;
+            this.alphabetCodes = header == null ? null : boardTiles.codesOf(header.getAlphabet());
+            this.tileCodes = header == null ? null : tileCodesOf(header.getAlphabet(), language);
+        }
+
+        /**
+         * @param offset Position of the root node (its size) in the buffer.
+         */
+        LazyNode readRoot(int offset) {
+            return readNode(offset + 4, -1, 0);
+        }
+
+        /**
+         * @param body Position in the buffer of a node, just after its size.
+         */
+        private LazyNode readNode(int body, int code, int depth) {
+            boolean isWord = buffer.get(body) != 0;
+            if (header == null || !header.hasSubtreeAnnotations()) {
+                return new LazyNode(this, isWord, 0, Integer.MAX_VALUE, body + 1, code, depth);
+            }
+
+            int minTilesToWord = buffer.getShort(body + 1) & 0xFFFF;
+            int maxCharsToWord = buffer.getShort(body + 3) & 0xFFFF;
+            if (maxCharsToWord == TrieHeader.ANNOTATION_OVERFLOW) {
+                maxCharsToWord = Integer.MAX_VALUE;
+            }
+
+            return new LazyNode(this, isWord, minTilesToWord, maxCharsToWord, body + 5, code, depth);
+        }
+
+        /**
+         * Gives {@param parent} every child which could follow it on the board.
+         */
+        void readChildren(LazyNode parent) {
+            int position = parent.childrenOffset;
+            int numChildren = buffer.getShort(position);
+            position += 2;
+
+            int[] childTileCodes = new int[numChildren];
+            int[] childBoardCodes = new int[numChildren];
+            for (int i = 0; i < numChildren; i++) {
+                int tileCode;
+                if (header != null) {
+                    int alphabetCode;
+                    if (header.hasWideTileIndices()) {
+                        alphabetCode = buffer.getShort(position) & 0xFFFF;
+                        position += 2;
+                    } else {
+                        alphabetCode = buffer.get(position) & 0xFF;
+                        position++;
+                    }
+
+                    childBoardCodes[i] = alphabetCodes[alphabetCode];
+                    tileCode = tileCodes[alphabetCode];
+                } else {
+                    int length = buffer.get(position);
+                    String tile = new String(bytes, position + 1, length, UTF_8);
+                    position += 1 + length;
+
+                    childBoardCodes[i] = boardTiles.codeOf(tile);
+                    tileCode = language.getTokenizer().codeOf(tile);
+                }
+
+                childTileCodes[i] = boardTiles.canFollow(parent.code, childBoardCodes[i]) ? tileCode : -1;
+            }
+
+            int[] keptTileCodes = new int[numChildren];
+            Node[] keptNodes = new Node[numChildren];
+            int keptCount = 0;
+            int freeCells = maxWordTiles - (parent.depth + 1);
+            for (int i = 0; i < numChildren; i++) {
+                int size = buffer.getInt(position);
+                int body = position + 4;
+                position = body + size;
+
+                if (childTileCodes[i] < 0) {
+                    continue;
+                }
+
+                Node child = readNode(body, childBoardCodes[i], parent.depth + 1);
+                if (child.minTilesToWord <= freeCells) {
+                    keptTileCodes[keptCount] = childTileCodes[i];
+                    keptNodes[keptCount] = child;
+                    keptCount++;
+                }
+            }
+
+            parent.setChildren(keptTileCodes, keptNodes, keptCount);
+        }
+    }
+
+    /**
+     * Given a null {@link TransitionMap}, reads every word rather than only those which could be
+     * on the board (see {@link DictionaryCache}).
+     */
     public static class Deserializer implements net.healeys.trie.Deserializer<StringTrie> {
         @Override
         public StringTrie deserialize(InputStream stream, TransitionMap transitionMap, Language language) throws IOException {
@@ -363,4 +1541,47 @@ public class StringTrie extends Trie {
         }
     }
 
+    /**
+     * Reads the same files as {@link Deserializer}, but only decodes each node the first time that
+     * {@link #solver(TransitionMap, WordFilter)} or {@link #isWord(String)} reaches it. The work
+     * done (and memory allocated) then scales with the search actually performed rather than with
+     * the part of the dictionary which might be reachable on the board. This helps most for large
+     * alphabets, where the board prunes the dictionary poorly.
+     * <p>
+     * The entire file is kept in memory for as long as the trie is.
+     */
+    public static class LazyDeserializer implements net.healeys.trie.Deserializer<StringTrie> {
+        @Override
+        public StringTrie deserialize(InputStream stream, TransitionMap transitionMap, Language language) throws IOException {
+            // Raw resources and files know how big they are, so this is usually read in one go
+            // without ever needing to grow the array.
+            byte[] bytes = new byte[Math.max(stream.available(), 8192)];
+            int length = 0;
+            int read;
+            while ((read = stream.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+            }
+
+            TrieHeader header = null;
+            int bodyOffset = 0;
+            if (length >= 4 && ByteBuffer.wrap(bytes).getInt(0) == TrieHeader.MAGIC) {
+                ByteArrayInputStream headerStream = new ByteArrayInputStream(bytes, 4, length - 4);
+                header = TrieHeader.read(new DataInputStream(headerStream));
+                bodyOffset = length - headerStream.available();
+
+                CRC32 checksum = new CRC32();
+                checksum.update(bytes, bodyOffset, length - bodyOffset);
+                if ((int) checksum.getValue() != header.getChecksum()) {
+                    throw new IOException("Trie is corrupt, checksum does not match the header");
+                }
+            }
+
+            LazyLoader loader = new LazyLoader(bytes, language, transitionMap, header);
+            return new StringTrie(language, loader.readRoot(bodyOffset), header);
+        }
+    }
+
 }
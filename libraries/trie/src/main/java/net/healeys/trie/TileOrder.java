@@ -0,0 +1,44 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Tokenizer;
+
+import java.util.Comparator;
+
+/**
+ * Orders words tile by tile, which is the order {@link StringTrie#write(java.io.OutputStream)}
+ * writes them in, and so the order {@link StreamingTrieWriter} needs them in.
+ * <p>
+ * This differs from {@link String#compareTo(String)} when a tile is a prefix of another. In
+ * English, "q" is a tile of its own unless it is followed by a "u", so "qvint" comes before
+ * "queen" because "q" comes before "qu".
+ */
+public class TileOrder implements Comparator<String> {
+
+    private final Language language;
+
+    public TileOrder(Language language) {
+        this.language = language;
+    }
+
+    @Override
+    public int compare(String a, String b) {
+        Tokenizer tokenizer = language.getTokenizer();
+        int positionA = 0;
+        int positionB = 0;
+        while (positionA < a.length() && positionB < b.length()) {
+            // Codes sort the same as the tiles they stand for, without creating either tile.
+            int order = Integer.compare(tokenizer.codeAt(a, positionA), tokenizer.codeAt(b, positionB));
+            if (order != 0) {
+                return order;
+            }
+
+            positionA += tokenizer.tileLength(a, positionA);
+            positionB += tokenizer.tileLength(b, positionB);
+        }
+
+        // Whichever word ran out of tiles first is a prefix of the other.
+        return (a.length() - positionA) - (b.length() - positionB);
+    }
+
+}
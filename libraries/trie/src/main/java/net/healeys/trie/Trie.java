@@ -6,7 +6,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 
+/**
+ * The words of a language, which can be looked up and solved but not changed. Tries are built as a
+ * {@link StringTrie} and can then be written in any of the other formats.
+ */
 public abstract class Trie implements WordFilter {
 
     protected Language language;
@@ -15,12 +20,53 @@ public abstract class Trie implements WordFilter {
         this.language = language;
     }
 
-    public abstract void addWord(String w);
-
     public abstract boolean isWord(String w);
 
     public abstract void write(OutputStream out) throws IOException;
 
     public abstract Map<String, List<Solution>> solver(TransitionMap m, WordFilter filter);
 
+    /**
+     * The same as {@link #solver(TransitionMap, WordFilter)}, for a caller which has already
+     * resolved each cell of {@param m} to its code in {@link Language#getAlphabet()} (e.g. a
+     * board's {@code getTileCodes()}, or {@link Alphabet#codesOf(TransitionMap)}). Cells which
+     * aren't in the alphabet are -1. The board is then never asked for its cells while solving,
+     * and Strings are only built to spell out the words which are found.
+     */
+    public abstract Map<String, List<Solution>> solver(TransitionMap m, int[] tileCodes, WordFilter filter);
+
+    /**
+     * For {@link #words(String)}.
+     */
+    abstract TrieWalker<?> walker();
+
+    /**
+     * Every word in this trie, see {@link #words(String)}.
+     */
+    public Spliterator<String> words() {
+        return words("");
+    }
+
+    /**
+     * Lists every word in this trie which starts with {@param prefix}, without looking at any
+     * other part of the trie. Words are listed depth first, with siblings in tile order. The
+     * spliterator splits by subtree, so it can be walked in parallel with
+     * {@link java.util.stream.StreamSupport#stream(Spliterator, boolean)}.
+     * <p>
+     * Spliterators require Android API 24, so this is for tools and tests rather than the app.
+     * A trie which is read pruned to a board only lists the words which fit that board.
+     */
+    public Spliterator<String> words(String prefix) {
+        return WordSpliterator.of(walker(), language, prefix);
+    }
+
+    /**
+     * The tile which begins at {@param position} in {@param word}. Usually a single character, but
+     * may be longer if the language has a mandatory suffix for that character and the word
+     * contains it (see {@link Language#applyMandatorySuffix(String)}).
+     */
+    public static String tileAt(Language language, String word, int position) {
+        return language.getTokenizer().tileAt(word, position);
+    }
+
 }
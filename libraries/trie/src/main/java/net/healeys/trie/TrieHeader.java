@@ -0,0 +1,193 @@
+package net.healeys.trie;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Written at the start of a serialized {@link StringTrie}, so that the loader knows what it is
+ * about to read before it reads it.
+ * <p>
+ * Layout (all integers are big endian):
+ * <pre>
+ *   int    magic ("LXTR")
+ *   short  format version
+ *   ...    tile alphabet (see {@link Alphabet#write(DataOutputStream)})
+ *   int    number of nodes
+ *   int    number of words
+ *   short  length of the longest word, in tiles
+ *   long   hash of what the trie was built from (version 3 onwards, see {@link #getSourceHash()})
+ *   int    CRC32 of everything after the header
+ * </pre>
+ * Nodes then refer to their children by tile index (one byte, or two if there are more than 256
+ * tiles) instead of spelling out each tile as UTF-8. From version 2, each node also records the
+ * fewest tiles needed to reach a word below it and the most characters any word below it adds,
+ * each as an unsigned short (see {@link #hasSubtreeAnnotations()}). From version 3, the children
+ * of each node are always written in the same order as their tiles appear in the alphabet, so the
+ * same words always produce the same bytes.
+ * <p>
+ * Files written before this header existed start directly with the size of the root node. That
+ * can never equal {@link #MAGIC} in practice (it would be a 1.2GB file), so loaders peek at the
+ * first int to decide which format they are reading.
+ */
+public class TrieHeader {
+
+    static final int MAGIC = 0x4C585452;
+    static final int VERSION = 3;
+
+    /**
+     * The {@link #getSourceHash()} of tries which were not built from a known source, or which
+     * were written before it was recorded.
+     */
+    public static final long NO_SOURCE_HASH = 0;
+
+    /**
+     * Written in place of a subtree annotation which is too large to fit in an unsigned short.
+     */
+    static final int ANNOTATION_OVERFLOW = 0xFFFF;
+
+    private final int version;
+    private final Alphabet alphabet;
+    private final int nodeCount;
+    private final int wordCount;
+    private final int maxWordLength;
+    private final long sourceHash;
+    private final int checksum;
+
+    TrieHeader(int version, Alphabet alphabet, int nodeCount, int wordCount, int maxWordLength, long sourceHash, int checksum) {
+        this.version = version;
+        this.alphabet = alphabet;
+        this.nodeCount = nodeCount;
+        this.wordCount = wordCount;
+        this.maxWordLength = maxWordLength;
+        this.sourceHash = sourceHash;
+        this.checksum = checksum;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether each node records the fewest tiles and most characters needed to complete a word
+     * from there, which lets solvers abandon branches which can't produce an acceptable word.
+     */
+    public boolean hasSubtreeAnnotations() {
+        return version >= 2;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Measured in tiles rather than characters, so "queen" is four long in English.
+     */
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    /**
+     * Whatever the trie was built from (e.g. its dictionary and language rules), boiled down to a
+     * hash by whoever wrote it, so that builders can tell whether it needs to be built again.
+     * {@link #NO_SOURCE_HASH} if unknown.
+     */
+    public long getSourceHash() {
+        return sourceHash;
+    }
+
+    public int getChecksum() {
+        return checksum;
+    }
+
+    TrieHeader withChecksum(int checksum) {
+        return new TrieHeader(version, alphabet, nodeCount, wordCount, maxWordLength, sourceHash, checksum);
+    }
+
+    boolean hasWideTileIndices() {
+        return alphabet.size() > 256;
+    }
+
+    /**
+     * The number of bytes each child tile index takes up in a node.
+     */
+    int getTileIndexSize() {
+        return hasWideTileIndices() ? 2 : 1;
+    }
+
+    int readTileIndex(DataInputStream input) throws IOException {
+        return hasWideTileIndices() ? input.readUnsignedShort() : input.readUnsignedByte();
+    }
+
+    void writeTileIndex(DataOutputStream output, int index) throws IOException {
+        if (hasWideTileIndices()) {
+            output.writeShort(index);
+        } else {
+            output.writeByte(index);
+        }
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeShort(version);
+        alphabet.write(output);
+        output.writeInt(nodeCount);
+        output.writeInt(wordCount);
+        output.writeShort(maxWordLength);
+        output.writeLong(sourceHash);
+        output.writeInt(checksum);
+    }
+
+    /**
+     * Reads the remainder of the header, after the {@link #MAGIC} has already been consumed.
+     */
+    static TrieHeader read(DataInputStream input) throws IOException {
+        int version = input.readUnsignedShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported trie version " + version + ", expected at most " + VERSION);
+        }
+
+        Alphabet alphabet = Alphabet.read(input);
+        int nodeCount = input.readInt();
+        int wordCount = input.readInt();
+        int maxWordLength = input.readUnsignedShort();
+        long sourceHash = version >= 3 ? input.readLong() : NO_SOURCE_HASH;
+        int checksum = input.readInt();
+        return new TrieHeader(version, alphabet, nodeCount, wordCount, maxWordLength, sourceHash, checksum);
+    }
+
+    /**
+     * Reads just enough of a {@link StringTrie} or {@link VariantTrie} to find its
+     * {@link #getSourceHash()}. A variant records it in the header of its additions.
+     *
+     * @return {@link #NO_SOURCE_HASH} for anything else, including tries written before the hash
+     * was recorded.
+     */
+    public static long readSourceHash(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        try {
+            int magic = input.readInt();
+            if (magic == VariantTrie.MAGIC) {
+                input.readUnsignedShort();
+                input.readUTF();
+                input.readInt();
+                magic = input.readInt();
+            }
+
+            return magic == MAGIC ? read(input).getSourceHash() : NO_SOURCE_HASH;
+        } catch (EOFException e) {
+            return NO_SOURCE_HASH;
+        }
+    }
+
+}
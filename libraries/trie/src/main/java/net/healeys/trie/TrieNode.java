@@ -13,7 +13,7 @@ public abstract class TrieNode {
         this.language = language;
     }
 
-    public abstract void writeNode(OutputStream out) throws IOException;
+    public abstract void writeNode(OutputStream out, TrieHeader header) throws IOException;
 
     public abstract TrieNode addSuffix(String word, int currentPosition);
 
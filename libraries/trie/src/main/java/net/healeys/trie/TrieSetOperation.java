@@ -0,0 +1,123 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Combines the words of two serialized {@link StringTrie}s, e.g. to compare en_US with en_GB, or
+ * to take a list of blocked words out of a dictionary. Both tries are read one word at a time by
+ * {@link TrieWordReader}s in lockstep and the result goes straight to a
+ * {@link StreamingTrieWriter}, so neither trie is ever read into memory. Memory use is bounded by
+ * the length of the longest word: the path to the current word in each reader and in the writer.
+ * <p>
+ * The result is the same, byte for byte, as {@link StringTrie#write(OutputStream, long)} would
+ * write for the same words. That needs the alphabet of the result before any node can be written,
+ * so both tries are read twice: once to find which tiles the result uses, then again to write it.
+ */
+public enum TrieSetOperation {
+
+    /**
+     * Words in either trie.
+     */
+    UNION {
+        @Override
+        boolean keeps(boolean inFirst, boolean inSecond) {
+            return inFirst || inSecond;
+        }
+    },
+
+    /**
+     * Words in both tries.
+     */
+    INTERSECTION {
+        @Override
+        boolean keeps(boolean inFirst, boolean inSecond) {
+            return inFirst && inSecond;
+        }
+    },
+
+    /**
+     * Words in the first trie but not the second.
+     */
+    DIFFERENCE {
+        @Override
+        boolean keeps(boolean inFirst, boolean inSecond) {
+            return inFirst && !inSecond;
+        }
+    };
+
+    public interface Visitor {
+        void visit(TrieWordReader word) throws IOException;
+    }
+
+    abstract boolean keeps(boolean inFirst, boolean inSecond);
+
+    /**
+     * Calls {@param visitor} with each word in the result, in {@link TileOrder}. The reader it is
+     * given is only positioned at that word until the visitor returns.
+     */
+    public void visit(InputStream first, InputStream second, Visitor visitor) throws IOException {
+        TrieWordReader a = new TrieWordReader(first);
+        TrieWordReader b = new TrieWordReader(second);
+        boolean hasA = a.next();
+        boolean hasB = b.next();
+        while (hasA || hasB) {
+            int order = !hasA ? 1 : !hasB ? -1 : TrieWordReader.compare(a, b);
+            if (keeps(order <= 0, order >= 0)) {
+                visitor.visit(order <= 0 ? a : b);
+            }
+
+            if (order <= 0) {
+                hasA = a.next();
+            }
+            if (order >= 0) {
+                hasB = b.next();
+            }
+        }
+    }
+
+    /**
+     * Writes a trie of every word in the result to {@param out}.
+     *
+     * @param sourceHash See {@link TrieHeader#getSourceHash()}.
+     * @return How many words were written.
+     */
+    public int write(Language language, File first, File second, OutputStream out, long sourceHash) throws IOException {
+        final Set<String> tiles = new TreeSet<>();
+        try (InputStream a = new FileInputStream(first); InputStream b = new FileInputStream(second)) {
+            visit(a, b, new Visitor() {
+                @Override
+                public void visit(TrieWordReader word) {
+                    for (int i = 0; i < word.length(); i++) {
+                        tiles.add(word.tileAt(i));
+                    }
+                }
+            });
+        }
+
+        try (final StreamingTrieWriter writer = new StreamingTrieWriter(language, tiles, sourceHash)) {
+            final int[] count = {0};
+            try (InputStream a = new FileInputStream(first); InputStream b = new FileInputStream(second)) {
+                visit(a, b, new Visitor() {
+                    @Override
+                    public void visit(TrieWordReader word) throws IOException {
+                        writer.addWord(word.word());
+                        count[0]++;
+                    }
+                });
+            }
+
+            writer.finish();
+            writer.writeTo(out);
+            return count[0];
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package net.healeys.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The shape of a {@link StringTrie}, for working out why a dictionary is slow to load or solve.
+ * <p>
+ * Nodes are counted once for every path which reaches them, so a trie which has been
+ * {@link StringTrie#minimize() minimized} is counted as if it were still a tree.
+ */
+public class TrieStats {
+
+    private long nodes = 0;
+    private long edges = 0;
+    private long words = 0;
+
+    /**
+     * Number of children, mapped to how many nodes have that many children.
+     */
+    private final SortedMap<Integer, Long> fanOut = new TreeMap<>();
+
+    /**
+     * Number of tiles from the root, mapped to how many nodes are that deep.
+     */
+    private final SortedMap<Integer, Long> depths = new TreeMap<>();
+
+    public TrieStats(StringTrie trie) {
+        List<StringTrie.Node> toVisit = new ArrayList<>();
+        List<Integer> toVisitDepths = new ArrayList<>();
+        toVisit.add(trie.rootNode);
+        toVisitDepths.add(0);
+
+        while (!toVisit.isEmpty()) {
+            StringTrie.Node node = toVisit.remove(toVisit.size() - 1);
+            int depth = toVisitDepths.remove(toVisitDepths.size() - 1);
+
+            int children = node.childCount();
+            nodes++;
+            edges += children;
+            if (node.word()) {
+                words++;
+            }
+            increment(fanOut, children);
+            increment(depths, depth);
+
+            for (int i = 0; i < children; i++) {
+                toVisit.add(node.child(i));
+                toVisitDepths.add(depth + 1);
+            }
+        }
+    }
+
+    private static void increment(Map<Integer, Long> counts, int key) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    public long getEdgeCount() {
+        return edges;
+    }
+
+    public long getWordCount() {
+        return words;
+    }
+
+    /**
+     * The proportion of nodes which end a word.
+     */
+    public double getTerminalRatio() {
+        return nodes == 0 ? 0 : (double) words / nodes;
+    }
+
+    public SortedMap<Integer, Long> getFanOut() {
+        return fanOut;
+    }
+
+    public SortedMap<Integer, Long> getDepths() {
+        return depths;
+    }
+
+    /**
+     * Roughly how much heap the trie holds on to once read (see {@link DictionaryCache}).
+     */
+    public long getEstimatedHeapBytes() {
+        return nodes * DictionaryCache.BYTES_PER_NODE;
+    }
+
+}
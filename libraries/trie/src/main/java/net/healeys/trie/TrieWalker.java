@@ -0,0 +1,26 @@
+package net.healeys.trie;
+
+import java.util.List;
+
+/**
+ * The nodes of a trie, as far as {@link WordSpliterator} needs to know about them. Each kind of
+ * trie represents a node differently (e.g. an object, an offset into a buffer or a state number).
+ */
+interface TrieWalker<N> {
+
+    N root();
+
+    /**
+     * @return Null if {@param node} has no child for {@param tile}.
+     */
+    N childAt(N node, String tile);
+
+    boolean isWord(N node);
+
+    /**
+     * Appends the tile leading to each child of {@param node} to {@param tiles}, and the child
+     * itself to {@param children}, ordered by tile.
+     */
+    void children(N node, List<String> tiles, List<N> children);
+
+}
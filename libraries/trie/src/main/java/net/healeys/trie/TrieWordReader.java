@@ -0,0 +1,158 @@
+package net.healeys.trie;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads the words of a serialized {@link StringTrie} one at a time, in {@link TileOrder}, without
+ * reading the trie into memory. Only the path to the current word is held, along with the tiles of
+ * the children still to come at each node on it, so memory is bounded by the depth of the trie
+ * rather than its size.
+ * <p>
+ * This relies on each node listing its children in the order of the alphabet, which tries only do
+ * from version 3 of the {@link TrieHeader} onwards.
+ */
+public class TrieWordReader implements Closeable {
+
+    /**
+     * A node on the path to the current word, and which of its children come next.
+     */
+    private static class Frame {
+
+        final String[] childTiles;
+        int nextChild = 0;
+
+        Frame(String[] childTiles) {
+            this.childTiles = childTiles;
+        }
+    }
+
+    private final DataInputStream input;
+    private final CRC32 checksum = new CRC32();
+    private final TrieHeader header;
+
+    private final List<Frame> stack = new ArrayList<>();
+    private final List<String> tiles = new ArrayList<>();
+    private final StringBuilder word = new StringBuilder();
+
+    public TrieWordReader(InputStream stream) throws IOException {
+        BufferedInputStream bufferedIn = new BufferedInputStream(stream);
+        DataInputStream headerInput = new DataInputStream(bufferedIn);
+        if (headerInput.readInt() != TrieHeader.MAGIC) {
+            throw new IOException("Only tries with a header can be read one word at a time");
+        }
+
+        header = TrieHeader.read(headerInput);
+        if (header.getVersion() < 3) {
+            throw new IOException("Trie version " + header.getVersion() + " doesn't order the children of each node, build it again");
+        }
+
+        input = new DataInputStream(new CheckedInputStream(bufferedIn, checksum));
+        stack.add(readRoot());
+    }
+
+    public TrieHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Moves on to the next word.
+     *
+     * @return False once every word has been read, at which point the checksum has been verified.
+     */
+    public boolean next() throws IOException {
+        while (!stack.isEmpty()) {
+            Frame top = stack.get(stack.size() - 1);
+            if (top.nextChild == top.childTiles.length) {
+                stack.remove(stack.size() - 1);
+                if (!tiles.isEmpty()) {
+                    String tile = tiles.remove(tiles.size() - 1);
+                    word.setLength(word.length() - tile.length());
+                }
+                continue;
+            }
+
+            String tile = top.childTiles[top.nextChild++];
+            input.readInt(); // The size of the subtree, only needed to skip over it.
+            boolean isWord = input.readBoolean();
+            stack.add(readChildren());
+            tiles.add(tile);
+            word.append(tile);
+            if (isWord) {
+                return true;
+            }
+        }
+
+        if ((int) checksum.getValue() != header.getChecksum()) {
+            throw new IOException("Trie is corrupt, checksum does not match the header");
+        }
+        return false;
+    }
+
+    public String word() {
+        return word.toString();
+    }
+
+    /**
+     * How many tiles the current word is made of.
+     */
+    public int length() {
+        return tiles.size();
+    }
+
+    public String tileAt(int index) {
+        return tiles.get(index);
+    }
+
+    /**
+     * Compares the current word of each reader in {@link TileOrder}, without building either word.
+     */
+    public static int compare(TrieWordReader a, TrieWordReader b) {
+        int length = Math.min(a.tiles.size(), b.tiles.size());
+        for (int i = 0; i < length; i++) {
+            int order = a.tiles.get(i).compareTo(b.tiles.get(i));
+            if (order != 0) {
+                return order;
+            }
+        }
+        return a.tiles.size() - b.tiles.size();
+    }
+
+    /**
+     * Reads the whole of the root node, which (unlike every other node) has no tile.
+     */
+    private Frame readRoot() throws IOException {
+        input.readInt();
+        input.readBoolean();
+        return readChildren();
+    }
+
+    /**
+     * Reads the rest of a node once its size and whether it is a word have been read.
+     */
+    private Frame readChildren() throws IOException {
+        if (header.hasSubtreeAnnotations()) {
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+        }
+
+        String[] childTiles = new String[input.readShort()];
+        for (int i = 0; i < childTiles.length; i++) {
+            childTiles[i] = header.getAlphabet().tileOf(header.readTileIndex(input));
+        }
+        return new Frame(childTiles);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
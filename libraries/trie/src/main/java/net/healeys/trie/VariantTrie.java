@@ -0,0 +1,187 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The dictionary for a variant of a language (e.g. en_GB, or French without diacritics), stored
+ * as the words it adds to and removes from the dictionary of a closely related base language.
+ * <p>
+ * The base trie is shared rather than copied, so switching between variants only costs the
+ * memory of the (usually small) delta. The delta is a single read only layer on top of the base
+ * (see {@link LayeredTrie}): a word is in the variant if it is in the additions, or it is in the
+ * base and not in the removals.
+ * <p>
+ * Layout (all integers are big endian):
+ * <pre>
+ *   int    magic ("LXVT")
+ *   short  format version
+ *   UTF    name of the base language (see {@link DataOutputStream#writeUTF(String)})
+ *   int    length of the additions, followed by a {@link StringTrie} of words to add
+ *   int    length of the removals, followed by a {@link StringTrie} of words to remove
+ * </pre>
+ * The header of the additions records the {@link TrieHeader#getSourceHash()} of the variant as a
+ * whole.
+ */
+public class VariantTrie extends LayeredTrie {
+
+    static final int MAGIC = 0x4C585654;
+    static final int VERSION = 1;
+
+    final StringTrie additions;
+    final StringTrie removals;
+
+    public VariantTrie(Language language, StringTrie base, StringTrie additions, StringTrie removals) {
+        super(language, base, additions, removals);
+        this.additions = additions;
+        this.removals = removals;
+    }
+
+    public StringTrie getBase() {
+        return base;
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException {
+        new Serializer().serialize(base.language, additions, removals, out);
+    }
+
+    public static class Serializer {
+
+        public void serialize(Language baseLanguage, StringTrie additions, StringTrie removals, OutputStream out) throws IOException {
+            serialize(baseLanguage, additions, removals, out, TrieHeader.NO_SOURCE_HASH);
+        }
+
+        /**
+         * @param sourceHash See {@link TrieHeader#getSourceHash()}.
+         */
+        public void serialize(Language baseLanguage, StringTrie additions, StringTrie removals, OutputStream out, long sourceHash) throws IOException {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeUTF(baseLanguage.getName());
+            writeDelta(output, additions, sourceHash);
+            writeDelta(output, removals, TrieHeader.NO_SOURCE_HASH);
+            output.flush();
+        }
+
+        /**
+         * Each half is prefixed by its length, because {@link StringTrie.Deserializer} buffers
+         * its input and so can't be trusted to stop reading at the end of the trie.
+         */
+        private static void writeDelta(DataOutputStream output, StringTrie delta, long sourceHash) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            delta.write(bytes, sourceHash);
+            output.writeInt(bytes.size());
+            bytes.writeTo(output);
+        }
+
+    }
+
+    /**
+     * Reads the delta pruned to the {@link TransitionMap} (or in full, if it is null), and asks
+     * {@link BaseLoader} for the base which it applies to.
+     */
+    public static class Deserializer implements net.healeys.trie.Deserializer<VariantTrie> {
+
+        public interface BaseLoader {
+            StringTrie load(Language baseLanguage) throws IOException;
+        }
+
+        private final BaseLoader bases;
+
+        public Deserializer(BaseLoader bases) {
+            this.bases = bases;
+        }
+
+        @Override
+        public VariantTrie deserialize(InputStream stream, TransitionMap transitionMap, Language language) throws IOException {
+            DataInputStream input = new DataInputStream(stream);
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a variant trie");
+            }
+
+            int version = input.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported variant trie version " + version + ", expected " + VERSION);
+            }
+
+            String baseName = input.readUTF();
+            Language baseLanguage;
+            try {
+                baseLanguage = Language.from(baseName);
+            } catch (Language.NotFound e) {
+                throw new IOException("Variant trie for " + language.getName() + " is based on unknown language " + baseName);
+            }
+
+            StringTrie additions = readDelta(input, transitionMap, language);
+            StringTrie removals = readDelta(input, transitionMap, language);
+            StringTrie base = bases.load(baseLanguage);
+
+            checkSameTiles(language, baseLanguage, additions);
+            checkSameTiles(language, baseLanguage, removals);
+            checkSameTiles(language, baseLanguage, base);
+
+            return new VariantTrie(language, base, additions, removals);
+        }
+
+        /**
+         * The base is walked in lockstep with the deltas, using the variant's
+         * {@link Language#applyMandatorySuffix(String)} to split words into tiles. If the two
+         * languages disagree about any tile in {@param trie}, words in the base would be split into
+         * tiles which it doesn't have, and could never be found.
+         */
+        private static void checkSameTiles(Language language, Language baseLanguage, StringTrie trie) throws IOException {
+            for (String tile : tiles(trie)) {
+                String first = tile.substring(0, 1);
+                if (!language.applyMandatorySuffix(first).equals(baseLanguage.applyMandatorySuffix(first))) {
+                    throw new IOException("Variant trie for " + language.getName() + " splits words into tiles differently to its base " + baseLanguage.getName() + " (" + language.applyMandatorySuffix(first) + " vs " + baseLanguage.applyMandatorySuffix(first) + ")");
+                }
+            }
+        }
+
+        /**
+         * Every tile in {@param trie}, from its header where there is one, rather than walking it.
+         */
+        private static Set<String> tiles(StringTrie trie) {
+            Set<String> tiles = new HashSet<>();
+            TrieHeader header = trie.getHeader();
+            if (header != null) {
+                for (int code = 0; code < header.getAlphabet().size(); code++) {
+                    tiles.add(header.getAlphabet().tileOf(code));
+                }
+                return tiles;
+            }
+
+            List<StringTrie.Node> toVisit = new ArrayList<>();
+            toVisit.add(trie.rootNode);
+            while (!toVisit.isEmpty()) {
+                StringTrie.Node node = toVisit.remove(toVisit.size() - 1);
+                for (int i = 0; i < node.childCount(); i++) {
+                    tiles.add(node.childTile(i));
+                    toVisit.add(node.child(i));
+                }
+            }
+            return tiles;
+        }
+
+        private static StringTrie readDelta(DataInputStream input, TransitionMap transitionMap, Language language) throws IOException {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            return new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(bytes), transitionMap, language);
+        }
+    }
+
+}
@@ -36,6 +36,10 @@ public interface WordFilter {
             this.minLength = minLength;
         }
 
+        public int getMinLength() {
+            return minLength;
+        }
+
         @Override
         public boolean isWord(String word) {
             return word != null && word.length() >= minLength;
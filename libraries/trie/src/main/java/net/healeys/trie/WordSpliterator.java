@@ -0,0 +1,157 @@
+package net.healeys.trie;
+
+import com.serwylo.lexica.lang.Language;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lists the words in a trie depth first, so each word comes before any longer words which start
+ * with it, and siblings are visited in tile order.
+ * <p>
+ * The subtrees which are still to be visited are kept in a queue, in the order they will be
+ * visited. {@link #trySplit()} hands the first half of them to a new spliterator, opening up the
+ * next subtree if there is only one left, so that parallel streams divide the trie between threads
+ * by subtree.
+ */
+class WordSpliterator<N> implements Spliterator<String> {
+
+    /**
+     * A subtree which has yet to be visited, or if {@link #node} is null, a single word whose
+     * children have already been queued separately.
+     */
+    private static class Pending<N> {
+
+        final String prefix;
+        final N node;
+
+        Pending(String prefix, N node) {
+            this.prefix = prefix;
+            this.node = node;
+        }
+    }
+
+    private final TrieWalker<N> walker;
+    private final ArrayDeque<Pending<N>> pending;
+    private long estimatedSize;
+
+    private final List<String> tiles = new ArrayList<>();
+    private final List<N> children = new ArrayList<>();
+
+    private WordSpliterator(TrieWalker<N> walker, ArrayDeque<Pending<N>> pending, long estimatedSize) {
+        this.walker = walker;
+        this.pending = pending;
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * @param prefix May end part way through a tile, e.g. "q" when the trie has a "qu" tile, in
+     *               which case words starting with either tile are listed.
+     */
+    static <N> WordSpliterator<N> of(TrieWalker<N> walker, Language language, String prefix) {
+        ArrayDeque<Pending<N>> pending = new ArrayDeque<>();
+        WordSpliterator<N> words = new WordSpliterator<>(walker, pending, Long.MAX_VALUE);
+
+        N node = walker.root();
+        int position = 0;
+        while (position < prefix.length()) {
+            String tile = Trie.tileAt(language, prefix, position);
+            if (position + tile.length() == prefix.length()) {
+                break;
+            }
+
+            node = walker.childAt(node, tile);
+            if (node == null) {
+                return words;
+            }
+
+            position += tile.length();
+        }
+
+        if (position == prefix.length()) {
+            pending.add(new Pending<>(prefix, node));
+            return words;
+        }
+
+        String start = prefix.substring(position);
+        words.tiles.clear();
+        words.children.clear();
+        walker.children(node, words.tiles, words.children);
+        for (int i = 0; i < words.tiles.size(); i++) {
+            if (words.tiles.get(i).startsWith(start)) {
+                pending.add(new Pending<>(prefix.substring(0, position) + words.tiles.get(i), words.children.get(i)));
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Queues the children of {@param subtree} to be visited next, in order.
+     */
+    private void openUp(Pending<N> subtree) {
+        tiles.clear();
+        children.clear();
+        walker.children(subtree.node, tiles, children);
+        for (int i = tiles.size() - 1; i >= 0; i--) {
+            pending.addFirst(new Pending<>(subtree.prefix + tiles.get(i), children.get(i)));
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        while (!pending.isEmpty()) {
+            Pending<N> next = pending.pollFirst();
+            if (next.node == null) {
+                action.accept(next.prefix);
+                return true;
+            }
+
+            openUp(next);
+            if (walker.isWord(next.node)) {
+                action.accept(next.prefix);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        while (pending.size() == 1 && pending.peekFirst().node != null) {
+            Pending<N> only = pending.pollFirst();
+            openUp(only);
+            if (walker.isWord(only.node)) {
+                pending.addFirst(new Pending<N>(only.prefix, null));
+            }
+        }
+
+        if (pending.size() < 2) {
+            return null;
+        }
+
+        ArrayDeque<Pending<N>> firstHalf = new ArrayDeque<>();
+        for (int i = pending.size() / 2; i > 0; i--) {
+            firstHalf.addLast(pending.pollFirst());
+        }
+
+        // Nothing is known about how many words are in each subtree, so assume they are even.
+        estimatedSize >>>= 1;
+        return new WordSpliterator<>(walker, firstHalf, estimatedSize);
+    }
+
+    @Override
+    public long estimateSize() {
+        return pending.isEmpty() ? 0 : estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.StringTrie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Words which can't possibly be spelled out on the board should not even be loaded.
+ */
+public class BoardPruningTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"ten", "tee", "tent", "net", "nab", "tab"};
+
+    @Test
+    public void testTileCopies() throws IOException {
+        StringTrie trie = load(new String[]{"t", "e", "n", "x"});
+        assertTrue(trie.isWord("ten"));
+        assertTrue(trie.isWord("net"));
+        assertFalse("Only one e on the board", trie.isWord("tee"));
+        assertFalse("Only one t on the board", trie.isWord("tent"));
+
+        trie = load(new String[]{"t", "e", "n", "t"});
+        assertTrue(trie.isWord("tent"));
+        assertFalse("Only one e on the board", trie.isWord("tee"));
+    }
+
+    @Test
+    public void testAdjacency() throws IOException {
+        // "a" and "b" are in opposite corners.
+        StringTrie trie = load(new String[]{
+                "a", "t", "x",
+                "n", "x", "x",
+                "x", "x", "b",
+        });
+
+        assertFalse(trie.isWord("nab"));
+        assertFalse(trie.isWord("tab"));
+    }
+
+    private static StringTrie load(String[] board) throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, WORDS);
+        return new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new GridTransitionMap(board), language);
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.trie.util.SourceDictionary;
+import com.serwylo.lexica.trie.util.TrieBuilder;
+
+import net.healeys.trie.DictionaryCache;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BoardSizeTrieTest extends TrieTest {
+
+    /**
+     * "tattoo" needs more than two "t" tiles, and "intestines" needs ten cells.
+     */
+    private static final String[] WORDS = new String[]{"queen", "tent", "net", "tattoo", "intestines", "ox"};
+
+    private static Map<String, Integer> maxCopies() {
+        Map<String, Integer> copies = new HashMap<>();
+        copies.put("a", 2);
+        copies.put("e", 2);
+        copies.put("i", 2);
+        copies.put("n", 2);
+        copies.put("qu", 1);
+        copies.put("s", 2);
+        copies.put("t", 3);
+        copies.put("o", 2);
+        return copies;
+    }
+
+    @Test
+    public void testTileLimits() {
+        TrieBuilder.TileLimits limits = new TrieBuilder.TileLimits(new EnglishUS(), maxCopies(), 9);
+
+        assertTrue(limits.allows("queen"));
+        assertTrue("\"qu\" is a single tile", limits.allows("quiet"));
+        assertTrue(limits.allows("tattoo"));
+        assertFalse("Three copies of \"e\"", limits.allows("teenee"));
+        assertFalse("No \"x\" tiles", limits.allows("ox"));
+        assertFalse("Needs ten cells", limits.allows("intestines"));
+        assertFalse("\"qu\" is dealt once", limits.allows("ququ"));
+    }
+
+    @Test
+    public void testOnlySmallerBoardsWhichDifferGetTheirOwnTrie() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.txt", WORDS);
+
+        Map<String, Integer> copies = maxCopies();
+        copies.put("t", 2);
+
+        // Left over from an earlier build, and no longer different from the main trie.
+        File stale = new File(dir, language.getTrieFileName(16));
+        assertTrue(stale.createNewFile());
+
+        TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16, 25});
+
+        Trie main = read(new File(dir, language.getTrieFileName()), language);
+        assertTrieMatches("Main trie should only contain words which fit on the largest board", main, new String[]{"queen", "tent", "net", "intestines"}, language);
+
+        File nine = new File(dir, language.getTrieFileName(9));
+        assertTrue(nine.exists());
+        assertTrieMatches("Small board should also leave out long words", read(nine, language), new String[]{"queen", "tent", "net"}, language);
+
+        assertFalse("Board of 16 cells can deal the same words as the main trie", stale.exists());
+    }
+
+    @Test
+    public void testLintReport() throws IOException {
+        Language language = new EnglishUS();
+        File dictFile = writeDictionary(tempDir(), "dictionary.txt", "queen", "qvint", "tent", "teenee", "tattoo", "intestines", "ox", "ox");
+        TrieBuilder.TileLimits limits = new TrieBuilder.TileLimits(language, maxCopies(), 9);
+
+        StringWriter report = new StringWriter();
+        int ruledOut = TrieBuilder.lint(language, SourceDictionary.read(dictFile), limits, report);
+
+        assertEquals(4, ruledOut);
+        assertEquals("# en_US: 4 of 7 words can never be dealt\n"
+                + "# 1\t\"q\" is never dealt\n"
+                + "# 1\t\"x\" is never dealt\n"
+                + "# 1\tmore than 2 \"e\" tiles\n"
+                + "# 1\tmore than 9 tiles\n"
+                + "intestines\tmore than 9 tiles\n"
+                + "ox\t\"x\" is never dealt\n"
+                + "qvint\t\"q\" is never dealt\n"
+                + "teenee\tmore than 2 \"e\" tiles\n", report.toString());
+    }
+
+    @Test
+    public void testCacheFallsBackToMainTrie() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        TrieBuilder.runForBoardSizes(language, writeDictionary(dir, "dictionary.txt", WORDS), new File[]{dir}, TrieBuilder.Format.STRING, maxCopies(), new int[]{9, 16});
+
+        DictionaryCache cache = new DictionaryCache((l, boardSize) -> {
+            File file = new File(dir, boardSize == DictionaryCache.ANY_BOARD_SIZE ? l.getTrieFileName() : l.getTrieFileName(boardSize));
+            return file.exists() ? new FileInputStream(file) : null;
+        }, Long.MAX_VALUE);
+
+        Trie main = cache.get(language);
+        assertTrue(main.isWord("intestines"));
+        assertSame(main, cache.get(language, 16));
+
+        Trie small = cache.get(language, 9);
+        assertFalse(small.isWord("intestines"));
+        assertTrue(small.isWord("queen"));
+
+        assertSame(main, cache.get(language, 16));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    private static Trie read(File file, Language language) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return new StringTrie.Deserializer().deserialize(in, null, language);
+        }
+    }
+
+}
@@ -15,6 +15,7 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.fail;
 
 public class CustomTrieTest extends TrieTest {
@@ -39,6 +40,29 @@ public class CustomTrieTest extends TrieTest {
         assertEverythingAboutTrie(usTrie, gbTrie, new StringTrie.Deserializer());
     }
 
+    @Test
+    public void testGrafting() {
+        StringTrie whole = new StringTrie(new EnglishUS());
+        addWords(whole, BOTH_DIALECTS);
+
+        StringTrie startingWithA = new StringTrie(new EnglishUS());
+        addWords(startingWithA, new String[]{"aqua", "a", "alibi"});
+        StringTrie grafted = new StringTrie(new EnglishUS());
+        addWords(grafted, new String[]{"quit", "LongerWordThanA"});
+        grafted.graft(startingWithA);
+
+        assertArrayEquals(serialize(whole), serialize(grafted));
+
+        StringTrie overlapping = new StringTrie(new EnglishUS());
+        addWords(overlapping, new String[]{"quiet"});
+        try {
+            grafted.graft(overlapping);
+            fail("Should not be able to graft a trie which shares a first tile");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
     @Test
     public void testSuffixes() {
         String[] englishWords = {
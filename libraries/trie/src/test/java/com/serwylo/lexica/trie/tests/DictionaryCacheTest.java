@@ -0,0 +1,241 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+
+import net.healeys.trie.DictionaryCache;
+import net.healeys.trie.DoubleArrayTrie;
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryCacheTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"queen", "quit", "ten", "tent", "net", "tab"};
+
+    /**
+     * Root, "qu", "que", "quee", "queen", "qui", "quit", "t", "te", "ten", "tent", "ta", "tab",
+     * "n", "ne" and "net".
+     */
+    private static final int NODES = 16;
+
+    private static class CountingSource implements DictionaryCache.Source {
+
+        private final byte[] serialized;
+        int opened = 0;
+
+        CountingSource() {
+            StringTrie trie = new StringTrie(new EnglishUS());
+            addWords(trie, WORDS);
+            serialized = serialize(trie);
+        }
+
+        @Override
+        public InputStream open(Language language, int boardSize) {
+            if (boardSize != DictionaryCache.ANY_BOARD_SIZE) {
+                return null;
+            }
+
+            opened++;
+            return new ByteArrayInputStream(serialized);
+        }
+    }
+
+    @Test
+    public void testDictionaryIsOnlyReadOnce() throws IOException {
+        CountingSource source = new CountingSource();
+        DictionaryCache cache = new DictionaryCache(source, Long.MAX_VALUE);
+
+        Language language = new EnglishUS();
+        Trie first = cache.get(language);
+        Trie second = cache.get(language);
+
+        assertSame(first, second);
+        assertEquals(1, source.opened);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getEvictionCount());
+
+        assertTrieMatches("Entire dictionary should be cached", first, WORDS, language);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        CountingSource source = new CountingSource();
+        DictionaryCache sizing = new DictionaryCache(source, Long.MAX_VALUE);
+        sizing.get(new EnglishUS());
+        long dictionarySize = sizing.getSize();
+        assertTrue(dictionarySize >= NODES);
+
+        // Room for two dictionaries, but not three.
+        DictionaryCache cache = new DictionaryCache(source, dictionarySize * 2);
+        Language us = new EnglishUS();
+        Language gb = new EnglishGB();
+        Language other = new Persian();
+
+        cache.get(us);
+        cache.get(gb);
+        cache.get(us);
+        cache.get(other);
+
+        assertTrue(cache.contains(us));
+        assertFalse("Used less recently than en_US", cache.contains(gb));
+        assertTrue(cache.contains(other));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(dictionarySize * 2, cache.getSize());
+
+        cache.trimTo(0);
+        assertFalse(cache.contains(us));
+        assertEquals(0, cache.getSize());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testDictionaryLargerThanBudgetIsNotKept() throws IOException {
+        CountingSource source = new CountingSource();
+        DictionaryCache cache = new DictionaryCache(source, 1);
+
+        Language language = new EnglishUS();
+        assertTrue(cache.get(language).isWord("queen"));
+        assertTrue(cache.get(language).isWord("queen"));
+
+        assertFalse(cache.contains(language));
+        assertEquals(2, source.opened);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testBoardGetsPrunedCopyOfDictionaryLargerThanBudget() throws IOException {
+        CountingSource source = new CountingSource();
+        DictionaryCache cache = new DictionaryCache(source, 1);
+
+        Language language = new EnglishUS();
+        GridTransitionMap board = new GridTransitionMap(new String[]{"t", "e", "n", "x"});
+        Trie trie = cache.forBoard(language, board);
+
+        assertTrue(trie.isWord("ten"));
+        assertFalse("Only the words which fit on the board should have been read", trie.isWord("queen"));
+        assertEquals(2, trie.solver(board, new WordFilter.MinLength(3)).size());
+
+        assertFalse(cache.contains(language));
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testBoardViewFindsSameWordsAsPrunedTrie() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, FullTrieTest.readDictionary(language));
+        final byte[] serialized = serialize(trie);
+
+        DictionaryCache cache = new DictionaryCache((l, size) -> new ByteArrayInputStream(serialized), Long.MAX_VALUE);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            GridTransitionMap board = GridTransitionMap.random(random, 4);
+            Trie pruned = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+
+            Map<String, List<Solution>> expected = pruned.solver(board, new WordFilter.MinLength(3));
+            Map<String, List<Solution>> actual = cache.forBoard(language, board).solver(board, new WordFilter.MinLength(3));
+            assertEquals(expected.keySet(), actual.keySet());
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(19, cache.getHitCount());
+    }
+
+    @Test
+    public void testPrunedCopiesOfEveryBoardSizeFindSameWords() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, FullTrieTest.readDictionary(language));
+        final byte[] serialized = serialize(trie);
+
+        // Large boards are read lazily, smaller ones eagerly, but both should find the same words.
+        DictionaryCache cache = new DictionaryCache((l, size) -> new ByteArrayInputStream(serialized), 1);
+
+        Random random = new Random(11);
+        for (int width : new int[]{4, 5, 6}) {
+            for (int i = 0; i < 5; i++) {
+                GridTransitionMap board = GridTransitionMap.random(random, width);
+                Trie pruned = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+
+                Map<String, List<Solution>> expected = pruned.solver(board, new WordFilter.MinLength(3));
+                Map<String, List<Solution>> actual = cache.forBoard(language, board).solver(board, new WordFilter.MinLength(3));
+                assertEquals(expected.keySet(), actual.keySet());
+            }
+        }
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testDawgIsCachedAtTheSizeOfItsFile() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, FullTrieTest.readDictionary(language));
+        byte[] serialized = serialize(trie);
+
+        trie.minimize();
+        ByteArrayOutputStream dawg = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(trie, dawg);
+        final byte[] dawgBytes = dawg.toByteArray();
+
+        DictionaryCache cache = new DictionaryCache((l, size) -> new ByteArrayInputStream(dawgBytes), Long.MAX_VALUE);
+
+        Random random = new Random(13);
+        for (int i = 0; i < 10; i++) {
+            GridTransitionMap board = GridTransitionMap.random(random, 5);
+            Trie pruned = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+
+            Map<String, List<Solution>> expected = pruned.solver(board, new WordFilter.MinLength(3));
+            Trie actual = cache.forBoard(language, board);
+            assertTrue(actual instanceof MappedTrie);
+            assertEquals(expected.keySet(), actual.solver(board, new WordFilter.MinLength(3)).keySet());
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(dawgBytes.length, cache.getSize());
+    }
+
+    @Test
+    public void testDoubleArrayIsReadInFull() throws IOException {
+        StringTrie trie = new StringTrie(new EnglishUS());
+        addWords(trie, WORDS);
+        DoubleArrayTrie doubleArray = new DoubleArrayTrie(trie);
+        final byte[] serialized = serialize(doubleArray);
+
+        // A budget smaller than the double array, which is read in full all the same rather than
+        // pruned to the board.
+        DictionaryCache cache = new DictionaryCache((l, size) -> new ByteArrayInputStream(serialized), 1);
+
+        Language language = new EnglishUS();
+        GridTransitionMap board = new GridTransitionMap(new String[]{"t", "e", "n", "x"});
+        Trie actual = cache.forBoard(language, board);
+
+        assertTrue(actual instanceof DoubleArrayTrie);
+        assertTrieMatches("Entire dictionary should be read", actual, WORDS, language);
+        assertEquals(2, actual.solver(board, new WordFilter.MinLength(3)).size());
+    }
+
+}
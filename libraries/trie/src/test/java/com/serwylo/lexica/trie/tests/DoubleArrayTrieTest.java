@@ -0,0 +1,78 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.FrenchNoDiacritics;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+
+import net.healeys.trie.DoubleArrayTrie;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class DoubleArrayTrieTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"queen", "quit", "aqua", "a", "alibi", "monarch", "America", "LongerWordThanA"};
+
+    @Test
+    public void testSmallTrie() {
+        Language language = new EnglishGB();
+        assertTrieMatches("After converting to a double array", toDoubleArray(language, WORDS), WORDS, language);
+    }
+
+    @Test
+    public void testSuffixAtEndOfWord() {
+        String[] frenchWords = {"bonjour", "que", "jusqu"};
+        Language language = new FrenchNoDiacritics();
+        assertTrieMatches("French qu suffix in a double array", toDoubleArray(language, frenchWords), frenchWords, language);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Language language = new EnglishGB();
+        DoubleArrayTrie trie = toDoubleArray(language, WORDS);
+        byte[] serialized = serialize(trie);
+
+        Trie deserialized = new DoubleArrayTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), new CanTransitionMap(), language);
+        assertTrieMatches("After deserializing a double array", deserialized, WORDS, language);
+        assertArrayEquals(serialized, serialize(deserialized));
+    }
+
+    @Test
+    public void testFromStringTrieFormat() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie stringTrie = new StringTrie(language);
+        addWords(stringTrie, WORDS);
+
+        Trie deserialized = new DoubleArrayTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(stringTrie)), new CanTransitionMap(), language);
+        assertTrieMatches("After converting from a serialized StringTrie", deserialized, WORDS, language);
+    }
+
+    @Test
+    public void testEnUsDictionary() {
+        Language language = new EnglishUS();
+        String[] words = FullTrieTest.readDictionary(language);
+        assertTrieMatches("After converting the entire US dictionary to a double array", toDoubleArray(language, words), words, language);
+    }
+
+    @Test
+    public void testPersianDictionary() {
+        Language language = new Persian();
+        String[] words = FullTrieTest.readDictionary(language);
+        assertTrieMatches("After converting the entire Persian dictionary to a double array", toDoubleArray(language, words), words, language);
+    }
+
+    private static DoubleArrayTrie toDoubleArray(Language language, String[] words) {
+        StringTrie stringTrie = new StringTrie(language);
+        addWords(stringTrie, words);
+        return new DoubleArrayTrie(stringTrie);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.French;
+import com.serwylo.lexica.lang.FrenchNoDiacritics;
+import com.serwylo.lexica.lang.GermanDeNoDiacritics;
+import com.serwylo.lexica.lang.SpanishSoloEnne;
+import com.serwylo.lexica.trie.util.Folding;
+import com.serwylo.lexica.trie.util.SourceDictionary;
+import com.serwylo.lexica.trie.util.TrieBuilder;
+
+import net.healeys.trie.StringTrie;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FoldingTest extends TrieTest {
+
+    @Test
+    public void testFrenchStripsDiacritics() {
+        Folding folding = Folding.of(new FrenchNoDiacritics());
+        assertEquals("dictionary.fr_FR.txt", folding.getSourceDictionaryFileName());
+        assertEquals("peche", folding.fold("pêche"));
+        assertEquals("noel", folding.fold("noël"));
+        assertEquals("garcon", folding.fold("garçon"));
+        assertEquals("Already decomposed", "ete", folding.fold("e\u0301te\u0301"));
+    }
+
+    @Test
+    public void testLanguageExceptions() {
+        Folding german = Folding.of(new GermanDeNoDiacritics());
+        assertEquals("ueber", german.fold("über"));
+        assertEquals("Already decomposed", "moeglich", german.fold("mo\u0308glich"));
+
+        Folding spanish = Folding.of(new SpanishSoloEnne());
+        assertEquals("año", spanish.fold("año"));
+        assertEquals("pinguino", spanish.fold("pingüino"));
+        assertEquals("cancion", spanish.fold("canción"));
+    }
+
+    @Test
+    public void testOnlyFoldedLanguagesHaveFolding() {
+        assertNull(Folding.of(new French()));
+        assertNull(Folding.of(new EnglishUS()));
+    }
+
+    @Test
+    public void testFoldedWordsAreDeduplicated() throws IOException {
+        FrenchNoDiacritics language = new FrenchNoDiacritics();
+        File dictFile = writeDictionary(tempDir(), "dictionary.txt", "pêche", "péché", "peche", "# commenté", "Été");
+        File trieFile = tempFile();
+        SourceDictionary dictionary = SourceDictionary.read(dictFile).fold(Folding.of(language));
+        TrieBuilder.run(language, dictionary, new File[]{trieFile}, TrieBuilder.Format.STRING);
+
+        try (InputStream in = new FileInputStream(trieFile)) {
+            StringTrie trie = new StringTrie.Deserializer().deserialize(in, null, language);
+            assertTrieMatches("Folded trie", trie, new String[]{"peche", "ete"}, language);
+            assertEquals(2, trie.getHeader().getWordCount());
+        }
+    }
+
+}
@@ -7,7 +7,6 @@ import com.serwylo.lexica.lang.Language;
 import com.serwylo.lexica.lang.Persian;
 
 import net.healeys.trie.StringTrie;
-import net.healeys.trie.Trie;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -29,7 +28,7 @@ public class FullTrieTest extends TrieTest {
         String[] words = readDictionary(language);
         Assert.assertEquals(77517, words.length);
 
-        Trie trie = new StringTrie(language);
+        StringTrie trie = new StringTrie(language);
         addWords(trie, words);
 
         assertTrieMatches("After adding entire US dictionary to a new Trie", trie, words, new EnglishUS());
@@ -41,7 +40,7 @@ public class FullTrieTest extends TrieTest {
         String[] words = readDictionary(language);
         Assert.assertEquals(77097, words.length);
 
-        Trie trie = new StringTrie(language);
+        StringTrie trie = new StringTrie(language);
         addWords(trie, words);
 
         assertTrieMatches("After adding entire UK dictionary to a new Trie", trie, words, new EnglishGB());
@@ -53,7 +52,7 @@ public class FullTrieTest extends TrieTest {
         String[] words = readDictionary(language);
         Assert.assertEquals(144582, words.length);
 
-        Trie trie = new StringTrie(language);
+        StringTrie trie = new StringTrie(language);
         addWords(trie, words);
 
         assertTrieMatches("After adding entire French dictionary to a new Trie", trie, words, new French());
@@ -65,7 +64,7 @@ public class FullTrieTest extends TrieTest {
         String[] words = readDictionary(language);
         Assert.assertEquals(166715, words.length);
 
-        Trie trie = new StringTrie(language);
+        StringTrie trie = new StringTrie(language);
         addWords(trie, words);
 
         assertTrieMatches("After adding entire Persian dictionary to a new Trie", trie, words, new Persian());
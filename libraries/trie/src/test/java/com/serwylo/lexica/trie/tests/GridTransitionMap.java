@@ -0,0 +1,61 @@
+package com.serwylo.lexica.trie.tests;
+
+import net.healeys.trie.TransitionMap;
+
+import java.util.Random;
+
+/**
+ * Mock {@link TransitionMap} for testing, which behaves like a real square board: each cell can
+ * only transition to the (up to) eight cells surrounding it, and each cell can only be used once
+ * per word.
+ */
+public class GridTransitionMap implements TransitionMap {
+
+    /**
+     * Roughly follows English letter frequencies, so that random boards contain a realistic number
+     * of words.
+     */
+    private static final String LETTERS = "eeeeeeeeeeeetttttttttaaaaaaaaoooooooiiiiiiinnnnnnnsssssshhhhhhrrrrrrddddllllcccuuummmwwffggyyppbbvkjxqz";
+
+    private final String[] tiles;
+    private final int width;
+
+    GridTransitionMap(String[] tiles) {
+        this.tiles = tiles;
+        this.width = (int) Math.sqrt(tiles.length);
+    }
+
+    static GridTransitionMap random(Random random, int width) {
+        String[] tiles = new String[width * width];
+        for (int i = 0; i < tiles.length; i++) {
+            char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            tiles[i] = letter == 'q' ? "qu" : Character.toString(letter);
+        }
+        return new GridTransitionMap(tiles);
+    }
+
+    @Override
+    public boolean canTransition(int fromX, int fromY, int toX, int toY) {
+        return (fromX != toX || fromY != toY) && Math.abs(fromX - toX) <= 1 && Math.abs(fromY - toY) <= 1;
+    }
+
+    @Override
+    public boolean canRevisit() {
+        return false;
+    }
+
+    @Override
+    public String valueAt(int position) {
+        return tiles[position];
+    }
+
+    @Override
+    public int getSize() {
+        return tiles.length;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,153 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.trie.util.TrieBuilder;
+
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TrieHeader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalBuildTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"queen", "tent", "net", "tenet", "intestines", "ox"};
+
+    /**
+     * A trie which has been read back holds each node's children in a map sized for exactly that
+     * many children, so it iterates them in a different order to the trie which was written.
+     */
+    @Test
+    public void testRewritingReadTrieWritesSameBytes() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, FullTrieTest.readDictionary(language));
+
+        byte[] written = serialize(trie);
+        StringTrie read = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(written), null, language);
+        assertArrayEquals(written, serialize(read));
+
+        ByteArrayOutputStream mapped = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(trie, mapped);
+        ByteArrayOutputStream mappedFromRead = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(read, mappedFromRead);
+        assertArrayEquals(mapped.toByteArray(), mappedFromRead.toByteArray());
+    }
+
+    @Test
+    public void testUnchangedDictionaryIsNotRebuilt() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.txt", WORDS);
+        File trieFile = new File(dir, language.getTrieFileName());
+
+        TrieBuilder.run(language, dictFile, new File[]{trieFile});
+        long sourceHash = readSourceHash(trieFile);
+        assertNotEquals(TrieHeader.NO_SOURCE_HASH, sourceHash);
+
+        assertTrue(trieFile.setLastModified(0));
+        TrieBuilder.run(language, dictFile, new File[]{trieFile});
+        assertEquals("Trie should have been left alone", 0, trieFile.lastModified());
+
+        writeDictionary(dir, "dictionary.txt", new String[]{"queen", "tent"});
+        TrieBuilder.run(language, dictFile, new File[]{trieFile});
+        assertNotEquals(0, trieFile.lastModified());
+        assertNotEquals(sourceHash, readSourceHash(trieFile));
+        assertTrieMatches("Trie should have been rebuilt", read(trieFile, language), new String[]{"queen", "tent"}, language);
+    }
+
+    @Test
+    public void testChangedTileLimitsAreRebuilt() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.txt", WORDS);
+        File trieFile = new File(dir, language.getTrieFileName());
+
+        Map<String, Integer> copies = new HashMap<>();
+        for (String tile : new String[]{"e", "i", "n", "o", "qu", "s", "t", "x"}) {
+            copies.put(tile, 3);
+        }
+
+        TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16});
+        assertTrue(trieFile.setLastModified(0));
+        TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, new HashMap<>(copies), new int[]{16, 9});
+        assertEquals("Trie should have been left alone", 0, trieFile.lastModified());
+
+        copies.remove("x");
+        TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16});
+        assertTrieMatches("Trie should have been rebuilt", read(trieFile, language), new String[]{"queen", "tent", "net", "tenet", "intestines"}, language);
+    }
+
+    @Test
+    public void testDeletedBoardSizeTrieIsRebuilt() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.txt", WORDS);
+        File smallTrieFile = new File(dir, language.getTrieFileName(9));
+
+        Map<String, Integer> copies = new HashMap<>();
+        for (String tile : new String[]{"e", "i", "n", "o", "qu", "s", "t", "x"}) {
+            copies.put(tile, 3);
+        }
+
+        assertNotNull(TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16}));
+        assertTrue("\"intestines\" doesn't fit on 9 cells", smallTrieFile.exists());
+        assertNull("Should have been up to date", TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16}));
+
+        assertTrue(smallTrieFile.delete());
+        assertNotNull(TrieBuilder.runForBoardSizes(language, dictFile, new File[]{dir}, TrieBuilder.Format.STRING, copies, new int[]{9, 16}));
+        assertTrieMatches("Trie should have been rebuilt", read(smallTrieFile, language), new String[]{"queen", "tent", "net", "tenet", "ox"}, language);
+    }
+
+    @Test
+    public void testVariantIsNotRebuiltUntilBaseChanges() throws IOException {
+        Language language = new EnglishGB();
+        Language baseLanguage = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.en_GB.txt", new String[]{"queen", "tent", "net", "colour"});
+        File baseDictFile = writeDictionary(dir, "dictionary.en_US.txt", new String[]{"queen", "tent", "net", "color"});
+        File trieFile = new File(dir, language.getTrieFileName());
+
+        TrieBuilder.runVariant(language, dictFile, null, baseLanguage, baseDictFile, null, new File[]{trieFile});
+        long sourceHash = readSourceHash(trieFile);
+        assertNotEquals(TrieHeader.NO_SOURCE_HASH, sourceHash);
+
+        assertTrue(trieFile.setLastModified(0));
+        TrieBuilder.runVariant(language, dictFile, null, baseLanguage, baseDictFile, null, new File[]{trieFile});
+        assertEquals("Variant should have been left alone", 0, trieFile.lastModified());
+
+        writeDictionary(dir, "dictionary.en_US.txt", new String[]{"queen", "tent", "color"});
+        TrieBuilder.runVariant(language, dictFile, null, baseLanguage, baseDictFile, null, new File[]{trieFile});
+        assertNotEquals(sourceHash, readSourceHash(trieFile));
+    }
+
+    private static long readSourceHash(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return TrieHeader.readSourceHash(in);
+        }
+    }
+
+    private static StringTrie read(File file, Language language) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return new StringTrie.Deserializer().deserialize(in, null, language);
+        }
+    }
+
+}
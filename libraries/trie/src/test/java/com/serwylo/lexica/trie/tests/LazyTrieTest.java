@@ -0,0 +1,125 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyTrieTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"queen", "quit", "aqua", "a", "alibi", "monarch", "America", "LongerWordThanA"};
+
+    @Test
+    public void testSmallTrie() throws IOException {
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, WORDS);
+
+        StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new CanTransitionMap(), language);
+        assertTrieMatches("After lazily reading a small trie", lazy, WORDS, language);
+    }
+
+    @Test
+    public void testSameSolutionsAsEagerLoading() throws IOException {
+        assertSameSolutions(new EnglishUS(), 4);
+        assertSameSolutions(new EnglishUS(), 5);
+        assertSameSolutions(new Persian(), 4);
+    }
+
+    @Test
+    public void testWritingLazyTrie() throws IOException {
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, WORDS);
+
+        StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new CanTransitionMap(), language);
+        StringTrie rewritten = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(lazy)), new CanTransitionMap(), language);
+        assertTrieMatches("After writing a lazily read trie", rewritten, WORDS, language);
+    }
+
+    @Test
+    public void testCorruptTrieIsRejected() {
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, WORDS);
+
+        byte[] serialized = serialize(trie);
+        serialized[serialized.length - 1] ^= 1;
+
+        try {
+            new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(serialized), new CanTransitionMap(), language);
+            fail("Corrupt trie should not have been loaded");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testOnlyBoardTilesAreFollowed() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, new String[]{"ten", "net", "nab"});
+
+        StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new GridTransitionMap(new String[]{"t", "e", "n", "x"}), language);
+        assertTrue(lazy.isWord("ten"));
+        assertTrue(lazy.isWord("net"));
+        assertFalse(lazy.isWord("nab"));
+    }
+
+    private static void assertSameSolutions(Language language, int boardWidth) throws IOException {
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, FullTrieTest.readDictionary(language));
+        byte[] serialized = serialize(trie);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10; i++) {
+            GridTransitionMap board = randomBoard(random, language, boardWidth);
+            StringTrie eager = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+            StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+
+            Map<String, List<Solution>> expected = eager.solver(board, new WordFilter.MinLength(3));
+            Map<String, List<Solution>> actual = lazy.solver(board, new WordFilter.MinLength(3));
+            assertEquals(expected.keySet(), actual.keySet());
+            for (String word : expected.keySet()) {
+                assertTrue(lazy.isWord(word));
+                assertEquals(word, expected.get(word).size(), actual.get(word).size());
+            }
+        }
+    }
+
+    /**
+     * Uses the English letter frequencies for English, or picks letters from the dictionary for
+     * other languages.
+     */
+    private static GridTransitionMap randomBoard(Random random, Language language, int width) {
+        if (language instanceof EnglishUS) {
+            return GridTransitionMap.random(random, width);
+        }
+
+        String[] words = FullTrieTest.readDictionary(language);
+        String[] tiles = new String[width * width];
+        for (int i = 0; i < tiles.length; i++) {
+            String word = words[random.nextInt(words.length)];
+            tiles[i] = language.applyMandatorySuffix(Character.toString(word.charAt(random.nextInt(word.length()))));
+        }
+        return new GridTransitionMap(tiles);
+    }
+
+}
@@ -75,6 +75,36 @@ public class LetterFrequencyTest {
         assertCount(assessmentCount, "t", 1);
     }
 
+    @Test
+    public void countLettersAfterQWithoutU() {
+        LetterFrequency letters = new LetterFrequency(new EnglishGB());
+
+        HashMap<String, Integer> qiCount = letters.getLetterCountsForWord("qi");
+        assertEquals(1, qiCount.size());
+        assertCount(qiCount, "i", 1);
+
+        HashMap<String, Integer> qantasCount = letters.getLetterCountsForWord("qantas");
+        assertEquals(4, qantasCount.size());
+        assertCount(qantasCount, "a", 2);
+        assertCount(qantasCount, "n", 1);
+        assertCount(qantasCount, "t", 1);
+        assertCount(qantasCount, "s", 1);
+    }
+
+    @Test
+    public void countEachQu() {
+        LetterFrequency letters = new LetterFrequency(new EnglishGB());
+
+        HashMap<String, Integer> counts = letters.getLetterCountsForWord("quinquennial");
+        assertCount(counts, "q", 2);
+        assertCount(counts, "i", 2);
+        assertCount(counts, "n", 3);
+        assertFalse(counts.containsKey("u"));
+
+        letters.addWord("quinquennial");
+        assertCounts(letters.getCountsForLetter("q"), 0, 1);
+    }
+
     private static void assertCount(HashMap<String, Integer> counts, String letter, int expectedCount) {
         int actualCount = counts.get(letter);
         assertEquals(expectedCount, actualCount);
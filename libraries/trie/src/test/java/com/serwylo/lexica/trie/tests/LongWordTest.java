@@ -0,0 +1,86 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.StringTrie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Languages with long compound words (German, Finnish, Hungarian) should not be limited by the
+ * size of whichever thread stack the trie happens to be loaded on.
+ */
+public class LongWordTest extends TrieTest {
+
+    /**
+     * Leaves out "qu", so that every tile is one character and words can be cut anywhere.
+     */
+    private static final String[] TILES = new String[]{"a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o", "p", "r", "s", "t", "u", "v", "w", "x", "y", "z",};
+
+    @Test
+    public void testTwoHundredTileWords() throws Exception {
+        Random random = new Random(42);
+        String[] words = new String[50];
+        for (int i = 0; i < words.length; i++) {
+            // Half of the words extend an earlier word, so that long chains also branch.
+            String prefix = i > 0 && i % 2 == 0 ? words[random.nextInt(i)].substring(0, 100) : "";
+            words[i] = prefix + randomWord(random, 200 - prefix.length());
+        }
+
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, words);
+
+        StringTrie deserialized = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new CanTransitionMap(TILES), language);
+        assertTrieMatches("After reading 200 tile words", deserialized, words, language);
+    }
+
+    @Test
+    public void testSmallThreadStack() throws Exception {
+        final String word = randomWord(new Random(42), 50000);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread thread = new Thread(null, () -> {
+            try {
+                Language language = new EnglishGB();
+                StringTrie trie = new StringTrie(language);
+                trie.addWord(word);
+                trie.addWord(word.substring(0, word.length() / 2));
+
+                StringTrie deserialized = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new CanTransitionMap(TILES), language);
+                assertTrue(deserialized.isWord(word));
+                assertTrue(deserialized.isWord(word.substring(0, word.length() / 2)));
+                assertFalse(deserialized.isWord(word.substring(0, word.length() - 1)));
+
+                deserialized.minimize();
+                assertTrue(deserialized.isWord(word));
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        }, "small-stack", 128 * 1024);
+
+        thread.start();
+        thread.join();
+
+        if (error.get() != null) {
+            throw new AssertionError("Failed to handle a 50,000 tile word on a small stack", error.get());
+        }
+    }
+
+    private static String randomWord(Random random, int tiles) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < tiles; i++) {
+            word.append(TILES[random.nextInt(TILES.length)]);
+        }
+        return word.toString();
+    }
+
+}
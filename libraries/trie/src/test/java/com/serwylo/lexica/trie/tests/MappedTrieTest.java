@@ -0,0 +1,169 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.French;
+import com.serwylo.lexica.lang.FrenchNoDiacritics;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedTrieTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"queen", "quit", "aqua", "a", "alibi", "monarch", "America", "LongerWordThanA"};
+
+    @Test
+    public void testSmallTrie() throws IOException {
+        Language language = new EnglishGB();
+        MappedTrie trie = toMapped(language, WORDS);
+        assertTrieMatches("After converting to a mapped trie", trie, WORDS, language);
+    }
+
+    @Test
+    public void testSuffixAtEndOfWord() throws IOException {
+        String[] frenchWords = {"bonjour", "que", "jusqu"};
+        Language language = new FrenchNoDiacritics();
+        MappedTrie trie = toMapped(language, frenchWords);
+        assertTrieMatches("French qu suffix in a mapped trie", trie, frenchWords, language);
+    }
+
+    @Test
+    public void testSubsetOfLetters() throws IOException {
+        MappedTrie trie = toMapped(new EnglishUS(), WORDS);
+
+        // "a", "aqua", "queen" and "quit".
+        String[] aeinqt = new String[]{"a", "e", "i", "n", "qu", "t"};
+        assertEquals(4, trie.solver(new CanTransitionMap(aeinqt), w -> true).size());
+
+        // "a", "alibi", "america" and "monarch".
+        String[] abcehilmnor = new String[]{"a", "b", "c", "e", "h", "i", "l", "m", "n", "o", "r"};
+        assertEquals(4, trie.solver(new CanTransitionMap(abcehilmnor), w -> true).size());
+    }
+
+    @Test
+    public void testMappedFromFile() throws IOException {
+        Language language = new Persian();
+        String[] words = FullTrieTest.readDictionary(language);
+
+        StringTrie stringTrie = new StringTrie(language);
+        addWords(stringTrie, words);
+
+        File file = tempFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            new MappedTrie.Serializer().serialize(stringTrie, out);
+        }
+
+        Trie trie = MappedTrie.map(file, language);
+        assertTrieMatches("After memory mapping the entire Persian dictionary", trie, words, language);
+    }
+
+    @Test
+    public void testDeserializeMapsFileFromCurrentPosition() throws IOException {
+        Language language = new EnglishGB();
+        File file = tempFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3});
+            out.write(serializeMapped(language, WORDS));
+        }
+
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(3, in.skip(3));
+            MappedTrie trie = new MappedTrie.Deserializer().deserialize(in, new CanTransitionMap(), language);
+            assertTrieMatches("After mapping the file behind a stream", trie, WORDS, language);
+        }
+    }
+
+    @Test
+    public void testWriteIsVerbatim() throws IOException {
+        Language language = new EnglishGB();
+        byte[] serialized = serializeMapped(language, WORDS);
+        MappedTrie trie = new MappedTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), new CanTransitionMap(), language);
+        assertArrayEquals(serialized, serialize(trie));
+    }
+
+    @Test
+    public void testRejectsStringTrieFormat() {
+        Language language = new EnglishGB();
+        StringTrie stringTrie = new StringTrie(language);
+        addWords(stringTrie, WORDS);
+
+        try {
+            new MappedTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(stringTrie)), new CanTransitionMap(), language);
+            fail("Should not be able to read a StringTrie as a MappedTrie");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testMinimizedStringTrie() {
+        String[] words = new String[]{"walking", "talking", "walked", "talked", "walk", "talk", "station", "nation", "quest", "quests", "quiet"};
+        Language language = new EnglishGB();
+
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, words);
+        trie.minimize();
+
+        assertTrieMatches("After minimizing", trie, words, language);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCantAddToMinimizedTrie() {
+        StringTrie trie = new StringTrie(new EnglishGB());
+        addWords(trie, WORDS);
+        trie.minimize();
+        trie.addWord("another");
+    }
+
+    @Test
+    public void testDawgOfEntireDictionary() throws IOException {
+        Language language = new French();
+        String[] words = FullTrieTest.readDictionary(language);
+
+        byte[] trie = serializeMapped(language, words, false);
+        byte[] dawg = serializeMapped(language, words, true);
+        assertTrue("DAWG (" + dawg.length + " bytes) should be much smaller than the trie (" + trie.length + " bytes)", dawg.length * 3 < trie.length);
+
+        MappedTrie deserialized = new MappedTrie.Deserializer().deserialize(new ByteArrayInputStream(dawg), new CanTransitionMap(), language);
+        assertTrieMatches("After converting the entire French dictionary to a DAWG", deserialized, words, language);
+    }
+
+    private static byte[] serializeMapped(Language language, String[] words) throws IOException {
+        return serializeMapped(language, words, false);
+    }
+
+    private static byte[] serializeMapped(Language language, String[] words, boolean minimize) throws IOException {
+        StringTrie stringTrie = new StringTrie(language);
+        addWords(stringTrie, words);
+        if (minimize) {
+            stringTrie.minimize();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(stringTrie, out);
+        return out.toByteArray();
+    }
+
+    private static MappedTrie toMapped(Language language, String[] words) throws IOException {
+        byte[] serialized = serializeMapped(language, words);
+        return new MappedTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), new CanTransitionMap(), language);
+    }
+
+}
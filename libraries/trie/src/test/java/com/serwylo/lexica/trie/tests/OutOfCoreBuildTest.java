@@ -0,0 +1,129 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.trie.util.TrieBuilder;
+
+import net.healeys.trie.StreamingTrieWriter;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TileOrder;
+import net.healeys.trie.TrieHeader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutOfCoreBuildTest extends TrieTest {
+
+    @Test
+    public void testTileOrder() {
+        TileOrder order = new TileOrder(new EnglishUS());
+
+        assertTrue("\"q\" comes before \"qu\"", order.compare("qvint", "queen") < 0);
+        assertTrue("qat".compareTo("queen") < 0);
+        assertTrue(order.compare("qat", "queen") < 0);
+        assertTrue("A prefix comes first", order.compare("tent", "tents") < 0);
+        assertEquals(0, order.compare("tent", "tent"));
+    }
+
+    @Test
+    public void testShuffledDictionaryWritesSameBytes() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        List<String> words = new ArrayList<>(Arrays.asList(FullTrieTest.readDictionary(language)));
+        Collections.shuffle(words, new Random(42));
+        File dictFile = writeDictionary(dir, "dictionary.txt", words.toArray(new String[0]));
+
+        File inMemory = new File(dir, "in-memory.bin");
+        File outOfCore = new File(dir, "out-of-core.bin");
+        TrieBuilder.run(language, dictFile, new File[]{inMemory});
+
+        // Small enough to need merging several runs.
+        TrieBuilder.runOutOfCore(language, dictFile, new File[]{outOfCore}, 10000);
+
+        assertArrayEquals(readBytes(inMemory), readBytes(outOfCore));
+    }
+
+    @Test
+    public void testBoardSizesWriteSameBytes() throws IOException {
+        Language language = new EnglishUS();
+        File dictFile = writeDictionary(tempDir(), "dictionary.txt", FullTrieTest.readDictionary(language));
+
+        Map<String, Integer> copies = new HashMap<>();
+        for (char letter = 'a'; letter <= 'z'; letter++) {
+            copies.put(Character.toString(letter), 2);
+        }
+        copies.remove("q");
+        copies.put("qu", 1);
+
+        File inMemory = tempDir();
+        File outOfCore = tempDir();
+        TrieBuilder.runForBoardSizes(language, dictFile, new File[]{inMemory}, TrieBuilder.Format.STRING, copies, new int[]{6, 16});
+        TrieBuilder.runForBoardSizesOutOfCore(language, dictFile, new File[]{outOfCore}, copies, new int[]{6, 16}, 10000);
+
+        assertArrayEquals(readBytes(new File(inMemory, language.getTrieFileName())), readBytes(new File(outOfCore, language.getTrieFileName())));
+        assertArrayEquals(readBytes(new File(inMemory, language.getTrieFileName(6))), readBytes(new File(outOfCore, language.getTrieFileName(6))));
+    }
+
+    @Test
+    public void testDuplicatesAndCommentsAreIgnored() throws IOException {
+        Language language = new EnglishUS();
+        File dir = tempDir();
+        File dictFile = writeDictionary(dir, "dictionary.txt", "# A comment", "tent", "Queen", "", "net", "tent", "  ", "queen", "ox");
+        File trieFile = new File(dir, language.getTrieFileName());
+
+        TrieBuilder.runOutOfCore(language, dictFile, new File[]{trieFile}, 2);
+
+        try (InputStream in = new FileInputStream(trieFile)) {
+            StringTrie trie = new StringTrie.Deserializer().deserialize(in, null, language);
+            assertTrieMatches("Out of core trie", trie, new String[]{"queen", "tent", "net", "ox"}, language);
+        }
+    }
+
+    @Test
+    public void testWordsMustBeInTileOrder() throws IOException {
+        Language language = new EnglishUS();
+        try (StreamingTrieWriter writer = new StreamingTrieWriter(language, Arrays.asList("e", "n", "qu", "t"), TrieHeader.NO_SOURCE_HASH)) {
+            writer.addWord("net");
+            writer.addWord("net");
+            writer.addWord("queen");
+
+            try {
+                writer.addWord("tent");
+                writer.addWord("net");
+                fail("Should not be able to add a word out of order");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+
+            try {
+                writer.addWord("tents");
+                fail("Should not be able to add a word with a tile missing from the alphabet");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+
+            writer.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.writeTo(out);
+            assertTrue(out.size() > 0);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.OverlayTrie;
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.VariantTrie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OverlayTrieTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"color", "colors", "tent", "ten", "net", "queen"};
+
+    @Test
+    public void testWordsAreAddedAndRemoved() {
+        Language language = new EnglishUS();
+        StringTrie dictionary = trie(language, WORDS);
+
+        OverlayTrie overlay = new OverlayTrie(dictionary);
+        overlay.addWord("tenet");
+        overlay.addWord("quiet");
+        overlay.removeWord("net");
+        overlay.removeWord("notaword");
+
+        assertTrieMatches("Overlay should contain the added words but not the removed ones", overlay, new String[]{"color", "colors", "tent", "ten", "queen", "tenet", "quiet"}, language);
+
+        assertTrieMatches("Dictionary should not be modified", dictionary, WORDS, language);
+    }
+
+    @Test
+    public void testLastChangeWins() {
+        OverlayTrie overlay = new OverlayTrie(trie(new EnglishUS(), WORDS));
+
+        overlay.removeWord("ten");
+        overlay.addWord("ten");
+        assertTrue(overlay.isWord("ten"));
+
+        overlay.addWord("tenet");
+        overlay.removeWord("tenet");
+        assertFalse(overlay.isWord("tenet"));
+
+        // Prefixes of removed words are unaffected.
+        overlay.removeWord("tent");
+        assertTrue(overlay.isWord("ten"));
+        assertFalse(overlay.isWord("tent"));
+    }
+
+    @Test
+    public void testSolverMatchesRebuiltDictionary() {
+        Language language = new EnglishUS();
+        String[] words = FullTrieTest.readDictionary(language);
+        StringTrie dictionary = trie(language, words);
+
+        Random random = new Random(13);
+        Set<String> expectedWords = new LinkedHashSet<>();
+        for (String word : words) {
+            expectedWords.add(word.toLowerCase(language.getLocale()));
+        }
+
+        OverlayTrie overlay = new OverlayTrie(dictionary);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String word = words[random.nextInt(words.length)].toLowerCase(language.getLocale());
+            overlay.removeWord(word);
+            expectedWords.remove(word);
+
+            String newWord = word.substring(0, word.length() - 1) + "z";
+            overlay.addWord(newWord);
+            expectedWords.add(newWord);
+            added.add(newWord);
+        }
+
+        StringTrie rebuilt = trie(language, expectedWords.toArray(new String[0]));
+        for (int i = 0; i < 20; i++) {
+            GridTransitionMap board = GridTransitionMap.random(random, 4);
+            Map<String, List<Solution>> expected = rebuilt.solver(board, new WordFilter.MinLength(3));
+            Map<String, List<Solution>> actual = overlay.solver(board, new WordFilter.MinLength(3));
+            assertEquals(expected.keySet(), actual.keySet());
+        }
+
+        for (String word : added) {
+            assertEquals(expectedWords.contains(word), overlay.isWord(word));
+        }
+
+        assertArrayEquals(serialize(rebuilt), serialize(overlay));
+    }
+
+    @Test
+    public void testWritesMergedWords() throws IOException {
+        Language language = new EnglishUS();
+        OverlayTrie overlay = new OverlayTrie(trie(language, WORDS));
+        overlay.addWord("tenet");
+        overlay.addWord("quiet");
+        overlay.removeWord("net");
+        overlay.removeWord("tent");
+
+        StringTrie expected = trie(language, new String[]{"color", "colors", "ten", "queen", "tenet", "quiet"});
+        assertArrayEquals("Should write the same as a trie of the merged words", serialize(expected), serialize(overlay));
+    }
+
+    @Test
+    public void testOverlayOnVariant() {
+        Language gb = new EnglishGB();
+        StringTrie additions = trie(gb, new String[]{"colour", "colours"});
+        StringTrie removals = trie(gb, new String[]{"color", "colors"});
+        VariantTrie variant = new VariantTrie(gb, trie(new EnglishUS(), WORDS), additions, removals);
+
+        OverlayTrie overlay = new OverlayTrie(variant);
+        overlay.addWord("color");
+        overlay.removeWord("colours");
+        overlay.removeWord("queen");
+
+        assertTrieMatches("Overlay should apply on top of the variant", overlay, new String[]{"color", "colour", "tent", "ten", "net"}, gb);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOnlyStringTriesCanBeOverlaid() throws IOException {
+        Language language = new EnglishUS();
+        ByteArrayOutputStream mapped = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(trie(language, WORDS), mapped);
+
+        new OverlayTrie(new MappedTrie(language, ByteBuffer.wrap(mapped.toByteArray())));
+    }
+
+}
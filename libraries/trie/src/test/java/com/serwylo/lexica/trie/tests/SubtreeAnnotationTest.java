@@ -0,0 +1,72 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubtreeAnnotationTest extends TrieTest {
+
+    @Test
+    public void testPrunedSolverFindsSameWords() throws IOException {
+        Language language = new EnglishUS();
+
+        // Built in memory, so it has no annotations and the solver explores every branch.
+        StringTrie unannotated = new StringTrie(language);
+        addWords(unannotated, FullTrieTest.readDictionary(language));
+        byte[] serialized = serialize(unannotated);
+
+        Random random = new Random(42);
+        for (int boardSize : new int[]{4, 5}) {
+            for (int minLength : new int[]{3, 5, 6}) {
+                for (int i = 0; i < 10; i++) {
+                    GridTransitionMap board = GridTransitionMap.random(random, boardSize);
+                    StringTrie annotated = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), board, language);
+                    assertTrue(annotated.getHeader().hasSubtreeAnnotations());
+
+                    final int length = minLength;
+                    Map<String, List<Solution>> expected = unannotated.solver(board, w -> w.length() >= length);
+                    Map<String, List<Solution>> actual = annotated.solver(board, new WordFilter.MinLength(minLength));
+
+                    assertEquals(expected.keySet(), actual.keySet());
+                    for (String word : expected.keySet()) {
+                        assertEquals(word, expected.get(word).size(), actual.get(word).size());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQuCountsAsTwoCharacters() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, new String[]{"quit", "quits"});
+
+        // "quit" is only three tiles, but four characters long.
+        GridTransitionMap board = new GridTransitionMap(new String[]{"qu", "i", "t", "s"});
+        StringTrie annotated = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie)), board, language);
+
+        Map<String, List<Solution>> solutions = annotated.solver(board, new WordFilter.MinLength(4));
+        assertEquals(2, solutions.size());
+        assertTrue(solutions.containsKey("quit"));
+        assertTrue(solutions.containsKey("quits"));
+
+        assertEquals(1, annotated.solver(board, new WordFilter.MinLength(5)).size());
+        assertEquals(0, annotated.solver(board, new WordFilter.MinLength(6)).size());
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.Alphabet;
+import net.healeys.trie.DoubleArrayTrie;
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.OverlayTrie;
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TileAlphabetTest extends TrieTest {
+
+    @Test
+    public void testEveryLanguage() {
+        for (Language language : Language.getAllLanguages().values()) {
+            Alphabet alphabet = language.getAlphabet();
+            assertSame(alphabet, language.getAlphabet());
+
+            for (int code = 0; code < alphabet.size(); code++) {
+                String tile = alphabet.tileOf(code);
+                assertEquals(language.getName() + " " + tile, code, alphabet.codeOf(tile));
+                assertEquals(language.getName() + " " + tile + " should be a single tile", code, language.tileCodeAt(tile, 0));
+                assertEquals(tile, language.getTokenizer().tileOf(language.getTokenizerCode(code)));
+                assertEquals(language.getPointsForLetter(tile), language.getPointsForTile(code));
+
+                if (code > 0) {
+                    assertTrue(language.getName() + " " + tile + " should sort after the tile before it", language.getTokenizerCode(code - 1) < language.getTokenizerCode(code));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTileCodeAt() {
+        Language language = new EnglishUS();
+        Alphabet alphabet = language.getAlphabet();
+
+        assertEquals(alphabet.codeOf("qu"), language.tileCodeAt("queen", 0));
+        assertEquals(alphabet.codeOf("e"), language.tileCodeAt("queen", 2));
+        assertEquals("Only dealt as \"qu\"", -1, language.tileCodeAt("qi", 0));
+        assertEquals(-1, language.tileCodeAt("é", 0));
+    }
+
+    @Test
+    public void testBoardTileCodes() {
+        Language language = new EnglishUS();
+        Alphabet alphabet = language.getAlphabet();
+        GridTransitionMap board = new GridTransitionMap(new String[]{"qu", "a", "é", "z"});
+
+        int[] codes = alphabet.codesOf(board);
+        assertEquals(alphabet.codeOf("qu"), codes[0]);
+        assertEquals(alphabet.codeOf("a"), codes[1]);
+        assertEquals(-1, codes[2]);
+        assertEquals(alphabet.codeOf("z"), codes[3]);
+    }
+
+    @Test
+    public void testSolveWithTileCodes() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie trie = trie(language, FullTrieTest.readDictionary(language));
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(trie, serialized);
+        Trie mapped = new MappedTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized.toByteArray()), new CanTransitionMap(), language);
+
+        OverlayTrie overlay = new OverlayTrie(trie);
+        overlay.addWord("tenet");
+        overlay.removeWord("net");
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10; i++) {
+            GridTransitionMap board = GridTransitionMap.random(random, 4);
+            int[] tileCodes = language.getAlphabet().codesOf(board);
+            WordFilter filter = new WordFilter.MinLength(3);
+
+            for (Trie solver : new Trie[]{trie, mapped, new DoubleArrayTrie(trie), overlay}) {
+                Map<String, List<Solution>> expected = solver.solver(board, filter);
+                Map<String, List<Solution>> actual = solver.solver(board, tileCodes, filter);
+                assertEquals(expected.keySet(), actual.keySet());
+                for (String word : expected.keySet()) {
+                    assertEquals(word, expected.get(word).size(), actual.get(word).size());
+                }
+            }
+        }
+    }
+
+}
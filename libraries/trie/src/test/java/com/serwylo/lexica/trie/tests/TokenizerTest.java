@@ -0,0 +1,66 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+import com.serwylo.lexica.lang.Tokenizer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TokenizerTest {
+
+    @Test
+    public void testMandatorySuffix() {
+        Tokenizer tokenizer = new EnglishUS().getTokenizer();
+
+        assertEquals("qu", tokenizer.tileAt("queen", 0));
+        assertEquals(2, tokenizer.tileLength("queen", 0));
+        assertEquals("q", tokenizer.tileAt("qi", 0));
+        assertEquals(1, tokenizer.tileLength("qi", 0));
+        assertEquals("Suffix would run past the end of the word", "q", tokenizer.tileAt("iraq", 3));
+
+        assertTrue(tokenizer.hasMandatorySuffix('q'));
+        assertFalse(tokenizer.hasMandatorySuffix('u'));
+
+        assertEquals(4, tokenizer.countTiles("queen"));
+        assertEquals(2, tokenizer.countTiles("qi"));
+    }
+
+    @Test
+    public void testCodes() {
+        Tokenizer tokenizer = new EnglishUS().getTokenizer();
+
+        int[] codes = tokenizer.tokenize("quiq");
+        assertEquals(3, codes.length);
+        assertEquals("qu", tokenizer.tileOf(codes[0]));
+        assertEquals("i", tokenizer.tileOf(codes[1]));
+        assertEquals("q", tokenizer.tileOf(codes[2]));
+
+        int[] buffer = new int[8];
+        assertEquals(3, tokenizer.tokenize("quiq", buffer));
+        assertArrayEquals(codes, new int[]{buffer[0], buffer[1], buffer[2]});
+
+        assertTrue("Codes sort the same as their tiles", codes[2] < codes[0]);
+        assertTrue(tokenizer.codeAt("queen", 0) < tokenizer.codeAt("r", 0));
+        assertTrue(tokenizer.codeAt("p", 0) < tokenizer.codeAt("qi", 0));
+    }
+
+    @Test
+    public void testTilesAreShared() {
+        Language language = new Persian();
+        Tokenizer tokenizer = language.getTokenizer();
+        assertSame(tokenizer, language.getTokenizer());
+
+        String word = "ﻒﻗﺮﻫ";
+        assertEquals(4, tokenizer.countTiles(word));
+        assertEquals("ﻗ", tokenizer.tileAt(word, 1));
+        assertSame("Should not create a new tile each time", tokenizer.tileAt(word, 1), tokenizer.tileAt(word, 1));
+    }
+
+}
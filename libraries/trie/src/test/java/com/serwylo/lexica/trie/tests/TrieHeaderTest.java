@@ -0,0 +1,154 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.lang.Persian;
+
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TrieHeader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TrieHeaderTest extends TrieTest {
+
+    @Test
+    public void testHeaderDescribesTrie() throws IOException {
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, new String[]{"queen", "quit", "a"});
+
+        StringTrie deserialized = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie)), new CanTransitionMap(), language);
+        TrieHeader header = deserialized.getHeader();
+        assertNotNull(header);
+
+        // Root, "a", "qu", "que", "quee", "queen", "qui" and "quit".
+        assertEquals(8, header.getNodeCount());
+        assertEquals(3, header.getWordCount());
+
+        // "qu" is a single tile, so "queen" is only four tiles long.
+        assertEquals(4, header.getMaxWordLength());
+
+        assertEquals(6, header.getAlphabet().size());
+        assertTrue(header.getAlphabet().codeOf("qu") >= 0);
+        assertEquals(-1, header.getAlphabet().codeOf("q"));
+    }
+
+    @Test
+    public void testCorruptTrieIsRejected() {
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, new String[]{"queen", "quit", "a"});
+
+        byte[] serialized = serialize(trie);
+        serialized[serialized.length - 1] ^= 1;
+
+        try {
+            new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialized), new CanTransitionMap(), language);
+            fail("Corrupt trie should not have been loaded");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testLegacyFormatWithoutHeader() throws IOException {
+        // "a" and "ab", as written before headers were introduced.
+        byte[] b = legacyNode(true, new String[0], new byte[0][]);
+        byte[] a = legacyNode(true, new String[]{"b"}, new byte[][]{b});
+        byte[] root = legacyNode(false, new String[]{"a"}, new byte[][]{a});
+
+        Language language = new EnglishGB();
+        StringTrie trie = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(root), new CanTransitionMap(), language);
+        assertNull(trie.getHeader());
+        assertTrue(trie.isWord("a"));
+        assertTrue(trie.isWord("ab"));
+        assertFalse(trie.isWord("b"));
+
+        StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(root), new CanTransitionMap(), language);
+        assertNull(lazy.getHeader());
+        assertTrue(lazy.isWord("a"));
+        assertTrue(lazy.isWord("ab"));
+        assertFalse(lazy.isWord("b"));
+    }
+
+    @Test
+    public void testLegacyFormatIsAlwaysUtf8() throws IOException {
+        String[] words = new String[]{"آیی", "اغوایم"};
+        byte[] yeh2 = legacyNode(true, new String[0], new byte[0][]);
+        byte[] yeh1 = legacyNode(false, new String[]{"ی"}, new byte[][]{yeh2});
+        byte[] alefMadda = legacyNode(false, new String[]{"ی"}, new byte[][]{yeh1});
+
+        byte[] mim = legacyNode(true, new String[0], new byte[0][]);
+        byte[] yeh = legacyNode(false, new String[]{"م"}, new byte[][]{mim});
+        byte[] alef2 = legacyNode(false, new String[]{"ی"}, new byte[][]{yeh});
+        byte[] vav = legacyNode(false, new String[]{"ا"}, new byte[][]{alef2});
+        byte[] ghain = legacyNode(false, new String[]{"و"}, new byte[][]{vav});
+        byte[] alef = legacyNode(false, new String[]{"غ"}, new byte[][]{ghain});
+
+        byte[] root = legacyNode(false, new String[]{"آ", "ا"}, new byte[][]{alefMadda, alef});
+
+        Language language = new Persian();
+        CanTransitionMap letters = new CanTransitionMap(new String[]{"آ", "ا", "غ", "و", "ی", "م"});
+        StringTrie trie = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(root), letters, language);
+        assertTrieMatches("After reading a legacy Persian trie", trie, words, language);
+    }
+
+    @Test
+    public void testLegacyChildrenInAnyOrder() throws IOException {
+        // Written in whatever order a HashMap held the children, rather than in tile order.
+        byte[] o = legacyNode(true, new String[0], new byte[0][]);
+        byte[] t = legacyNode(false, new String[]{"o"}, new byte[][]{o});
+        byte[] at = legacyNode(true, new String[0], new byte[0][]);
+        byte[] a = legacyNode(false, new String[]{"t"}, new byte[][]{at});
+        byte[] root = legacyNode(false, new String[]{"t", "a"}, new byte[][]{t, a});
+
+        Language language = new EnglishGB();
+        String[] words = new String[]{"to", "at"};
+        byte[] expected = serialize(trie(language, words));
+
+        StringTrie trie = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(root), new CanTransitionMap(), language);
+        assertTrieMatches("After reading children out of order", trie, words, language);
+        assertArrayEquals("Children should be written in tile order", expected, serialize(trie));
+
+        StringTrie lazy = new StringTrie.LazyDeserializer().deserialize(new ByteArrayInputStream(root), new CanTransitionMap(), language);
+        assertTrue(lazy.isWord("to"));
+        assertTrue(lazy.isWord("at"));
+        assertFalse(lazy.isWord("ta"));
+    }
+
+    private static byte[] legacyNode(boolean isWord, String[] childTiles, byte[][] children) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyData = new DataOutputStream(body);
+        bodyData.writeBoolean(isWord);
+        bodyData.writeShort(childTiles.length);
+        for (String tile : childTiles) {
+            byte[] bytes = tile.getBytes("UTF-8");
+            bodyData.writeByte(bytes.length);
+            bodyData.write(bytes);
+        }
+
+        for (byte[] child : children) {
+            bodyData.write(child);
+        }
+
+        ByteArrayOutputStream node = new ByteArrayOutputStream();
+        DataOutputStream nodeData = new DataOutputStream(node);
+        nodeData.writeInt(body.size());
+        body.writeTo(nodeData);
+        return node.toByteArray();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TileOrder;
+import net.healeys.trie.TrieSetOperation;
+import net.healeys.trie.TrieWordReader;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TrieSetOperationTest extends TrieTest {
+
+    private static final Language LANGUAGE = new EnglishUS();
+
+    private static final String[] FIRST = {"queen", "qvint", "tent", "tents", "net", "ox"};
+    private static final String[] SECOND = {"qat", "queen", "tent", "nets", "ox", "zoo"};
+
+    @Test
+    public void testReaderVisitsWordsInTileOrder() throws IOException {
+        List<String> expected = new ArrayList<>(Arrays.asList(FIRST));
+        Collections.sort(expected, new TileOrder(LANGUAGE));
+
+        List<String> words = new ArrayList<>();
+        try (TrieWordReader reader = new TrieWordReader(new FileInputStream(write(FIRST)))) {
+            while (reader.next()) {
+                words.add(reader.word());
+            }
+        }
+
+        assertEquals(expected, words);
+    }
+
+    @Test
+    public void testUnion() throws IOException {
+        assertWrites(new String[]{"queen", "qvint", "tent", "tents", "net", "nets", "ox", "qat", "zoo"}, TrieSetOperation.UNION);
+    }
+
+    @Test
+    public void testIntersection() throws IOException {
+        assertWrites(new String[]{"queen", "tent", "ox"}, TrieSetOperation.INTERSECTION);
+    }
+
+    @Test
+    public void testDifference() throws IOException {
+        assertWrites(new String[]{"qvint", "tents", "net"}, TrieSetOperation.DIFFERENCE);
+    }
+
+    @Test
+    public void testNothingInCommon() throws IOException {
+        File first = write(new String[]{"tent"});
+        File second = write(new String[]{"net"});
+        File result = tempFile();
+        try (OutputStream out = new FileOutputStream(result)) {
+            assertEquals(0, TrieSetOperation.INTERSECTION.write(LANGUAGE, first, second, out, 0));
+        }
+
+        assertArrayEquals(serialize(new StringTrie(LANGUAGE)), readBytes(result));
+    }
+
+    @Test
+    public void testEnUsAgainstEnGb() throws IOException {
+        Language gb = new EnglishGB();
+        String[] us = FullTrieTest.readDictionary(LANGUAGE);
+        String[] uk = FullTrieTest.readDictionary(gb);
+
+        Set<String> onlyUs = new LinkedHashSet<>(Arrays.asList(us));
+        onlyUs.removeAll(new HashSet<>(Arrays.asList(uk)));
+
+        final List<String> visited = new ArrayList<>();
+        try (InputStream first = new FileInputStream(write(us)); InputStream second = new FileInputStream(write(uk))) {
+            TrieSetOperation.DIFFERENCE.visit(first, second, new TrieSetOperation.Visitor() {
+                @Override
+                public void visit(TrieWordReader word) {
+                    visited.add(word.word());
+                }
+            });
+        }
+
+        assertEquals(onlyUs.size(), visited.size());
+        assertEquals(onlyUs, new LinkedHashSet<>(visited));
+    }
+
+    private void assertWrites(String[] expected, TrieSetOperation operation) throws IOException {
+        File result = tempFile();
+        try (OutputStream out = new FileOutputStream(result)) {
+            assertEquals(expected.length, operation.write(LANGUAGE, write(FIRST), write(SECOND), out, 0));
+        }
+
+        StringTrie trie = new StringTrie(LANGUAGE);
+        addWords(trie, expected);
+        assertArrayEquals("Should write the same as building the trie in memory", serialize(trie), readBytes(result));
+
+        try (InputStream in = new FileInputStream(result)) {
+            assertTrieMatches(operation.name(), new StringTrie.Deserializer().deserialize(in, null, LANGUAGE), expected, LANGUAGE);
+        }
+    }
+
+    private File write(String[] words) throws IOException {
+        StringTrie trie = new StringTrie(LANGUAGE);
+        addWords(trie, words);
+
+        File file = tempFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            trie.write(out, 0);
+        }
+        return file;
+    }
+
+}
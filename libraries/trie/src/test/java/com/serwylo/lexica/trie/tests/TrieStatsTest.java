@@ -0,0 +1,45 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TrieStats;
+
+import org.junit.Test;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrieStatsTest extends TrieTest {
+
+    @Test
+    public void testSmallTrie() {
+        StringTrie trie = new StringTrie(new EnglishUS());
+        addWords(trie, new String[]{"ten", "tent", "tea", "queen"});
+
+        // Root, "t", "te", "ten", "tent", "tea", "qu", "que", "quee" and "queen".
+        TrieStats stats = new TrieStats(trie);
+        assertEquals(10, stats.getNodeCount());
+        assertEquals(9, stats.getEdgeCount());
+        assertEquals(4, stats.getWordCount());
+        assertEquals(0.4, stats.getTerminalRatio(), 0.0001);
+
+        SortedMap<Integer, Long> fanOut = new TreeMap<>();
+        fanOut.put(0, 3L);
+        fanOut.put(1, 5L);
+        fanOut.put(2, 2L);
+        assertEquals(fanOut, stats.getFanOut());
+
+        // "qu" is a single tile, so "queen" is only four deep.
+        SortedMap<Integer, Long> depths = new TreeMap<>();
+        depths.put(0, 1L);
+        depths.put(1, 2L);
+        depths.put(2, 2L);
+        depths.put(3, 3L);
+        depths.put(4, 2L);
+        assertEquals(depths, stats.getDepths());
+    }
+
+}
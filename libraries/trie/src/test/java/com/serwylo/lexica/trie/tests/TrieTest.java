@@ -4,12 +4,22 @@ import com.serwylo.lexica.lang.Language;
 import com.serwylo.lexica.trie.util.LetterFrequency;
 
 import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
 import net.healeys.trie.Trie;
 
 import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -24,6 +34,12 @@ public abstract class TrieTest {
 
     private static final String[] NOT_WORDS = new String[]{"NotAWord", "DefinitelyNotAWord", "WellThisIsEmbarrassing", "Bleh", "Sneh"};
 
+    /**
+     * Deleted, along with everything written to it, after each test.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private static void onlyContains(Language language, Trie trie, Set<String> expectedWords) {
         LetterFrequency frequency = new LetterFrequency(language);
         for (String word : expectedWords) {
@@ -71,12 +87,52 @@ public abstract class TrieTest {
         }
     }
 
-    public static void addWords(Trie trie, String[] words) {
+    public static void addWords(StringTrie trie, String[] words) {
         for (String word : words) {
             trie.addWord(word.toLowerCase());
         }
     }
 
+    static StringTrie trie(Language language, String[] words) {
+        StringTrie trie = new StringTrie(language);
+        addWords(trie, words);
+        return trie;
+    }
+
+    File tempDir() throws IOException {
+        return temporaryFolder.newFolder();
+    }
+
+    File tempFile() throws IOException {
+        return temporaryFolder.newFile();
+    }
+
+    /**
+     * Writes {@param lines} to {@param name} in {@param dir}, one per line, as a dictionary file.
+     */
+    static File writeDictionary(File dir, String name, String... lines) throws IOException {
+        File dictFile = new File(dir, name);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(dictFile), Charset.forName("UTF-8"))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        return dictFile;
+    }
+
+    static byte[] readBytes(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
     public static byte[] serialize(Trie trie) {
         try {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
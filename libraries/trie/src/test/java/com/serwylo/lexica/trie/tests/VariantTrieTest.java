@@ -0,0 +1,121 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishGB;
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.GermanDe;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.DictionaryCache;
+import net.healeys.trie.Solution;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.TransitionMap;
+import net.healeys.trie.Trie;
+import net.healeys.trie.VariantTrie;
+import net.healeys.trie.WordFilter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VariantTrieTest extends TrieTest {
+
+    private static final String[] US_WORDS = new String[]{"color", "colors", "tent", "ten", "net", "queen"};
+    private static final String[] GB_WORDS = new String[]{"colour", "colours", "tent", "ten", "net", "queen", "tenet"};
+
+    private static final String[] BOARD = new String[]{
+            "c", "o", "l", "t",
+            "r", "u", "o", "e",
+            "s", "x", "n", "e",
+            "x", "x", "t", "qu",
+    };
+
+    @Test
+    public void testWordsAreAddedAndRemoved() throws IOException {
+        VariantTrie variant = readVariant(new CanTransitionMap());
+
+        assertTrieMatches("Variant should contain exactly the GB words", variant, GB_WORDS, new EnglishGB());
+        assertFalse(variant.isWord("color"));
+        assertFalse(variant.isWord("colors"));
+        assertTrue(variant.isWord("tenet"));
+    }
+
+    @Test
+    public void testSolverMatchesFullTrie() throws IOException {
+        GridTransitionMap board = new GridTransitionMap(BOARD);
+        VariantTrie variant = readVariant(board);
+
+        StringTrie full = new StringTrie(new EnglishGB());
+        addWords(full, GB_WORDS);
+
+        Map<String, List<Solution>> expected = full.solver(board, new WordFilter.MinLength(3));
+        Map<String, List<Solution>> actual = variant.solver(board, new WordFilter.MinLength(3));
+        assertEquals(expected.keySet(), actual.keySet());
+        assertTrue(actual.containsKey("colour"));
+        assertTrue(actual.containsKey("tenet"));
+        assertFalse(actual.containsKey("color"));
+    }
+
+    @Test
+    public void testCacheSharesBase() throws IOException {
+        final byte[] base = serialize(trie(new EnglishUS(), US_WORDS));
+        final byte[] delta = serialize(variant());
+
+        DictionaryCache cache = new DictionaryCache((language, size) -> new ByteArrayInputStream(language instanceof EnglishGB ? delta : base), Long.MAX_VALUE);
+        Trie us = cache.get(new EnglishUS());
+        Trie gb = cache.get(new EnglishGB());
+
+        assertTrue(gb instanceof VariantTrie);
+        assertSame(us, ((VariantTrie) gb).getBase());
+        assertTrue(gb.isWord("colour"));
+        assertFalse(gb.isWord("color"));
+    }
+
+    @Test
+    public void testVariantMustSplitTilesLikeItsBase() throws IOException {
+        final StringTrie base = trie(new EnglishUS(), US_WORDS);
+        try {
+            new VariantTrie.Deserializer(language -> base).deserialize(new ByteArrayInputStream(serialize(variant())), null, new GermanDe());
+            fail("German doesn't deal \"qu\" as a single tile, so can't be a variant of US English");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testCachePrunesVariantAndBaseLargerThanBudget() throws IOException {
+        final byte[] base = serialize(trie(new EnglishUS(), US_WORDS));
+        final byte[] delta = serialize(variant());
+
+        DictionaryCache cache = new DictionaryCache((language, size) -> new ByteArrayInputStream(language instanceof EnglishGB ? delta : base), 1);
+        Trie gb = cache.forBoard(new EnglishGB(), new GridTransitionMap(BOARD));
+
+        assertTrue(gb.isWord("colour"));
+        assertTrue(gb.isWord("tenet"));
+        assertFalse(gb.isWord("color"));
+        assertFalse(cache.contains(new EnglishUS()));
+        assertFalse(cache.contains(new EnglishGB()));
+        assertEquals(0, cache.getSize());
+    }
+
+    private static VariantTrie variant() {
+        Language gb = new EnglishGB();
+        StringTrie additions = trie(gb, new String[]{"colour", "colours", "tenet"});
+        StringTrie removals = trie(gb, new String[]{"color", "colors"});
+        return new VariantTrie(gb, trie(new EnglishUS(), US_WORDS), additions, removals);
+    }
+
+    private static VariantTrie readVariant(TransitionMap board) throws IOException {
+        final StringTrie base = trie(new EnglishUS(), US_WORDS);
+        return new VariantTrie.Deserializer(language -> base).deserialize(new ByteArrayInputStream(serialize(variant())), board, new EnglishGB());
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+import com.serwylo.lexica.trie.util.SourceDictionary;
+import com.serwylo.lexica.trie.util.WordList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WordListTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "tent", "ten", "tenet", "queen", "qu", "ten", "zoo", "été", "ete", "eté", "ab", "abc", "abd"
+    );
+
+    private static final List<String> SORTED = Arrays.asList(
+            "ab", "abc", "abd", "ete", "eté", "qu", "queen", "ten", "tenet", "tent", "zoo", "été"
+    );
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSortedAndDeduplicated() {
+        WordList words = WordList.of(WORDS, 42);
+        assertEquals(SORTED, words.toList());
+        assertEquals(42, words.getSourceHash());
+
+        for (int i = 0; i < SORTED.size(); i++) {
+            assertEquals(SORTED.get(i), words.get(i));
+        }
+    }
+
+    @Test
+    public void testContains() {
+        // Enough words to span several blocks.
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 2) {
+            many.add("w" + i);
+        }
+        WordList words = WordList.of(many, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("w" + i, i % 2 == 0, words.contains("w" + i));
+        }
+        assertFalse(words.contains(""));
+        assertFalse(words.contains("a"));
+        assertFalse(words.contains("z"));
+        assertEquals(many.size(), words.size());
+    }
+
+    @Test
+    public void testCursor() {
+        WordList words = WordList.of(WORDS, 0);
+        WordList.Cursor cursor = words.cursor();
+        int count = 0;
+        while (cursor.next()) {
+            byte[] expected = SORTED.get(count).getBytes(Charset.forName("UTF-8"));
+            assertEquals(expected.length, cursor.length());
+            assertTrue(Arrays.equals(expected, Arrays.copyOf(cursor.bytes(), cursor.length())));
+            assertEquals(count, cursor.index());
+            count++;
+        }
+        assertEquals(SORTED.size(), count);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        WordList words = WordList.of(WORDS, 0x1234567890L);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new WordList.Serializer().serialize(words, bytes);
+
+        WordList read = new WordList.Deserializer().deserialize(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(SORTED, read.toList());
+        assertEquals(0x1234567890L, read.getSourceHash());
+    }
+
+    @Test
+    public void testEnUsDictionary() throws IOException {
+        Language language = new EnglishUS();
+        String[] lines = FullTrieTest.readDictionary(language);
+        File dictFile = TrieTest.writeDictionary(temporaryFolder.newFolder(), language.getDictionaryFileName(), lines);
+
+        Set<String> distinct = new HashSet<>();
+        for (String line : lines) {
+            distinct.add(line.toLowerCase(language.getLocale()));
+        }
+
+        WordList words = SourceDictionary.read(dictFile).wordList(language);
+        assertEquals("One for each distinct lower case line", 74007, words.size());
+        assertEquals(distinct.size(), words.size());
+        for (String word : distinct) {
+            assertTrue(word, words.contains(word));
+        }
+    }
+
+    @Test
+    public void testWrittenOnceAndReplacedWhenStale() throws IOException {
+        Language language = new EnglishUS();
+        File dir = temporaryFolder.newFolder();
+        File dictFile = TrieTest.writeDictionary(dir, language.getDictionaryFileName(), "# A comment", "Queen", "tent", "", "queen");
+        SourceDictionary dictionary = SourceDictionary.read(dictFile);
+        assertEquals(Arrays.asList("queen", "tent"), dictionary.wordList(language).toList());
+
+        File cached = dictionary.wordListFile(language);
+        assertTrue(cached.exists());
+        assertTrue(cached.setLastModified(0));
+        assertEquals(Arrays.asList("queen", "tent"), SourceDictionary.read(dictFile).wordList(language).toList());
+        assertEquals("Should read the list rather than writing it again", 0, cached.lastModified());
+
+        TrieTest.writeDictionary(dir, language.getDictionaryFileName(), "tent", "net");
+        assertEquals(Arrays.asList("net", "tent"), SourceDictionary.read(dictFile).wordList(language).toList());
+        assertTrue(cached.lastModified() > 0);
+    }
+
+    @Test
+    public void testWordsStillReadWhenListCannotBeWritten() throws IOException {
+        Language language = new EnglishUS();
+        File dir = temporaryFolder.newFolder();
+        File dictFile = TrieTest.writeDictionary(dir, language.getDictionaryFileName(), "tent", "queen");
+
+        // Something which can neither be read as, nor replaced by, a word list.
+        File cached = SourceDictionary.read(dictFile).wordListFile(language);
+        assertTrue(new File(cached, "in-the-way").mkdirs());
+
+        assertEquals(Arrays.asList("queen", "tent"), SourceDictionary.read(dictFile).wordList(language).toList());
+        assertTrue(cached.isDirectory());
+        assertEquals("Should not leave a temporary file behind", 2, dir.list().length);
+    }
+
+}
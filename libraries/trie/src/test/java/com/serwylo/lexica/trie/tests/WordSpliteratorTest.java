@@ -0,0 +1,136 @@
+package com.serwylo.lexica.trie.tests;
+
+import com.serwylo.lexica.lang.EnglishUS;
+import com.serwylo.lexica.lang.Language;
+
+import net.healeys.trie.DoubleArrayTrie;
+import net.healeys.trie.MappedTrie;
+import net.healeys.trie.OverlayTrie;
+import net.healeys.trie.StringTrie;
+import net.healeys.trie.Trie;
+import net.healeys.trie.VariantTrie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class WordSpliteratorTest extends TrieTest {
+
+    private static final String[] WORDS = new String[]{"ten", "tent", "tenet", "net", "queen", "quit", "qat", "a", "aqua"};
+
+    @Test
+    public void testWordsAreListedDepthFirst() {
+        Trie trie = trie(new EnglishUS(), WORDS);
+
+        // "q" sorts before "qu", so "qat" comes before the words starting with a "qu" tile.
+        assertEquals(Arrays.asList("a", "aqua", "net", "qat", "queen", "quit", "ten", "tenet", "tent"), list(trie.words()));
+    }
+
+    @Test
+    public void testPrefix() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie stringTrie = trie(language, WORDS);
+        for (Trie trie : new Trie[]{stringTrie, mapped(language, stringTrie), new DoubleArrayTrie(stringTrie)}) {
+            String name = trie.getClass().getSimpleName();
+            assertEquals(name, Arrays.asList("ten", "tenet", "tent"), list(trie.words("ten")));
+            assertEquals(name, Arrays.asList("tent"), list(trie.words("tent")));
+            assertEquals(name, Arrays.asList("tenet"), list(trie.words("tene")));
+            assertEquals(name, Arrays.asList("queen", "quit"), list(trie.words("qu")));
+            assertEquals(name, new ArrayList<String>(), list(trie.words("x")));
+            assertEquals(name, new ArrayList<String>(), list(trie.words("tenets")));
+        }
+    }
+
+    @Test
+    public void testEveryKindOfTrie() throws IOException {
+        Language language = new EnglishUS();
+        StringTrie stringTrie = trie(language, WORDS);
+
+        VariantTrie variant = new VariantTrie(language, stringTrie, trie(language, new String[]{"tenets"}), trie(language, new String[]{"net"}));
+        OverlayTrie overlay = new OverlayTrie(stringTrie);
+        overlay.addWord("tenets");
+        overlay.removeWord("net");
+
+        List<String> expected = Arrays.asList("a", "aqua", "net", "qat", "queen", "quit", "ten", "tenet", "tent");
+        for (Trie trie : new Trie[]{stringTrie, mapped(language, stringTrie), new DoubleArrayTrie(stringTrie)}) {
+            assertEquals(trie.getClass().getSimpleName(), expected, list(trie.words()));
+        }
+
+        List<String> changed = Arrays.asList("a", "aqua", "qat", "queen", "quit", "ten", "tenet", "tenets", "tent");
+        for (Trie trie : new Trie[]{variant, overlay}) {
+            assertEquals(trie.getClass().getSimpleName(), changed, list(trie.words()));
+        }
+    }
+
+    @Test
+    public void testPrefixEndingPartWayThroughTile() {
+        Trie trie = trie(new EnglishUS(), WORDS);
+        assertEquals(Arrays.asList("qat", "queen", "quit"), list(trie.words("q")));
+    }
+
+    @Test
+    public void testSplitsCoverEveryWordOnce() {
+        Trie trie = trie(new EnglishUS(), WORDS);
+
+        Spliterator<String> second = trie.words();
+        Spliterator<String> first = second.trySplit();
+        assertNotNull(first);
+        Spliterator<String> firstOfFirst = first.trySplit();
+        assertNotNull(firstOfFirst);
+
+        // Splits are handed out in order, so concatenating them gives the unsplit order.
+        List<String> words = new ArrayList<>();
+        words.addAll(list(firstOfFirst));
+        words.addAll(list(first));
+        words.addAll(list(second));
+        assertEquals(list(trie.words()), words);
+    }
+
+    @Test
+    public void testParallelRoundTrip() throws IOException {
+        Language language = new EnglishUS();
+        String[] words = FullTrieTest.readDictionary(language);
+        Trie read = new StringTrie.Deserializer().deserialize(new ByteArrayInputStream(serialize(trie(language, words))), null, language);
+
+        Set<String> expected = new HashSet<>();
+        for (String word : words) {
+            expected.add(word.toLowerCase(language.getLocale()));
+        }
+
+        Set<String> actual = StreamSupport.stream(read.words(), true).collect(Collectors.toSet());
+        assertEquals(expected, actual);
+
+        List<String> sequential = list(read.words());
+        List<String> parallel = StreamSupport.stream(read.words(), true).collect(Collectors.toList());
+        assertEquals(sequential, parallel);
+        assertTrue(parallel.size() > 70000);
+    }
+
+    private static List<String> list(Spliterator<String> words) {
+        List<String> list = new ArrayList<>();
+        words.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static MappedTrie mapped(Language language, StringTrie trie) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MappedTrie.Serializer().serialize(trie, out);
+        return new MappedTrie(language, ByteBuffer.wrap(out.toByteArray()));
+    }
+
+}